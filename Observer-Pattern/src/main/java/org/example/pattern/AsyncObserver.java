@@ -0,0 +1,232 @@
+package org.example.pattern;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Asynchronous Observer (Decorator)
+ * Gives the wrapped observer its own bounded queue and drain thread, so a slow
+ * update() no longer blocks the WeatherStation or the observers registered after it.
+ *
+ * Readings are stored in primitive ring buffers. The drain thread is only woken when the
+ * queue goes from empty to non-empty and then takes everything queued in one batch,
+ * so a burst of readings costs a single wakeup.
+ */
+public class AsyncObserver implements WeatherObserver, DelegatingObserver, AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(AsyncObserver.class.getName());
+    private static final AtomicInteger THREAD_IDS = new AtomicInteger();
+
+    private final WeatherObserver delegate;
+    private final OverflowPolicy overflowPolicy;
+    private final int capacity;
+
+    private final float[] temperatures;
+    private final float[] humidities;
+    private int head;
+    private int size;
+
+    private final float[] batchTemperatures;
+    private final float[] batchHumidities;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    private final Thread drainThread;
+    private volatile boolean closed;
+
+    private long droppedReadings;
+    private long deliveredReadings;
+    private long failedReadings;
+    private long batches;
+
+    public AsyncObserver(WeatherObserver delegate, int capacity, OverflowPolicy overflowPolicy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.delegate = delegate;
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.temperatures = new float[capacity];
+        this.humidities = new float[capacity];
+        this.batchTemperatures = new float[capacity];
+        this.batchHumidities = new float[capacity];
+
+        drainThread = new Thread(this::drainLoop, "weather-observer-" + THREAD_IDS.incrementAndGet());
+        drainThread.setDaemon(true);
+        drainThread.start();
+    }
+
+    @Override
+    public void update(float temperature, float humidity) {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            if (size == capacity) {
+                switch (overflowPolicy) {
+                    case DROP_OLDEST:
+                        head = (head + 1) % capacity;
+                        size--;
+                        droppedReadings++;
+                        break;
+                    case CONFLATE_TO_LATEST:
+                        int last = (head + size - 1) % capacity;
+                        temperatures[last] = temperature;
+                        humidities[last] = humidity;
+                        droppedReadings++;
+                        return;
+                    case BLOCK:
+                        while (size == capacity && !closed) {
+                            notFull.awaitUninterruptibly();
+                        }
+                        if (closed) {
+                            return;
+                        }
+                        break;
+                }
+            }
+            int tail = (head + size) % capacity;
+            temperatures[tail] = temperature;
+            humidities[tail] = humidity;
+            if (size++ == 0) {
+                notEmpty.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void drainLoop() {
+        while (true) {
+            int count;
+            lock.lock();
+            try {
+                while (size == 0 && !closed) {
+                    notEmpty.awaitUninterruptibly();
+                }
+                if (size == 0) {
+                    return;
+                }
+                count = size;
+                for (int i = 0; i < count; i++) {
+                    int index = (head + i) % capacity;
+                    batchTemperatures[i] = temperatures[index];
+                    batchHumidities[i] = humidities[index];
+                }
+                head = (head + count) % capacity;
+                size = 0;
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            deliver(count);
+        }
+    }
+
+    private void deliver(int count) {
+        int delivered = 0;
+        try {
+            if (delegate instanceof BatchWeatherObserver) {
+                ((BatchWeatherObserver) delegate).updateBatch(batchTemperatures, batchHumidities, count);
+                delivered = count;
+            } else {
+                for (; delivered < count; delivered++) {
+                    delegate.update(batchTemperatures[delivered], batchHumidities[delivered]);
+                }
+            }
+        } catch (RuntimeException e) {
+            // A failing observer must not kill its drain thread
+            LOGGER.log(Level.WARNING, "Observer " + delegate + " failed to process a batch", e);
+        } finally {
+            lock.lock();
+            try {
+                deliveredReadings += delivered;
+                // The reading that threw and the rest of its batch
+                failedReadings += count - delivered;
+                batches++;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Stops accepting readings. Readings already queued are still delivered.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public WeatherObserver delegate() {
+        return delegate;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getDroppedReadings() {
+        lock.lock();
+        try {
+            return droppedReadings;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getDeliveredReadings() {
+        lock.lock();
+        try {
+            return deliveredReadings;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Readings the observer threw on, or that were skipped after it threw in the same batch */
+    public long getFailedReadings() {
+        lock.lock();
+        try {
+            return failedReadings;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getBatches() {
+        lock.lock();
+        try {
+            return batches;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package org.example.pattern;
+
+/**
+ * Batch Observer Interface
+ * Optional extension for observers that prefer to receive a burst of readings in one call.
+ * Only the first {@code count} entries of the arrays are valid, and the arrays are reused
+ * after the call returns, so implementations must copy anything they want to keep.
+ */
+public interface BatchWeatherObserver extends WeatherObserver {
+    void updateBatch(float[] temperatures, float[] humidities, int count);
+}
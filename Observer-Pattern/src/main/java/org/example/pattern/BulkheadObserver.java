@@ -0,0 +1,185 @@
+package org.example.pattern;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bulkhead Observer (Decorator)
+ * Runs the wrapped observer in its own bounded executor, so an observer that throws,
+ * is slow, or hangs cannot stop or delay the others registered with the station.
+ *
+ * Failed updates are retried according to the BulkheadPolicy. Consecutive failures
+ * (including readings rejected because the bulkhead is full) open a circuit breaker:
+ * while it is open, readings are dropped without touching the observer, and after the
+ * open duration a single trial reading decides whether to close it again. A trial that has
+ * not finished within another open duration (e.g. queued behind hung workers) counts as
+ * failed and re-opens the circuit, so the next trial gets its chance.
+ */
+public class BulkheadObserver implements WeatherObserver, DelegatingObserver, AutoCloseable {
+    private static final int CLOSED = 0;
+    private static final int OPEN = 1;
+    private static final int HALF_OPEN = 2;
+
+    private static final AtomicInteger THREAD_IDS = new AtomicInteger();
+
+    private final WeatherObserver delegate;
+    private final BulkheadPolicy policy;
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicInteger circuitState = new AtomicInteger(CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long openedAtNanos;
+    private volatile long trialStartedAtNanos;
+
+    private final AtomicLong deliveredReadings = new AtomicLong();
+    private final AtomicLong failedReadings = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong rejectedReadings = new AtomicLong();
+    private final AtomicLong shortCircuitedReadings = new AtomicLong();
+    private final AtomicLong expiredTrials = new AtomicLong();
+
+    public BulkheadObserver(WeatherObserver delegate, BulkheadPolicy policy) {
+        this.delegate = delegate;
+        this.policy = policy;
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "weather-bulkhead-" + THREAD_IDS.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.executor = new ThreadPoolExecutor(policy.maxConcurrency, policy.maxConcurrency,
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(policy.queueCapacity), threadFactory,
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public void update(float temperature, float humidity) {
+        if (!allowRequest()) {
+            shortCircuitedReadings.incrementAndGet();
+            return;
+        }
+        try {
+            executor.execute(() -> deliver(temperature, humidity));
+        } catch (RejectedExecutionException e) {
+            rejectedReadings.incrementAndGet();
+            onFailure();
+        }
+    }
+
+    private boolean allowRequest() {
+        int state = circuitState.get();
+        if (state == CLOSED) {
+            return true;
+        }
+        long now = System.nanoTime();
+        if (state == OPEN && now - openedAtNanos >= policy.openDurationNanos) {
+            // Let exactly one trial reading through
+            if (circuitState.compareAndSet(OPEN, HALF_OPEN)) {
+                trialStartedAtNanos = now;
+                return true;
+            }
+            return false;
+        }
+        long trialStartedAt = trialStartedAtNanos;
+        // The trial must have started after the circuit last opened, not be an earlier one
+        if (state == HALF_OPEN && trialStartedAt - openedAtNanos > 0
+                && now - trialStartedAt >= policy.openDurationNanos) {
+            // Stamped before re-opening, so no thread sees OPEN with the old time
+            openedAtNanos = now;
+            if (circuitState.compareAndSet(HALF_OPEN, OPEN)) {
+                expiredTrials.incrementAndGet();
+            }
+        }
+        return false;
+    }
+
+    private void deliver(float temperature, float humidity) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                delegate.update(temperature, humidity);
+                deliveredReadings.incrementAndGet();
+                onSuccess();
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= policy.maxAttempts || executor.isShutdown()) {
+                    failedReadings.incrementAndGet();
+                    onFailure();
+                    return;
+                }
+                retries.incrementAndGet();
+                if (policy.retryBackoffNanos > 0) {
+                    LockSupport.parkNanos(policy.retryBackoffNanos);
+                }
+            }
+        }
+    }
+
+    private void onSuccess() {
+        consecutiveFailures.set(0);
+        circuitState.set(CLOSED);
+    }
+
+    private void onFailure() {
+        if (circuitState.get() == HALF_OPEN
+                || consecutiveFailures.incrementAndGet() >= policy.failureThreshold) {
+            openedAtNanos = System.nanoTime();
+            circuitState.set(OPEN);
+            consecutiveFailures.set(0);
+        }
+    }
+
+    /** True while the circuit is open (or half-open, waiting for the trial reading) */
+    public boolean isCircuitOpen() {
+        return circuitState.get() != CLOSED;
+    }
+
+    public long getDeliveredReadings() {
+        return deliveredReadings.get();
+    }
+
+    /** Readings that still failed after all attempts */
+    public long getFailedReadings() {
+        return failedReadings.get();
+    }
+
+    public long getRetries() {
+        return retries.get();
+    }
+
+    /** Readings dropped because all workers were busy and the queue was full */
+    public long getRejectedReadings() {
+        return rejectedReadings.get();
+    }
+
+    /** Readings dropped because the circuit was open */
+    public long getShortCircuitedReadings() {
+        return shortCircuitedReadings.get();
+    }
+
+    /** Trial readings that did not finish within the open duration and re-opened the circuit */
+    public long getExpiredTrials() {
+        return expiredTrials.get();
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    @Override
+    public WeatherObserver delegate() {
+        return delegate;
+    }
+
+    /**
+     * Stops the bulkhead's workers. Queued readings are discarded and running updates interrupted.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
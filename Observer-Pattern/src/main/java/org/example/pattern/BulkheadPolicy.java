@@ -0,0 +1,55 @@
+package org.example.pattern;
+
+/**
+ * Configuration of a BulkheadObserver.
+ * Immutable; each {@code with...} method returns a new policy.
+ */
+public final class BulkheadPolicy {
+    private static final BulkheadPolicy DEFAULTS = new BulkheadPolicy(1, 256, 1, 0L, 5, 5_000_000_000L);
+
+    final int maxConcurrency;
+    final int queueCapacity;
+    final int maxAttempts;
+    final long retryBackoffNanos;
+    final int failureThreshold;
+    final long openDurationNanos;
+
+    private BulkheadPolicy(int maxConcurrency, int queueCapacity, int maxAttempts, long retryBackoffNanos,
+                           int failureThreshold, long openDurationNanos) {
+        if (maxConcurrency <= 0 || queueCapacity <= 0 || maxAttempts <= 0 || failureThreshold <= 0) {
+            throw new IllegalArgumentException("Bulkhead limits must be positive");
+        }
+        this.maxConcurrency = maxConcurrency;
+        this.queueCapacity = queueCapacity;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffNanos = retryBackoffNanos;
+        this.failureThreshold = failureThreshold;
+        this.openDurationNanos = openDurationNanos;
+    }
+
+    /**
+     * One worker, 256 queued readings, no retries, circuit opens after
+     * 5 consecutive failures for 5 seconds.
+     */
+    public static BulkheadPolicy defaults() {
+        return DEFAULTS;
+    }
+
+    /** Worker threads for the observer, and readings that may wait for one */
+    public BulkheadPolicy withLimits(int maxConcurrency, int queueCapacity) {
+        return new BulkheadPolicy(maxConcurrency, queueCapacity, maxAttempts, retryBackoffNanos,
+                failureThreshold, openDurationNanos);
+    }
+
+    /** Attempts per reading (1 = no retry) and the pause between attempts */
+    public BulkheadPolicy withRetries(int maxAttempts, long retryBackoffNanos) {
+        return new BulkheadPolicy(maxConcurrency, queueCapacity, maxAttempts, retryBackoffNanos,
+                failureThreshold, openDurationNanos);
+    }
+
+    /** Consecutive failures that open the circuit, and how long it stays open */
+    public BulkheadPolicy withCircuitBreaker(int failureThreshold, long openDurationNanos) {
+        return new BulkheadPolicy(maxConcurrency, queueCapacity, maxAttempts, retryBackoffNanos,
+                failureThreshold, openDurationNanos);
+    }
+}
@@ -0,0 +1,110 @@
+package org.example.pattern;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bulkhead fault-isolation check
+ * Publishes readings to a station with a healthy observer and two isolated ones: one that
+ * always throws, and one that fails at first and then hangs until released, so the trial
+ * readings after its circuit opened get stuck on (or queued behind) the hung worker.
+ * Checks that:
+ *   - publishing never blocks and the healthy observer receives every reading,
+ *   - the throwing observer's circuit opens and readings are short-circuited,
+ *   - the hanging observer's stuck trials expire and re-open its circuit,
+ *   - once the observer is released, a trial succeeds and the circuit closes again.
+ *
+ * Usage: java org.example.pattern.BulkheadStress [openDurationMillis]
+ */
+public class BulkheadStress {
+    /** Counts readings, to check that the healthy observer got every one */
+    private static final class CountingObserver implements WeatherObserver {
+        final AtomicLong readings = new AtomicLong();
+
+        @Override
+        public void update(float temperature, float humidity) {
+            readings.incrementAndGet();
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        long openDurationMillis = args.length > 0 ? Long.parseLong(args[0]) : 50;
+        Logger.getLogger(BulkheadObserver.class.getName()).setLevel(Level.OFF);
+
+        WeatherStation station = new WeatherStation();
+        CountingObserver healthy = new CountingObserver();
+        station.addObserver(healthy);
+        BulkheadPolicy policy = BulkheadPolicy.defaults()
+                .withLimits(1, 8)
+                .withRetries(2, 0)
+                .withCircuitBreaker(3, TimeUnit.MILLISECONDS.toNanos(openDurationMillis));
+        BulkheadObserver throwing = station.addIsolatedObserver((temperature, humidity) -> {
+            throw new IllegalStateException("Observer always fails");
+        }, policy);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicLong hangingCalls = new AtomicLong();
+        BulkheadObserver hanging = station.addIsolatedObserver((temperature, humidity) -> {
+            // Enough failures to open the circuit, then every call hangs
+            if (hangingCalls.incrementAndGet() <= 6) {
+                throw new IllegalStateException("Observer fails before hanging");
+            }
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, policy);
+
+        // Phase 1: faulty observers, several open durations long
+        long published = publishFor(station, openDurationMillis * 10);
+        boolean ok = check("healthy observer got every reading", healthy.readings.get() == published);
+        ok &= check("throwing observer's circuit opened", throwing.isCircuitOpen()
+                && throwing.getShortCircuitedReadings() > 0 && throwing.getDeliveredReadings() == 0);
+        ok &= check("hanging observer's stuck trials expired", hanging.isCircuitOpen()
+                && hanging.getExpiredTrials() > 0 && hanging.getShortCircuitedReadings() > 0);
+        System.out.printf("  %,d readings published; throwing: failed %,d, short-circuited %,d; "
+                        + "hanging: rejected %,d, short-circuited %,d, expired trials %,d%n",
+                published, throwing.getFailedReadings(), throwing.getShortCircuitedReadings(),
+                hanging.getRejectedReadings(), hanging.getShortCircuitedReadings(), hanging.getExpiredTrials());
+
+        // Phase 2: the hang ends; the next trial that gets through must close the circuit
+        release.countDown();
+        published += publishFor(station, openDurationMillis * 10);
+        ok &= check("healthy observer got every reading", healthy.readings.get() == published);
+        ok &= check("hanging observer's circuit closed after release", !hanging.isCircuitOpen()
+                && hanging.getDeliveredReadings() > 0);
+        ok &= check("throwing observer's circuit still open", throwing.isCircuitOpen());
+
+        station.removeObserver(throwing);
+        station.removeObserver(hanging);
+        if (!ok) {
+            throw new IllegalStateException("Bulkhead check failed");
+        }
+        System.out.println("OK");
+    }
+
+    private static long publishFor(WeatherStation station, long millis) throws InterruptedException {
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        long published = 0;
+        long slowest = 0;
+        while (System.nanoTime() < end) {
+            long start = System.nanoTime();
+            station.setWeatherConditions(published, 50f);
+            slowest = Math.max(slowest, System.nanoTime() - start);
+            published++;
+            if (published % 100 == 0) {
+                Thread.sleep(1);
+            }
+        }
+        System.out.printf("  slowest publish %.2f ms%n", slowest / 1e6);
+        return published;
+    }
+
+    private static boolean check(String what, boolean passed) {
+        System.out.println((passed ? "pass: " : "FAIL: ") + what);
+        return passed;
+    }
+}
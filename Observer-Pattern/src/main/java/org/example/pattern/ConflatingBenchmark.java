@@ -0,0 +1,66 @@
+package org.example.pattern;
+
+/**
+ * Conflating mode benchmark
+ * Measures producer throughput of WeatherStation.setWeatherConditions with one conflating
+ * observer whose consumer is fast, slow, or very slow. Throughput should stay flat,
+ * because the producer only ever overwrites a single slot.
+ *
+ * Usage: java org.example.pattern.ConflatingBenchmark [readings]
+ */
+public class ConflatingBenchmark {
+    public static void main(String[] args) throws InterruptedException {
+        int readings = args.length > 0 ? Integer.parseInt(args[0]) : 20_000_000;
+        long[] consumerDelaysNanos = {0, 100_000, 10_000_000};
+
+        // Warm-up
+        run(readings / 10, 0);
+
+        System.out.println("Consumer delay (ns) | Producer readings/s | Delivered | Conflated");
+        for (long delay : consumerDelaysNanos) {
+            long[] result = run(readings, delay);
+            System.out.printf("%19d | %19.0f | %9d | %9d%n",
+                    delay, readings * 1e9 / result[0], result[1], result[2]);
+        }
+    }
+
+    private static long[] run(int readings, long consumerDelayNanos) throws InterruptedException {
+        WeatherStation station = new WeatherStation();
+        WeatherObserver consumer = (temperature, humidity) -> {
+            if (consumerDelayNanos > 0) {
+                sleepNanos(consumerDelayNanos);
+            }
+        };
+        ConflatingObserver slot = station.addConflatingObserver(consumer);
+
+        long[] delivered = new long[1];
+        Thread consumerThread = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                if (slot.poll()) {
+                    delivered[0]++;
+                } else {
+                    Thread.onSpinWait();
+                }
+            }
+        });
+        consumerThread.start();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < readings; i++) {
+            station.setWeatherConditions(i * 0.001f, 50f);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        consumerThread.interrupt();
+        consumerThread.join();
+        return new long[] {elapsed, delivered[0], slot.getConflatedReadings()};
+    }
+
+    private static void sleepNanos(long nanos) {
+        try {
+            Thread.sleep(nanos / 1_000_000, (int) (nanos % 1_000_000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
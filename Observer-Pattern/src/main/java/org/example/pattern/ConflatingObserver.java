@@ -0,0 +1,89 @@
+package org.example.pattern;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Conflating Observer (Decorator)
+ * Holds only the latest reading for the wrapped observer in a single atomic slot.
+ *
+ * The station overwrites the slot on every update; the consumer calls {@link #poll()}
+ * whenever it is ready and receives just the freshest reading, skipping any stale ones.
+ * Memory per observer is constant no matter how fast readings are published.
+ */
+public class ConflatingObserver implements WeatherObserver, DelegatingObserver {
+    /** Two non-canonical NaNs: never produced by Float.floatToIntBits, so it marks an empty slot */
+    private static final long EMPTY = 0xFFFFFFFFFFFFFFFFL;
+
+    private final WeatherObserver delegate;
+    private final AtomicLong slot = new AtomicLong(EMPTY);
+    private final AtomicLong conflatedReadings = new AtomicLong();
+
+    private float lastTemperature = Float.NaN;
+    private float lastHumidity = Float.NaN;
+
+    public ConflatingObserver(WeatherObserver delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void update(float temperature, float humidity) {
+        long previous = slot.getAndSet(pack(temperature, humidity));
+        if (previous != EMPTY) {
+            conflatedReadings.incrementAndGet();
+        }
+    }
+
+    /**
+     * Delivers the latest reading to the wrapped observer if one arrived since the last poll.
+     * Must be called from a single consumer thread.
+     *
+     * @return true if a reading was delivered
+     */
+    public boolean poll() {
+        long packed = slot.getAndSet(EMPTY);
+        if (packed == EMPTY) {
+            return false;
+        }
+        lastTemperature = temperature(packed);
+        lastHumidity = humidity(packed);
+        delegate.update(lastTemperature, lastHumidity);
+        return true;
+    }
+
+    public boolean hasPendingReading() {
+        return slot.get() != EMPTY;
+    }
+
+    /** Temperature of the last reading delivered by poll(), or NaN if none yet */
+    public float getLastTemperature() {
+        return lastTemperature;
+    }
+
+    /** Humidity of the last reading delivered by poll(), or NaN if none yet */
+    public float getLastHumidity() {
+        return lastHumidity;
+    }
+
+    /** Number of readings overwritten before the consumer polled them */
+    public long getConflatedReadings() {
+        return conflatedReadings.get();
+    }
+
+    @Override
+    public WeatherObserver delegate() {
+        return delegate;
+    }
+
+    static long pack(float temperature, float humidity) {
+        return ((long) Float.floatToIntBits(temperature) << 32)
+                | (Float.floatToIntBits(humidity) & 0xFFFFFFFFL);
+    }
+
+    static float temperature(long packed) {
+        return Float.intBitsToFloat((int) (packed >>> 32));
+    }
+
+    static float humidity(long packed) {
+        return Float.intBitsToFloat((int) packed);
+    }
+}
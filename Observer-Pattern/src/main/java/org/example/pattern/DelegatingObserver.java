@@ -0,0 +1,9 @@
+package org.example.pattern;
+
+/**
+ * Implemented by observers that wrap another observer, so that
+ * {@link WeatherStation#removeObserver(WeatherObserver)} can be called with the original instance.
+ */
+interface DelegatingObserver {
+    WeatherObserver delegate();
+}
@@ -0,0 +1,87 @@
+package org.example.pattern;
+
+/**
+ * Immutable snapshot of an InstrumentedObserver's dispatch statistics
+ */
+public final class DispatchStats {
+    private final WeatherObserver observer;
+    private final long invocations;
+    private final long exceptions;
+    private final long budgetViolations;
+    private final double meanNanos;
+    private final long p50Nanos;
+    private final long p99Nanos;
+    private final long p999Nanos;
+    private final long maxNanos;
+    private final boolean slow;
+    private final boolean quarantined;
+
+    DispatchStats(WeatherObserver observer, long invocations, long exceptions, long budgetViolations,
+                  double meanNanos, long p50Nanos, long p99Nanos, long p999Nanos, long maxNanos,
+                  boolean slow, boolean quarantined) {
+        this.observer = observer;
+        this.invocations = invocations;
+        this.exceptions = exceptions;
+        this.budgetViolations = budgetViolations;
+        this.meanNanos = meanNanos;
+        this.p50Nanos = p50Nanos;
+        this.p99Nanos = p99Nanos;
+        this.p999Nanos = p999Nanos;
+        this.maxNanos = maxNanos;
+        this.slow = slow;
+        this.quarantined = quarantined;
+    }
+
+    public WeatherObserver getObserver() {
+        return observer;
+    }
+
+    public long getInvocations() {
+        return invocations;
+    }
+
+    public long getExceptions() {
+        return exceptions;
+    }
+
+    public long getBudgetViolations() {
+        return budgetViolations;
+    }
+
+    public double getMeanNanos() {
+        return meanNanos;
+    }
+
+    public long getP50Nanos() {
+        return p50Nanos;
+    }
+
+    public long getP99Nanos() {
+        return p99Nanos;
+    }
+
+    public long getP999Nanos() {
+        return p999Nanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    /** True if the observer's p99 latency exceeds its budget */
+    public boolean isSlow() {
+        return slow;
+    }
+
+    /** True if the observer was moved to an asynchronous lane */
+    public boolean isQuarantined() {
+        return quarantined;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: invocations=%d, exceptions=%d, p50=%dns, p99=%dns, p99.9=%dns, max=%dns%s%s",
+                observer, invocations, exceptions, p50Nanos, p99Nanos, p999Nanos, maxNanos,
+                slow ? " [SLOW]" : "", quarantined ? " [QUARANTINED]" : "");
+    }
+}
@@ -0,0 +1,87 @@
+package org.example.pattern;
+
+/**
+ * Filtered Observer (Decorator)
+ * Evaluates a WeatherFilter before forwarding a reading to the wrapped observer, and
+ * counts how many readings were delivered and how many were filtered out.
+ * The check works on primitive fields only and does not allocate.
+ */
+public class FilteredObserver implements WeatherObserver, DelegatingObserver {
+    private final WeatherObserver delegate;
+    private final WeatherFilter filter;
+
+    private boolean hasDelivered;
+    private float lastTemperature;
+    private float lastHumidity;
+    private long lastDeliveryNanos;
+
+    private long deliveredReadings;
+    private long filteredReadings;
+
+    public FilteredObserver(WeatherObserver delegate, WeatherFilter filter) {
+        this.delegate = delegate;
+        this.filter = filter;
+    }
+
+    @Override
+    public void update(float temperature, float humidity) {
+        synchronized (this) {
+            if (!accept(temperature, humidity)) {
+                filteredReadings++;
+                return;
+            }
+            hasDelivered = true;
+            lastTemperature = temperature;
+            lastHumidity = humidity;
+            deliveredReadings++;
+        }
+        delegate.update(temperature, humidity);
+    }
+
+    private boolean accept(float temperature, float humidity) {
+        WeatherFilter f = filter;
+        // NaN bounds mean "no threshold", and every comparison with NaN is false
+        if (f.normalTemperatureLow == f.normalTemperatureLow
+                && temperature >= f.normalTemperatureLow && temperature <= f.normalTemperatureHigh) {
+            return false;
+        }
+        if (f.normalHumidityLow == f.normalHumidityLow
+                && humidity >= f.normalHumidityLow && humidity <= f.normalHumidityHigh) {
+            return false;
+        }
+        if (hasDelivered && (f.minTemperatureDelta > 0 || f.minHumidityDelta > 0)) {
+            boolean temperatureMoved = f.minTemperatureDelta > 0
+                    && Math.abs(temperature - lastTemperature) >= f.minTemperatureDelta;
+            boolean humidityMoved = f.minHumidityDelta > 0
+                    && Math.abs(humidity - lastHumidity) >= f.minHumidityDelta;
+            if (!temperatureMoved && !humidityMoved) {
+                return false;
+            }
+        }
+        if (f.minIntervalNanos > 0) {
+            long now = System.nanoTime();
+            if (hasDelivered && now - lastDeliveryNanos < f.minIntervalNanos) {
+                return false;
+            }
+            lastDeliveryNanos = now;
+        }
+        return true;
+    }
+
+    @Override
+    public WeatherObserver delegate() {
+        return delegate;
+    }
+
+    public WeatherFilter getFilter() {
+        return filter;
+    }
+
+    public synchronized long getDeliveredReadings() {
+        return deliveredReadings;
+    }
+
+    public synchronized long getFilteredReadings() {
+        return filteredReadings;
+    }
+}
@@ -0,0 +1,65 @@
+package org.example.pattern;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * History replay benchmark
+ * Appends the given number of records to a WeatherHistoryStore, then replays all of them
+ * while another thread keeps publishing live readings, and reports both rates.
+ *
+ * Usage: java org.example.pattern.HistoryReplayBenchmark [records] [directory]
+ * (e.g. 100000000 records need about 3.2 GB of disk)
+ */
+public class HistoryReplayBenchmark {
+    public static void main(String[] args) throws Exception {
+        long records = args.length > 0 ? Long.parseLong(args[0]) : 10_000_000L;
+        Path directory = args.length > 1 ? Path.of(args[1]) : Files.createTempDirectory("weather-history");
+
+        try (WeatherHistoryStore store = new WeatherHistoryStore(directory, 1 << 22)) {
+            long start = System.nanoTime();
+            for (long i = 0; i < records; i++) {
+                store.append((int) (i % 1000), 20f + (i % 100) * 0.1f, 50f);
+            }
+            long appendNanos = System.nanoTime() - start;
+            System.out.printf("Appended %d records in %d segments: %.0f records/s%n",
+                    records, store.getSegmentCount(), records * 1e9 / appendNanos);
+
+            AtomicLong liveAppends = new AtomicLong();
+            Thread publisher = new Thread(() -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    store.append(-1, 0f, 0f);
+                    liveAppends.incrementAndGet();
+                }
+            });
+            publisher.start();
+
+            double[] checksum = new double[1];
+            start = System.nanoTime();
+            long replayed = store.replayFromSequence(0, (id, temperature, humidity) -> checksum[0] += temperature);
+            long replayNanos = System.nanoTime() - start;
+            publisher.interrupt();
+            publisher.join();
+
+            System.out.printf("Replayed %d records: %.0f records/s (%.0f MB/s), checksum %.1f%n",
+                    replayed, replayed * 1e9 / replayNanos,
+                    replayed * (double) WeatherHistoryStore.RECORD_SIZE * 1e3 / replayNanos, checksum[0]);
+            System.out.printf("Live appends during replay: %d (%.0f records/s)%n",
+                    liveAppends.get(), liveAppends.get() * 1e9 / replayNanos);
+        } finally {
+            if (args.length <= 1) {
+                deleteRecursively(directory);
+            }
+        }
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package org.example.pattern;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Instrumented Observer (Decorator)
+ * Times every update() of the wrapped observer into a LatencyHistogram, counts exceptions,
+ * and counts invocations that exceed the latency budget.
+ *
+ * If quarantine is enabled, an observer that exceeds its budget on
+ * {@code quarantineAfterViolations} consecutive invocations is moved to an asynchronous
+ * lane (an AsyncObserver), so it can no longer slow down the station's dispatch loop.
+ * The recording path does not allocate.
+ */
+public class InstrumentedObserver implements WeatherObserver, DelegatingObserver, AutoCloseable {
+    private static final int QUARANTINE_QUEUE_CAPACITY = 1024;
+
+    private final WeatherObserver delegate;
+    private final long latencyBudgetNanos;
+    private final int quarantineAfterViolations;
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final AtomicLong exceptions = new AtomicLong();
+    private final AtomicLong budgetViolations = new AtomicLong();
+    private final AtomicLong consecutiveViolations = new AtomicLong();
+
+    private final WeatherObserver timedDelegate = this::invokeTimed;
+    private volatile AsyncObserver quarantineLane;
+
+    /**
+     * @param quarantineAfterViolations consecutive budget violations before the observer is
+     *                                  quarantined, or 0 to never quarantine
+     */
+    public InstrumentedObserver(WeatherObserver delegate, long latencyBudgetNanos, int quarantineAfterViolations) {
+        this.delegate = delegate;
+        this.latencyBudgetNanos = latencyBudgetNanos;
+        this.quarantineAfterViolations = quarantineAfterViolations;
+    }
+
+    @Override
+    public void update(float temperature, float humidity) {
+        AsyncObserver lane = quarantineLane;
+        if (lane != null) {
+            lane.update(temperature, humidity);
+        } else {
+            invokeTimed(temperature, humidity);
+        }
+    }
+
+    private void invokeTimed(float temperature, float humidity) {
+        long start = System.nanoTime();
+        try {
+            delegate.update(temperature, humidity);
+        } catch (RuntimeException e) {
+            exceptions.incrementAndGet();
+            throw e;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            histogram.record(elapsed);
+            if (elapsed > latencyBudgetNanos) {
+                budgetViolations.incrementAndGet();
+                long consecutive = consecutiveViolations.incrementAndGet();
+                if (quarantineAfterViolations > 0 && consecutive >= quarantineAfterViolations) {
+                    quarantine();
+                }
+            } else {
+                consecutiveViolations.set(0);
+            }
+        }
+    }
+
+    private synchronized void quarantine() {
+        if (quarantineLane == null) {
+            quarantineLane = new AsyncObserver(timedDelegate, QUARANTINE_QUEUE_CAPACITY, OverflowPolicy.DROP_OLDEST);
+        }
+    }
+
+    public DispatchStats snapshot() {
+        long p99 = histogram.percentileNanos(99);
+        return new DispatchStats(delegate,
+                histogram.getCount(),
+                exceptions.get(),
+                budgetViolations.get(),
+                histogram.getMeanNanos(),
+                histogram.percentileNanos(50),
+                p99,
+                histogram.percentileNanos(99.9),
+                histogram.getMaxNanos(),
+                p99 > latencyBudgetNanos,
+                quarantineLane != null);
+    }
+
+    public boolean isQuarantined() {
+        return quarantineLane != null;
+    }
+
+    /** Readings dropped by the quarantine lane because the observer could not keep up */
+    public long getQuarantineDroppedReadings() {
+        AsyncObserver lane = quarantineLane;
+        return lane == null ? 0 : lane.getDroppedReadings();
+    }
+
+    public long getLatencyBudgetNanos() {
+        return latencyBudgetNanos;
+    }
+
+    @Override
+    public WeatherObserver delegate() {
+        return delegate;
+    }
+
+    /**
+     * Stops the quarantine lane, if any.
+     */
+    @Override
+    public synchronized void close() {
+        if (quarantineLane != null) {
+            quarantineLane.close();
+        }
+    }
+}
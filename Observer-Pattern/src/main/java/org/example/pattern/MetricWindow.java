@@ -0,0 +1,223 @@
+package org.example.pattern;
+
+import java.util.Arrays;
+
+/**
+ * Sliding-window statistics for a single metric (temperature or humidity).
+ *
+ * Values live in a primitive circular buffer and are added at the tail and evicted at the
+ * head (FIFO). Every statistic is maintained incrementally:
+ * mean/variance with Welford's algorithm (including removal), min/max with monotonic
+ * deques of sequence numbers, and percentiles with a fixed-bucket histogram sketch.
+ * Not thread-safe; WindowedAggregator serialises access.
+ */
+final class MetricWindow {
+    private float[] values;
+    private int mask;
+    private long headSequence;
+    private long tailSequence;
+
+    private double mean;
+    private double m2;
+
+    private final SequenceDeque minDeque;
+    private final SequenceDeque maxDeque;
+
+    private final float sketchLow;
+    private final float bucketWidth;
+    private final int[] buckets;
+
+    MetricWindow(int initialCapacity, float sketchLow, float sketchHigh, int bucketCount) {
+        int capacity = Integer.highestOneBit(Math.max(2, initialCapacity - 1)) << 1;
+        values = new float[capacity];
+        mask = capacity - 1;
+        minDeque = new SequenceDeque(capacity);
+        maxDeque = new SequenceDeque(capacity);
+        this.sketchLow = sketchLow;
+        this.bucketWidth = (sketchHigh - sketchLow) / bucketCount;
+        this.buckets = new int[bucketCount];
+    }
+
+    int size() {
+        return (int) (tailSequence - headSequence);
+    }
+
+    void add(float value) {
+        if (size() == values.length) {
+            grow();
+        }
+        long sequence = tailSequence++;
+        values[(int) sequence & mask] = value;
+
+        int n = size();
+        double delta = value - mean;
+        mean += delta / n;
+        m2 += delta * (value - mean);
+
+        while (!minDeque.isEmpty() && valueAt(minDeque.peekLast()) >= value) {
+            minDeque.pollLast();
+        }
+        minDeque.addLast(sequence);
+        while (!maxDeque.isEmpty() && valueAt(maxDeque.peekLast()) <= value) {
+            maxDeque.pollLast();
+        }
+        maxDeque.addLast(sequence);
+
+        buckets[bucketOf(value)]++;
+    }
+
+    void removeOldest() {
+        if (size() == 0) {
+            return;
+        }
+        long sequence = headSequence++;
+        float value = valueAt(sequence);
+
+        int n = size();
+        if (n == 0) {
+            mean = 0;
+            m2 = 0;
+        } else {
+            double delta = value - mean;
+            mean -= delta / n;
+            m2 -= delta * (value - mean);
+            if (m2 < 0) {
+                m2 = 0;
+            }
+        }
+
+        if (!minDeque.isEmpty() && minDeque.peekFirst() == sequence) {
+            minDeque.pollFirst();
+        }
+        if (!maxDeque.isEmpty() && maxDeque.peekFirst() == sequence) {
+            maxDeque.pollFirst();
+        }
+
+        buckets[bucketOf(value)]--;
+    }
+
+    void clear() {
+        headSequence = tailSequence;
+        mean = 0;
+        m2 = 0;
+        minDeque.clear();
+        maxDeque.clear();
+        Arrays.fill(buckets, 0);
+    }
+
+    float min() {
+        return minDeque.isEmpty() ? Float.NaN : valueAt(minDeque.peekFirst());
+    }
+
+    float max() {
+        return maxDeque.isEmpty() ? Float.NaN : valueAt(maxDeque.peekFirst());
+    }
+
+    double mean() {
+        return size() == 0 ? Double.NaN : mean;
+    }
+
+    /** Population variance */
+    double variance() {
+        int n = size();
+        return n == 0 ? Double.NaN : m2 / n;
+    }
+
+    /** Approximate quantile: midpoint of the bucket holding the q-th value */
+    float quantile(double q) {
+        int n = size();
+        if (n == 0) {
+            return Float.NaN;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * n));
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                float midpoint = sketchLow + (i + 0.5f) * bucketWidth;
+                return Math.max(min(), Math.min(max(), midpoint));
+            }
+        }
+        return max();
+    }
+
+    WeatherSummary.Stats snapshot() {
+        return new WeatherSummary.Stats(min(), max(), mean(), variance(),
+                quantile(0.50), quantile(0.90), quantile(0.99));
+    }
+
+    private float valueAt(long sequence) {
+        return values[(int) sequence & mask];
+    }
+
+    private int bucketOf(float value) {
+        int bucket = (int) ((value - sketchLow) / bucketWidth);
+        if (bucket < 0 || value != value) {
+            return 0;
+        }
+        return Math.min(bucket, buckets.length - 1);
+    }
+
+    private void grow() {
+        float[] grown = new float[values.length * 2];
+        int grownMask = grown.length - 1;
+        for (long s = headSequence; s < tailSequence; s++) {
+            grown[(int) s & grownMask] = values[(int) s & mask];
+        }
+        values = grown;
+        mask = grownMask;
+        minDeque.grow();
+        maxDeque.grow();
+    }
+
+    /** Double-ended queue of long sequence numbers on a primitive circular array */
+    private static final class SequenceDeque {
+        private long[] elements;
+        private int head;
+        private int size;
+
+        SequenceDeque(int capacity) {
+            elements = new long[capacity];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        long peekFirst() {
+            return elements[head];
+        }
+
+        long peekLast() {
+            return elements[(head + size - 1) & (elements.length - 1)];
+        }
+
+        void addLast(long sequence) {
+            elements[(head + size) & (elements.length - 1)] = sequence;
+            size++;
+        }
+
+        void pollFirst() {
+            head = (head + 1) & (elements.length - 1);
+            size--;
+        }
+
+        void pollLast() {
+            size--;
+        }
+
+        void clear() {
+            head = 0;
+            size = 0;
+        }
+
+        void grow() {
+            long[] grown = new long[elements.length * 2];
+            for (int i = 0; i < size; i++) {
+                grown[i] = elements[(head + i) & (elements.length - 1)];
+            }
+            elements = grown;
+            head = 0;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package org.example.pattern;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Lock-free, copy-on-write observer registry.
+ *
+ * Observers are kept in an immutable array that is replaced with a CAS on every
+ * add/remove. Notification just reads the current array, so iterating is wait-free and
+ * never sees a ConcurrentModificationException, no matter how many threads subscribe
+ * or unsubscribe at the same time.
+ */
+public class ObserverRegistry {
+    private static final WeatherObserver[] EMPTY = new WeatherObserver[0];
+
+    private final AtomicReference<WeatherObserver[]> snapshot = new AtomicReference<>(EMPTY);
+
+    public void add(WeatherObserver observer) {
+        WeatherObserver[] current;
+        WeatherObserver[] next;
+        do {
+            current = snapshot.get();
+            next = new WeatherObserver[current.length + 1];
+            System.arraycopy(current, 0, next, 0, current.length);
+            next[current.length] = observer;
+        } while (!snapshot.compareAndSet(current, next));
+    }
+
+    /**
+     * Removes the first observer matching the predicate, keeping registration order.
+     *
+     * @return the removed observer, or null if none matched
+     */
+    public WeatherObserver remove(Predicate<WeatherObserver> matcher) {
+        while (true) {
+            WeatherObserver[] current = snapshot.get();
+            int index = indexOf(current, matcher);
+            if (index < 0) {
+                return null;
+            }
+            WeatherObserver[] next;
+            if (current.length == 1) {
+                next = EMPTY;
+            } else {
+                next = new WeatherObserver[current.length - 1];
+                System.arraycopy(current, 0, next, 0, index);
+                System.arraycopy(current, index + 1, next, index, next.length - index);
+            }
+            if (snapshot.compareAndSet(current, next)) {
+                return current[index];
+            }
+        }
+    }
+
+    private static int indexOf(WeatherObserver[] observers, Predicate<WeatherObserver> matcher) {
+        for (int i = 0; i < observers.length; i++) {
+            if (matcher.test(observers[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the current observers without copying, for notification inside the package.
+     * The array is shared with the registry and must not be modified.
+     */
+    WeatherObserver[] snapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Calls the action for each observer registered when the call started.
+     */
+    public void forEach(Consumer<? super WeatherObserver> action) {
+        for (WeatherObserver observer : snapshot.get()) {
+            action.accept(observer);
+        }
+    }
+
+    /**
+     * Returns a copy of the current observers.
+     */
+    public WeatherObserver[] toArray() {
+        return snapshot.get().clone();
+    }
+
+    public int size() {
+        return snapshot.get().length;
+    }
+}
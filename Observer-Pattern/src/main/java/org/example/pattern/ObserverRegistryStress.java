@@ -0,0 +1,115 @@
+package org.example.pattern;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Observer registry stress check
+ * Runs publisher threads calling WeatherStation.setWeatherConditions while subscriber threads
+ * keep adding and removing their own observers, and checks that:
+ *   - no thread sees an exception (e.g. ConcurrentModificationException),
+ *   - no observer receives a torn reading (every reading is published with humidity = 2 * temperature),
+ *   - the permanent observers, registered before the run, receive every published reading,
+ *   - no registration is lost: afterwards only the permanent observers are left.
+ *
+ * Usage: java org.example.pattern.ObserverRegistryStress [publishers] [subscribers] [readingsPerPublisher]
+ */
+public class ObserverRegistryStress {
+    private static final int PERMANENT_OBSERVERS = 8;
+
+    /** Counts readings and flags torn ones */
+    private static final class CheckingObserver implements WeatherObserver {
+        final AtomicLong readings = new AtomicLong();
+
+        @Override
+        public void update(float temperature, float humidity) {
+            if (humidity != temperature * 2) {
+                TORN.incrementAndGet();
+            }
+            readings.incrementAndGet();
+        }
+    }
+
+    private static final AtomicLong TORN = new AtomicLong();
+
+    public static void main(String[] args) throws InterruptedException {
+        int publishers = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int subscribers = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int readingsPerPublisher = args.length > 2 ? Integer.parseInt(args[2]) : 200_000;
+
+        WeatherStation station = new WeatherStation();
+        CheckingObserver[] permanent = new CheckingObserver[PERMANENT_OBSERVERS];
+        for (int i = 0; i < permanent.length; i++) {
+            permanent[i] = new CheckingObserver();
+            station.addObserver(permanent[i]);
+        }
+
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch publishing = new CountDownLatch(publishers);
+        AtomicLong subscriptions = new AtomicLong();
+        Thread[] threads = new Thread[publishers + subscribers];
+        for (int p = 0; p < publishers; p++) {
+            int publisher = p;
+            threads[p] = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < readingsPerPublisher; i++) {
+                        float temperature = publisher * 1_000 + i % 1_000;
+                        station.setWeatherConditions(temperature, temperature * 2);
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    publishing.countDown();
+                }
+            }, "publisher-" + p);
+        }
+        for (int s = 0; s < subscribers; s++) {
+            threads[publishers + s] = new Thread(() -> {
+                try {
+                    start.await();
+                    CheckingObserver[] own = new CheckingObserver[4];
+                    while (publishing.getCount() > 0) {
+                        for (int i = 0; i < own.length; i++) {
+                            own[i] = new CheckingObserver();
+                            station.addObserver(own[i]);
+                        }
+                        for (CheckingObserver observer : own) {
+                            station.removeObserver(observer);
+                        }
+                        subscriptions.addAndGet(own.length);
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }, "subscriber-" + s);
+        }
+
+        long startNanos = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long nanos = System.nanoTime() - startNanos;
+
+        long published = (long) publishers * readingsPerPublisher;
+        int remaining = station.getObserverCount();
+        boolean ok = failure.get() == null && TORN.get() == 0 && remaining == PERMANENT_OBSERVERS;
+        for (CheckingObserver observer : permanent) {
+            ok &= observer.readings.get() == published;
+        }
+        System.out.printf("%d publishers, %d subscribers: %,d readings and %,d subscribe/unsubscribe pairs in %.2f s%n",
+                publishers, subscribers, published, subscriptions.get(), nanos / 1e9);
+        System.out.printf("torn readings %d, observers left %d of %d permanent, exception %s%n",
+                TORN.get(), remaining, PERMANENT_OBSERVERS, failure.get());
+        if (!ok) {
+            throw new IllegalStateException("Observer registry stress check failed");
+        }
+        System.out.println("OK");
+    }
+}
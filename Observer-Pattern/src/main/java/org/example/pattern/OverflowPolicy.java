@@ -0,0 +1,14 @@
+package org.example.pattern;
+
+/**
+ * Overflow Policy
+ * Decides what an AsyncObserver does when its queue is full
+ */
+public enum OverflowPolicy {
+    /** Evict the oldest queued reading to make room for the new one */
+    DROP_OLDEST,
+    /** Block the publishing thread until the observer drains a slot */
+    BLOCK,
+    /** Overwrite the newest queued reading, so only the latest value survives */
+    CONFLATE_TO_LATEST
+}
@@ -0,0 +1,85 @@
+package org.example.pattern;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ring buffer benchmark
+ * Compares publishing through WeatherRingBuffer with the synchronous
+ * WeatherStation.notifyObservers() loop for 1, 8 and 64 observers.
+ * The ring buffer timing includes waiting until every observer has consumed every reading.
+ *
+ * Usage: java org.example.pattern.RingBufferBenchmark [readings] [BUSY_SPIN|YIELD|BLOCKING]
+ */
+public class RingBufferBenchmark {
+    private static final int[] OBSERVER_COUNTS = {1, 8, 64};
+
+    public static void main(String[] args) {
+        int readings = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        WaitStrategy waitStrategy = args.length > 1 ? WaitStrategy.valueOf(args[1]) : WaitStrategy.YIELD;
+
+        // Warm-up
+        for (int observers : OBSERVER_COUNTS) {
+            runStation(readings / 10, observers);
+            runRingBuffer(readings / 10, observers, waitStrategy);
+        }
+
+        System.out.println("Observers | WeatherStation readings/s | WeatherRingBuffer (" + waitStrategy + ") readings/s");
+        for (int observers : OBSERVER_COUNTS) {
+            long stationNanos = runStation(readings, observers);
+            long ringNanos = runRingBuffer(readings, observers, waitStrategy);
+            System.out.printf("%9d | %25.0f | %25.0f%n",
+                    observers, readings * 1e9 / stationNanos, readings * 1e9 / ringNanos);
+        }
+    }
+
+    private static long runStation(int readings, int observerCount) {
+        WeatherStation station = new WeatherStation();
+        CountingObserver[] observers = new CountingObserver[observerCount];
+        for (int i = 0; i < observerCount; i++) {
+            observers[i] = new CountingObserver();
+            station.addObserver(observers[i]);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < readings; i++) {
+            station.setWeatherConditions(i, 50f);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long runRingBuffer(int readings, int observerCount, WaitStrategy waitStrategy) {
+        WeatherRingBuffer ringBuffer = new WeatherRingBuffer(1 << 16, waitStrategy);
+        CountingObserver[] observers = new CountingObserver[observerCount];
+        for (int i = 0; i < observerCount; i++) {
+            observers[i] = new CountingObserver();
+            ringBuffer.addObserver(observers[i]);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < readings; i++) {
+            ringBuffer.publish(i, 50f);
+        }
+        for (CountingObserver observer : observers) {
+            while (observer.count.get() < readings) {
+                Thread.onSpinWait();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        for (CountingObserver observer : observers) {
+            ringBuffer.removeObserver(observer);
+        }
+        return elapsed;
+    }
+
+    private static final class CountingObserver implements WeatherObserver {
+        private final AtomicLong count = new AtomicLong();
+        private float sum;
+
+        @Override
+        public void update(float temperature, float humidity) {
+            sum += temperature;
+            count.lazySet(count.get() + 1);
+        }
+    }
+}
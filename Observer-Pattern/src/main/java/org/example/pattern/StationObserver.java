@@ -0,0 +1,9 @@
+package org.example.pattern;
+
+/**
+ * Observer Interface for WeatherHub region and fleet-wide subscriptions
+ * Like WeatherObserver, but also told which station the reading came from
+ */
+public interface StationObserver {
+    void update(int stationId, float temperature, float humidity);
+}
@@ -0,0 +1,14 @@
+package org.example.pattern;
+
+/**
+ * Wait Strategy
+ * How WeatherRingBuffer consumers (and a producer facing a full ring) wait for progress
+ */
+public enum WaitStrategy {
+    /** Spin on the CPU: lowest latency, burns a core per waiting thread */
+    BUSY_SPIN,
+    /** Spin but yield the CPU between checks: low latency, friendlier to other threads */
+    YIELD,
+    /** Park until signalled: highest latency, no CPU used while idle */
+    BLOCKING
+}
@@ -0,0 +1,72 @@
+package org.example.pattern;
+
+/**
+ * Subscription predicate evaluated by the station before an observer is updated.
+ * Immutable; each {@code with...} method returns a new filter.
+ *
+ * A reading is delivered only if it passes every configured condition:
+ * <ul>
+ *   <li>threshold - temperature/humidity lies outside the configured normal range</li>
+ *   <li>delta - temperature or humidity moved at least the minimum since the last delivered reading</li>
+ *   <li>rate limit - at least the minimum interval passed since the last delivered reading</li>
+ * </ul>
+ */
+public final class WeatherFilter {
+    private static final WeatherFilter NONE = new WeatherFilter(
+            Float.NaN, Float.NaN, Float.NaN, Float.NaN, 0f, 0f, 0L);
+
+    final float normalTemperatureLow;
+    final float normalTemperatureHigh;
+    final float normalHumidityLow;
+    final float normalHumidityHigh;
+    final float minTemperatureDelta;
+    final float minHumidityDelta;
+    final long minIntervalNanos;
+
+    private WeatherFilter(float normalTemperatureLow, float normalTemperatureHigh,
+                          float normalHumidityLow, float normalHumidityHigh,
+                          float minTemperatureDelta, float minHumidityDelta, long minIntervalNanos) {
+        this.normalTemperatureLow = normalTemperatureLow;
+        this.normalTemperatureHigh = normalTemperatureHigh;
+        this.normalHumidityLow = normalHumidityLow;
+        this.normalHumidityHigh = normalHumidityHigh;
+        this.minTemperatureDelta = minTemperatureDelta;
+        this.minHumidityDelta = minHumidityDelta;
+        this.minIntervalNanos = minIntervalNanos;
+    }
+
+    /** A filter that delivers every reading */
+    public static WeatherFilter none() {
+        return NONE;
+    }
+
+    /** Only deliver readings whose temperature is below {@code low} or above {@code high} */
+    public WeatherFilter withTemperatureOutside(float low, float high) {
+        return new WeatherFilter(low, high, normalHumidityLow, normalHumidityHigh,
+                minTemperatureDelta, minHumidityDelta, minIntervalNanos);
+    }
+
+    /** Only deliver readings whose humidity is below {@code low} or above {@code high} */
+    public WeatherFilter withHumidityOutside(float low, float high) {
+        return new WeatherFilter(normalTemperatureLow, normalTemperatureHigh, low, high,
+                minTemperatureDelta, minHumidityDelta, minIntervalNanos);
+    }
+
+    /**
+     * Only deliver readings where temperature moved at least {@code temperatureDelta} or humidity
+     * moved at least {@code humidityDelta} since the last delivered reading. Zero disables a check.
+     */
+    public WeatherFilter withMinDelta(float temperatureDelta, float humidityDelta) {
+        return new WeatherFilter(normalTemperatureLow, normalTemperatureHigh, normalHumidityLow, normalHumidityHigh,
+                temperatureDelta, humidityDelta, minIntervalNanos);
+    }
+
+    /** Deliver at most {@code maxUpdatesPerSecond} readings per second */
+    public WeatherFilter withMaxRate(double maxUpdatesPerSecond) {
+        if (maxUpdatesPerSecond <= 0) {
+            throw new IllegalArgumentException("maxUpdatesPerSecond must be positive: " + maxUpdatesPerSecond);
+        }
+        return new WeatherFilter(normalTemperatureLow, normalTemperatureHigh, normalHumidityLow, normalHumidityHigh,
+                minTemperatureDelta, minHumidityDelta, (long) (1_000_000_000L / maxUpdatesPerSecond));
+    }
+}
@@ -0,0 +1,244 @@
+package org.example.pattern;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+/**
+ * Append-only, memory-mapped history of weather readings.
+ *
+ * Every reading is stored as a fixed-width 32-byte record
+ * (sequence, timestamp, station id, temperature, humidity, marker) in a memory-mapped
+ * segment file. When a segment is full a new one is started, so the log rolls by size.
+ * Existing segments are picked up again when the store is reopened after a restart.
+ *
+ * Appends are serialised; replay only reads records that were fully committed before
+ * it started, and never takes the append lock, so it does not block live publishing.
+ */
+public class WeatherHistoryStore implements AutoCloseable {
+    static final int RECORD_SIZE = 32;
+    /** Segments are mapped as one buffer and addressed with int offsets, so stay below 2 GB */
+    static final int MAX_RECORDS_PER_SEGMENT = Integer.MAX_VALUE / RECORD_SIZE;
+    private static final int MARKER = 0x57485354;
+    private static final String SEGMENT_PREFIX = "weather-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final int recordsPerSegment;
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+
+    // Writer state, guarded by this
+    private Segment current;
+    private long lastTimestamp;
+
+    /** Sequence the next appended record will get; everything below it is readable */
+    private volatile long committedSequence;
+
+    public WeatherHistoryStore(Path directory, int recordsPerSegment) throws IOException {
+        if (recordsPerSegment <= 0 || recordsPerSegment > MAX_RECORDS_PER_SEGMENT) {
+            throw new IllegalArgumentException("recordsPerSegment must be between 1 and " + MAX_RECORDS_PER_SEGMENT
+                    + ": " + recordsPerSegment);
+        }
+        this.directory = Files.createDirectories(directory);
+        this.recordsPerSegment = recordsPerSegment;
+        recover();
+    }
+
+    private void recover() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> listing = Files.list(directory)) {
+            listing.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).sorted().forEach(files::add);
+        }
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long firstSequence = Long.parseLong(
+                    name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            Segment segment = Segment.open(file, firstSequence, (int) (Files.size(file) / RECORD_SIZE));
+            segments.add(segment);
+            current = segment;
+        }
+        if (current != null) {
+            committedSequence = current.firstSequence + current.count;
+            if (current.count > 0) {
+                lastTimestamp = current.timestampAt(current.count - 1);
+            }
+        }
+    }
+
+    /**
+     * Appends a reading stamped with the current time.
+     *
+     * @return the sequence number of the record
+     */
+    public synchronized long append(int stationId, float temperature, float humidity) {
+        if (current == null || current.count == current.capacity) {
+            roll();
+        }
+        // Keep timestamps non-decreasing so they can be binary searched
+        long timestamp = Math.max(lastTimestamp, System.currentTimeMillis());
+        lastTimestamp = timestamp;
+        long sequence = committedSequence;
+        current.write(sequence, timestamp, stationId, temperature, humidity);
+        committedSequence = sequence + 1;
+        return sequence;
+    }
+
+    private void roll() {
+        long firstSequence = committedSequence;
+        Path file = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        try {
+            current = Segment.create(file, firstSequence, recordsPerSegment);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create history segment " + file, e);
+        }
+        segments.add(current);
+    }
+
+    /**
+     * Replays every committed record with a sequence of at least {@code fromSequence}.
+     *
+     * @return the sequence after the last replayed record, to continue from later
+     */
+    public long replayFromSequence(long fromSequence, StationObserver observer) {
+        long endSequence = committedSequence;
+        long sequence = Math.max(fromSequence, 0);
+        for (Segment segment : segments) {
+            long segmentEnd = segment.firstSequence + segment.capacity;
+            if (segmentEnd <= sequence) {
+                continue;
+            }
+            if (sequence >= endSequence) {
+                break;
+            }
+            int from = (int) (sequence - segment.firstSequence);
+            int to = (int) (Math.min(segmentEnd, endSequence) - segment.firstSequence);
+            for (int i = from; i < to; i++) {
+                segment.replay(i, observer);
+            }
+            sequence = segment.firstSequence + to;
+        }
+        return sequence;
+    }
+
+    /**
+     * Replays every committed record stamped at or after {@code fromEpochMillis}.
+     *
+     * @return the sequence after the last replayed record, to continue from later
+     */
+    public long replayFromTimestamp(long fromEpochMillis, StationObserver observer) {
+        return replayFromSequence(sequenceAtOrAfter(fromEpochMillis), observer);
+    }
+
+    /**
+     * Returns the sequence of the first record stamped at or after the given time,
+     * or the next sequence to be written if there is none.
+     */
+    public long sequenceAtOrAfter(long epochMillis) {
+        long endSequence = committedSequence;
+        for (Segment segment : segments) {
+            int committed = (int) Math.min(segment.capacity, endSequence - segment.firstSequence);
+            if (committed <= 0) {
+                break;
+            }
+            if (segment.timestampAt(committed - 1) < epochMillis) {
+                continue;
+            }
+            int low = 0;
+            int high = committed - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (segment.timestampAt(mid) < epochMillis) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return segment.firstSequence + low;
+        }
+        return endSequence;
+    }
+
+    /** Sequence the next record will get; also the number of records ever written */
+    public long getCommittedSequence() {
+        return committedSequence;
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Flushes all segments to disk.
+     */
+    @Override
+    public synchronized void close() {
+        for (Segment segment : segments) {
+            segment.buffer.force();
+        }
+    }
+
+    /** One memory-mapped segment file */
+    private static final class Segment {
+        private final long firstSequence;
+        private final int capacity;
+        private final MappedByteBuffer buffer;
+        private int count;
+
+        private Segment(long firstSequence, int capacity, MappedByteBuffer buffer) {
+            this.firstSequence = firstSequence;
+            this.capacity = capacity;
+            this.buffer = buffer;
+        }
+
+        static Segment create(Path file, long firstSequence, int capacity) throws IOException {
+            return new Segment(firstSequence, capacity, map(file, capacity));
+        }
+
+        static Segment open(Path file, long firstSequence, int capacity) throws IOException {
+            Segment segment = new Segment(firstSequence, capacity, map(file, capacity));
+            while (segment.count < capacity
+                    && segment.buffer.getInt(segment.count * RECORD_SIZE + 28) == MARKER) {
+                segment.count++;
+            }
+            return segment;
+        }
+
+        private static MappedByteBuffer map(Path file, int capacity) throws IOException {
+            try (FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                return channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) capacity * RECORD_SIZE);
+            }
+        }
+
+        void write(long sequence, long timestamp, int stationId, float temperature, float humidity) {
+            int offset = count * RECORD_SIZE;
+            buffer.putLong(offset, sequence);
+            buffer.putLong(offset + 8, timestamp);
+            buffer.putInt(offset + 16, stationId);
+            buffer.putFloat(offset + 20, temperature);
+            buffer.putFloat(offset + 24, humidity);
+            buffer.putInt(offset + 28, MARKER);
+            count++;
+        }
+
+        long timestampAt(int index) {
+            return buffer.getLong(index * RECORD_SIZE + 8);
+        }
+
+        void replay(int index, StationObserver observer) {
+            int offset = index * RECORD_SIZE;
+            observer.update(buffer.getInt(offset + 16), buffer.getFloat(offset + 20), buffer.getFloat(offset + 24));
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package org.example.pattern;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Weather Hub
+ * Manages a large number of WeatherStations, one per sensor id, split into shards.
+ *
+ * Each shard owns an open-addressing int-keyed station table, a bounded primitive ingest
+ * queue and a worker thread, so readings for different shards are dispatched in parallel.
+ * Every station is still a normal WeatherSubject (see {@link #station(int)}), and observers
+ * can additionally subscribe to a range of station ids or to all stations.
+ */
+public class WeatherHub implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(WeatherHub.class.getName());
+    private static final Subscription[] NO_SUBSCRIPTIONS = new Subscription[0];
+
+    private final Shard[] shards;
+    private final AtomicReference<Subscription[]> subscriptions = new AtomicReference<>(NO_SUBSCRIPTIONS);
+    private final AtomicLong observerFailures = new AtomicLong();
+
+    /**
+     * Creates a hub with one shard per available processor.
+     */
+    public WeatherHub() {
+        this(Runtime.getRuntime().availableProcessors(), 4096);
+    }
+
+    public WeatherHub(int shardCount, int queueCapacityPerShard) {
+        if (shardCount <= 0 || queueCapacityPerShard <= 0) {
+            throw new IllegalArgumentException("shardCount and queueCapacityPerShard must be positive");
+        }
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i, queueCapacityPerShard);
+        }
+    }
+
+    /**
+     * Returns the station with the given id, creating it if needed.
+     */
+    public WeatherStation station(int stationId) {
+        Shard shard = shardFor(stationId);
+        shard.lock.lock();
+        try {
+            return shard.stations.getOrCreate(stationId);
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    /**
+     * Queues a reading for the station. Blocks if the station's shard is a full queue behind.
+     */
+    public void publish(int stationId, float temperature, float humidity) {
+        shardFor(stationId).enqueue(stationId, temperature, humidity);
+    }
+
+    /**
+     * Subscribes to a single station. Equivalent to {@code station(stationId).addObserver(observer)}.
+     */
+    public void subscribe(int stationId, WeatherObserver observer) {
+        station(stationId).addObserver(observer);
+    }
+
+    public void unsubscribe(int stationId, WeatherObserver observer) {
+        station(stationId).removeObserver(observer);
+    }
+
+    /**
+     * Subscribes to every station whose id lies in [fromStationId, toStationId].
+     * The observer is called from several shard threads concurrently and must be thread-safe.
+     */
+    public void subscribeRegion(int fromStationId, int toStationId, StationObserver observer) {
+        if (fromStationId > toStationId) {
+            throw new IllegalArgumentException("Empty region: " + fromStationId + ".." + toStationId);
+        }
+        Subscription subscription = new Subscription(fromStationId, toStationId, observer);
+        Subscription[] current;
+        Subscription[] next;
+        do {
+            current = subscriptions.get();
+            next = new Subscription[current.length + 1];
+            System.arraycopy(current, 0, next, 0, current.length);
+            next[current.length] = subscription;
+        } while (!subscriptions.compareAndSet(current, next));
+    }
+
+    /**
+     * Subscribes to every station, including ones created later.
+     * The observer is called from several shard threads concurrently and must be thread-safe.
+     */
+    public void subscribeAll(StationObserver observer) {
+        subscribeRegion(Integer.MIN_VALUE, Integer.MAX_VALUE, observer);
+    }
+
+    /**
+     * Removes every region and fleet-wide subscription of the observer.
+     */
+    public void unsubscribe(StationObserver observer) {
+        Subscription[] current;
+        Subscription[] next;
+        do {
+            current = subscriptions.get();
+            int kept = 0;
+            next = new Subscription[current.length];
+            for (Subscription subscription : current) {
+                if (!subscription.observer.equals(observer)) {
+                    next[kept++] = subscription;
+                }
+            }
+            if (kept == current.length) {
+                return;
+            }
+            Subscription[] trimmed = new Subscription[kept];
+            System.arraycopy(next, 0, trimmed, 0, kept);
+            next = trimmed;
+        } while (!subscriptions.compareAndSet(current, next));
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    public int getStationCount() {
+        int count = 0;
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                count += shard.stations.size;
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        return count;
+    }
+
+    /** Readings waiting in the ingest queues of all shards */
+    public int getQueuedReadings() {
+        int count = 0;
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                count += shard.size;
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Stops the shard workers after the readings already queued have been dispatched.
+     */
+    @Override
+    public void close() {
+        for (Shard shard : shards) {
+            shard.close();
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private Shard shardFor(int stationId) {
+        // Use the high bits of the hash, the station tables index by the low bits
+        return shards[(int) (((mix(stationId) & 0xFFFFFFFFL) * shards.length) >>> 32)];
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Runs on a shard worker. A failing observer is logged and skipped: an exception escaping
+     * here would kill the worker and leave the shard's publishers blocked on a full queue.
+     */
+    private void dispatch(WeatherStation station, int stationId, float temperature, float humidity) {
+        try {
+            station.setWeatherConditions(temperature, humidity);
+        } catch (RuntimeException e) {
+            observerFailed("An observer of station " + stationId, e);
+        }
+        for (Subscription subscription : subscriptions.get()) {
+            if (stationId >= subscription.fromStationId && stationId <= subscription.toStationId) {
+                try {
+                    subscription.observer.update(stationId, temperature, humidity);
+                } catch (RuntimeException e) {
+                    observerFailed("Observer " + subscription.observer, e);
+                }
+            }
+        }
+    }
+
+    private void observerFailed(String observer, RuntimeException e) {
+        observerFailures.incrementAndGet();
+        LOGGER.log(Level.WARNING, observer + " failed to process a reading", e);
+    }
+
+    /** Observer calls that threw; the reading was still delivered to the other observers */
+    public long getObserverFailures() {
+        return observerFailures.get();
+    }
+
+    private static final class Subscription {
+        private final int fromStationId;
+        private final int toStationId;
+        private final StationObserver observer;
+
+        Subscription(int fromStationId, int toStationId, StationObserver observer) {
+            this.fromStationId = fromStationId;
+            this.toStationId = toStationId;
+            this.observer = observer;
+        }
+    }
+
+    /**
+     * One shard: station table, bounded ingest queue and worker thread.
+     * The queue is drained in batches, and station lookups for a batch are done under the
+     * shard lock; dispatching to observers happens outside of it.
+     */
+    private final class Shard {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notEmpty = lock.newCondition();
+        private final Condition notFull = lock.newCondition();
+
+        private final StationTable stations = new StationTable();
+
+        private final int capacity;
+        private final int[] stationIds;
+        private final float[] temperatures;
+        private final float[] humidities;
+        private int head;
+        private int size;
+        private boolean closed;
+
+        private final WeatherStation[] batchStations;
+        private final int[] batchStationIds;
+        private final float[] batchTemperatures;
+        private final float[] batchHumidities;
+
+        private final Thread worker;
+
+        Shard(int index, int capacity) {
+            this.capacity = capacity;
+            stationIds = new int[capacity];
+            temperatures = new float[capacity];
+            humidities = new float[capacity];
+            batchStations = new WeatherStation[capacity];
+            batchStationIds = new int[capacity];
+            batchTemperatures = new float[capacity];
+            batchHumidities = new float[capacity];
+
+            worker = new Thread(this::drainLoop, "weather-hub-shard-" + index);
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        void enqueue(int stationId, float temperature, float humidity) {
+            lock.lock();
+            try {
+                while (size == capacity && !closed) {
+                    notFull.awaitUninterruptibly();
+                }
+                if (closed) {
+                    throw new IllegalStateException("WeatherHub is closed");
+                }
+                int tail = (head + size) % capacity;
+                stationIds[tail] = stationId;
+                temperatures[tail] = temperature;
+                humidities[tail] = humidity;
+                if (size++ == 0) {
+                    notEmpty.signal();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void drainLoop() {
+            while (true) {
+                int count;
+                lock.lock();
+                try {
+                    while (size == 0 && !closed) {
+                        notEmpty.awaitUninterruptibly();
+                    }
+                    if (size == 0) {
+                        return;
+                    }
+                    count = size;
+                    for (int i = 0; i < count; i++) {
+                        int index = (head + i) % capacity;
+                        batchStationIds[i] = stationIds[index];
+                        batchTemperatures[i] = temperatures[index];
+                        batchHumidities[i] = humidities[index];
+                        batchStations[i] = stations.getOrCreate(stationIds[index]);
+                    }
+                    head = (head + count) % capacity;
+                    size = 0;
+                    notFull.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+
+                for (int i = 0; i < count; i++) {
+                    dispatch(batchStations[i], batchStationIds[i], batchTemperatures[i], batchHumidities[i]);
+                    batchStations[i] = null;
+                }
+            }
+        }
+
+        void close() {
+            lock.lock();
+            try {
+                closed = true;
+                notEmpty.signalAll();
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Open-addressing (linear probing) map from int station id to WeatherStation.
+     * A null value marks a free slot, so every int is a valid key. Not thread-safe.
+     */
+    private static final class StationTable {
+        private int[] keys = new int[16];
+        private WeatherStation[] values = new WeatherStation[16];
+        private int size;
+
+        WeatherStation getOrCreate(int key) {
+            int mask = keys.length - 1;
+            int index = mix(key) & mask;
+            while (values[index] != null) {
+                if (keys[index] == key) {
+                    return values[index];
+                }
+                index = (index + 1) & mask;
+            }
+            WeatherStation station = new WeatherStation();
+            keys[index] = key;
+            values[index] = station;
+            if (++size * 4 > keys.length * 3) {
+                resize();
+            }
+            return station;
+        }
+
+        private void resize() {
+            int[] oldKeys = keys;
+            WeatherStation[] oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = new WeatherStation[oldValues.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) {
+                    int index = mix(oldKeys[i]) & mask;
+                    while (values[index] != null) {
+                        index = (index + 1) & mask;
+                    }
+                    keys[index] = oldKeys[i];
+                    values[index] = oldValues[i];
+                }
+            }
+        }
+    }
+}
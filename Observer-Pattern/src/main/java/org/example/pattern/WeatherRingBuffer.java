@@ -0,0 +1,268 @@
+package org.example.pattern;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Ring Buffer Subject (Disruptor-style)
+ * An allocation-free alternative to WeatherStation for very high publish rates.
+ *
+ * Readings are written into pre-allocated parallel float arrays and identified by a
+ * monotonically increasing sequence number. Every observer gets its own consumer thread
+ * and cursor, reads as many published readings as are available in one go, and the
+ * producer never overwrites a slot that the slowest observer has not read yet.
+ *
+ * publish() is single-producer: it must not be called from more than one thread at a time.
+ * A reading the observer throws on is logged, counted as failed and skipped, so a faulty
+ * observer cannot stop its cursor and stall the producer.
+ */
+public class WeatherRingBuffer implements WeatherSubject {
+    private static final Consumer[] NO_CONSUMERS = new Consumer[0];
+    private static final AtomicInteger THREAD_IDS = new AtomicInteger();
+    private static final Logger LOGGER = Logger.getLogger(WeatherRingBuffer.class.getName());
+
+    private final int mask;
+    private final int capacity;
+    private final float[] temperatures;
+    private final float[] humidities;
+    private final WaitStrategy waitStrategy;
+
+    /** Sequence of the last published reading */
+    private final AtomicLong cursor = new AtomicLong(-1);
+    private final AtomicReference<Consumer[]> consumers = new AtomicReference<>(NO_CONSUMERS);
+
+    // Producer-only state
+    private long nextSequence;
+    private long cachedGatingSequence = -1;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition published = lock.newCondition();
+    private final AtomicInteger blockedConsumers = new AtomicInteger();
+
+    private volatile float lastTemperature;
+    private volatile float lastHumidity;
+
+    public WeatherRingBuffer(int capacity, WaitStrategy waitStrategy) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.temperatures = new float[capacity];
+        this.humidities = new float[capacity];
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * Publishes a reading to every observer, waiting (according to the wait strategy)
+     * if the slowest observer is a full ring behind.
+     */
+    public void publish(float temperature, float humidity) {
+        long sequence = nextSequence++;
+        long wrapPoint = sequence - capacity;
+        if (wrapPoint > cachedGatingSequence) {
+            long gatingSequence;
+            while (wrapPoint > (gatingSequence = minimumConsumerSequence(sequence - 1))) {
+                idle();
+            }
+            cachedGatingSequence = gatingSequence;
+        }
+
+        int index = (int) sequence & mask;
+        temperatures[index] = temperature;
+        humidities[index] = humidity;
+        lastTemperature = temperature;
+        lastHumidity = humidity;
+        cursor.set(sequence);
+
+        if (waitStrategy == WaitStrategy.BLOCKING && blockedConsumers.get() > 0) {
+            lock.lock();
+            try {
+                published.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private long minimumConsumerSequence(long defaultSequence) {
+        long minimum = defaultSequence;
+        for (Consumer consumer : consumers.get()) {
+            minimum = Math.min(minimum, consumer.sequence.get());
+        }
+        return minimum;
+    }
+
+    private void idle() {
+        switch (waitStrategy) {
+            case BUSY_SPIN:
+                Thread.onSpinWait();
+                break;
+            case YIELD:
+                Thread.yield();
+                break;
+            case BLOCKING:
+                LockSupport.parkNanos(1_000);
+                break;
+        }
+    }
+
+    /**
+     * Starts a consumer thread for the observer. It receives readings published from now on.
+     */
+    @Override
+    public void addObserver(WeatherObserver observer) {
+        Consumer consumer = new Consumer(observer);
+        Consumer[] current;
+        Consumer[] next;
+        do {
+            current = consumers.get();
+            consumer.sequence.set(cursor.get());
+            next = new Consumer[current.length + 1];
+            System.arraycopy(current, 0, next, 0, current.length);
+            next[current.length] = consumer;
+        } while (!consumers.compareAndSet(current, next));
+        // Readings published while registering are skipped, so the producer's cached gating
+        // sequence (taken from the existing consumers) can never lap the new one
+        consumer.sequence.set(cursor.get());
+        consumer.thread.start();
+    }
+
+    @Override
+    public void removeObserver(WeatherObserver observer) {
+        while (true) {
+            Consumer[] current = consumers.get();
+            int index = -1;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i].observer.equals(observer)) {
+                    index = i;
+                    break;
+                }
+            }
+            if (index < 0) {
+                return;
+            }
+            Consumer[] next = new Consumer[current.length - 1];
+            System.arraycopy(current, 0, next, 0, index);
+            System.arraycopy(current, index + 1, next, index, next.length - index);
+            if (consumers.compareAndSet(current, next)) {
+                current[index].stop();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Re-publishes the most recent reading.
+     */
+    @Override
+    public void notifyObservers() {
+        publish(lastTemperature, lastHumidity);
+    }
+
+    /** Sequence of the last published reading, or -1 if nothing was published yet */
+    public long getCursor() {
+        return cursor.get();
+    }
+
+    /** Sequence of the last reading consumed by the observer, or -1 if it is not registered */
+    public long getObserverSequence(WeatherObserver observer) {
+        for (Consumer consumer : consumers.get()) {
+            if (consumer.observer.equals(observer)) {
+                return consumer.sequence.get();
+            }
+        }
+        return -1;
+    }
+
+    /** Readings the observer threw on, or -1 if it is not registered */
+    public long getFailedReadings(WeatherObserver observer) {
+        for (Consumer consumer : consumers.get()) {
+            if (consumer.observer.equals(observer)) {
+                return consumer.failedReadings.get();
+            }
+        }
+        return -1;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private final class Consumer implements Runnable {
+        private final WeatherObserver observer;
+        private final AtomicLong sequence = new AtomicLong(-1);
+        private final AtomicLong failedReadings = new AtomicLong();
+        private final Thread thread;
+        private volatile boolean running = true;
+
+        Consumer(WeatherObserver observer) {
+            this.observer = observer;
+            this.thread = new Thread(this, "weather-ring-consumer-" + THREAD_IDS.incrementAndGet());
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            long next = sequence.get() + 1;
+            while (running) {
+                long available = waitFor(next);
+                if (available < next) {
+                    continue;
+                }
+                for (long s = next; s <= available; s++) {
+                    int index = (int) s & mask;
+                    try {
+                        observer.update(temperatures[index], humidities[index]);
+                    } catch (RuntimeException e) {
+                        failedReadings.incrementAndGet();
+                        LOGGER.log(Level.WARNING, "Observer " + observer + " failed to process a reading", e);
+                    }
+                }
+                sequence.set(available);
+                next = available + 1;
+            }
+        }
+
+        private long waitFor(long sequenceNeeded) {
+            long available;
+            if (waitStrategy == WaitStrategy.BLOCKING) {
+                if ((available = cursor.get()) < sequenceNeeded) {
+                    lock.lock();
+                    try {
+                        blockedConsumers.incrementAndGet();
+                        while (running && (available = cursor.get()) < sequenceNeeded) {
+                            published.awaitUninterruptibly();
+                        }
+                    } finally {
+                        blockedConsumers.decrementAndGet();
+                        lock.unlock();
+                    }
+                }
+                return available;
+            }
+            while (running && (available = cursor.get()) < sequenceNeeded) {
+                idle();
+            }
+            return cursor.get();
+        }
+
+        void stop() {
+            running = false;
+            if (waitStrategy == WaitStrategy.BLOCKING) {
+                lock.lock();
+                try {
+                    published.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+}
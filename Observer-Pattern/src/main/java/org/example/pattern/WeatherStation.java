@@ -1,25 +1,44 @@
 package org.example.pattern;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * Concrete Subject (Weather Station)
- * Maintains list of observers and notifies them of state changes
+ * Maintains list of observers and notifies them of state changes.
+ * Observers may be added or removed from any thread, including while a notification is running.
  */
 public class WeatherStation implements WeatherSubject {
-    private final List<WeatherObserver> observers;
-    private float temperature;
-    private float humidity;
+    private final ObserverRegistry observers;
+    private final int stationId;
+    private final WeatherHistoryStore history;
+    private volatile float temperature;
+    private volatile float humidity;
 
     public WeatherStation() {
-        observers = new ArrayList<>();
+        this(0, null);
+    }
+
+    /**
+     * Creates a station that records every reading in the given history store,
+     * so observers can be registered with a replay of past readings.
+     */
+    public WeatherStation(int stationId, WeatherHistoryStore history) {
+        this.observers = new ObserverRegistry();
+        this.stationId = stationId;
+        this.history = history;
     }
 
     public void setWeatherConditions(float temperature, float humidity) {
         this.temperature = temperature;
         this.humidity = humidity;
-        notifyObservers();
+        if (history != null) {
+            long sequence = history.append(stationId, temperature, humidity);
+            dispatch(sequence, temperature, humidity);
+        } else {
+            dispatch(temperature, humidity);
+        }
     }
 
     @Override
@@ -27,15 +46,216 @@ public class WeatherStation implements WeatherSubject {
         observers.add(observer);
     }
 
+    /**
+     * Replays this station's recorded readings since {@code replayFromEpochMillis} to the
+     * observer on the calling thread, then switches it to live readings.
+     * Publishing is not blocked while replaying: live readings published meanwhile are held
+     * back and delivered after the replay, skipping those the replay already covered, so the
+     * observer sees every reading once, in sequence order, and never on two threads at once.
+     *
+     * @throws IllegalStateException if the station was created without a history store
+     */
+    public void addObserver(WeatherObserver observer, long replayFromEpochMillis) {
+        if (history == null) {
+            throw new IllegalStateException("Station " + stationId + " has no history store");
+        }
+        StationObserver replay = (id, replayedTemperature, replayedHumidity) -> {
+            if (id == stationId) {
+                observer.update(replayedTemperature, replayedHumidity);
+            }
+        };
+        // Registered first, so that every reading the replay might miss reaches the gate
+        ReplayGate gate = new ReplayGate(observer);
+        addObserver(gate);
+        long nextSequence = history.replayFromTimestamp(replayFromEpochMillis, replay);
+        gate.open(history.replayFromSequence(nextSequence, replay));
+    }
+
+    /**
+     * Registers the observer so that it is only updated for readings passing the filter.
+     */
+    public FilteredObserver addObserver(WeatherObserver observer, WeatherFilter filter) {
+        FilteredObserver filteredObserver = new FilteredObserver(observer, filter);
+        addObserver(filteredObserver);
+        return filteredObserver;
+    }
+
+    /**
+     * Registers the observer behind its own bounded queue and drain thread,
+     * so it is updated asynchronously instead of inline in notifyObservers().
+     */
+    public AsyncObserver addAsyncObserver(WeatherObserver observer, int capacity, OverflowPolicy overflowPolicy) {
+        AsyncObserver asyncObserver = new AsyncObserver(observer, capacity, overflowPolicy);
+        addObserver(asyncObserver);
+        return asyncObserver;
+    }
+
+    /**
+     * Registers the observer in conflating mode: the station only overwrites a single
+     * latest-value slot, and the observer picks up the freshest reading via poll().
+     */
+    public ConflatingObserver addConflatingObserver(WeatherObserver observer) {
+        ConflatingObserver conflatingObserver = new ConflatingObserver(observer);
+        addObserver(conflatingObserver);
+        return conflatingObserver;
+    }
+
+    /**
+     * Registers the observer inside its own bulkhead: it is updated on its own bounded
+     * executor, with retries and a circuit breaker, so exceptions thrown by it or a hanging
+     * update() cannot affect the other observers or the publishing thread.
+     */
+    public BulkheadObserver addIsolatedObserver(WeatherObserver observer, BulkheadPolicy policy) {
+        BulkheadObserver bulkheadObserver = new BulkheadObserver(observer, policy);
+        addObserver(bulkheadObserver);
+        return bulkheadObserver;
+    }
+
+    /**
+     * Registers the observer with latency instrumentation. Invocations slower than
+     * {@code latencyBudgetNanos} are counted, and after {@code quarantineAfterViolations}
+     * consecutive violations (0 = never) the observer is moved to an asynchronous lane.
+     */
+    public InstrumentedObserver addInstrumentedObserver(WeatherObserver observer, long latencyBudgetNanos,
+                                                        int quarantineAfterViolations) {
+        InstrumentedObserver instrumentedObserver =
+                new InstrumentedObserver(observer, latencyBudgetNanos, quarantineAfterViolations);
+        addObserver(instrumentedObserver);
+        return instrumentedObserver;
+    }
+
+    /**
+     * Returns a snapshot of the dispatch statistics of every instrumented observer.
+     */
+    public List<DispatchStats> getDispatchStats() {
+        List<DispatchStats> stats = new ArrayList<>();
+        for (WeatherObserver observer : observers.snapshot()) {
+            if (observer instanceof InstrumentedObserver) {
+                stats.add(((InstrumentedObserver) observer).snapshot());
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Removes the observer, or any wrapper registered on its behalf (e.g. an AsyncObserver or ConflatingObserver).
+     */
     @Override
     public void removeObserver(WeatherObserver observer) {
-        observers.remove(observer);
+        WeatherObserver removed = observers.remove(registered -> wraps(registered, observer));
+        if (removed instanceof AsyncObserver) {
+            ((AsyncObserver) removed).close();
+        } else if (removed instanceof InstrumentedObserver) {
+            ((InstrumentedObserver) removed).close();
+        } else if (removed instanceof BulkheadObserver) {
+            ((BulkheadObserver) removed).close();
+        }
+    }
+
+    private static boolean wraps(WeatherObserver registered, WeatherObserver observer) {
+        WeatherObserver current = registered;
+        while (!current.equals(observer) && current instanceof DelegatingObserver) {
+            current = ((DelegatingObserver) current).delegate();
+        }
+        return current.equals(observer);
+    }
+
+    /** Observers currently registered, wrappers counted once */
+    public int getObserverCount() {
+        return observers.size();
     }
 
     @Override
     public void notifyObservers() {
-        for (WeatherObserver observer : observers) {
+        dispatch(temperature, humidity);
+    }
+
+    private void dispatch(float temperature, float humidity) {
+        for (WeatherObserver observer : observers.snapshot()) {
             observer.update(temperature, humidity);
         }
     }
+
+    /** Dispatches a recorded reading; observers still catching up get its sequence */
+    private void dispatch(long sequence, float temperature, float humidity) {
+        for (WeatherObserver observer : observers.snapshot()) {
+            if (observer instanceof ReplayGate) {
+                ((ReplayGate) observer).update(sequence, temperature, humidity);
+            } else {
+                observer.update(temperature, humidity);
+            }
+        }
+    }
+
+    /**
+     * Holds back live readings for an observer while its history is replayed.
+     * Once open, readings the replay already delivered (sequence below the replay's end)
+     * are dropped and the rest are passed through.
+     */
+    private static final class ReplayGate implements WeatherObserver, DelegatingObserver {
+        private final WeatherObserver delegate;
+        private volatile boolean replaying = true;
+        private long replayEnd;
+        private long[] sequences = new long[16];
+        private float[] temperatures = new float[16];
+        private float[] humidities = new float[16];
+        private int buffered;
+
+        ReplayGate(WeatherObserver delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void update(float temperature, float humidity) {
+            // Only called through notifyObservers(), which re-sends the latest reading
+            if (!replaying) {
+                delegate.update(temperature, humidity);
+            }
+        }
+
+        void update(long sequence, float temperature, float humidity) {
+            if (!replaying) {
+                if (sequence >= replayEnd) {
+                    delegate.update(temperature, humidity);
+                }
+                return;
+            }
+            synchronized (this) {
+                if (replaying) {
+                    if (buffered == sequences.length) {
+                        sequences = Arrays.copyOf(sequences, buffered * 2);
+                        temperatures = Arrays.copyOf(temperatures, buffered * 2);
+                        humidities = Arrays.copyOf(humidities, buffered * 2);
+                    }
+                    sequences[buffered] = sequence;
+                    temperatures[buffered] = temperature;
+                    humidities[buffered] = humidity;
+                    buffered++;
+                    return;
+                }
+            }
+            if (sequence >= replayEnd) {
+                delegate.update(temperature, humidity);
+            }
+        }
+
+        /** Delivers the held-back readings from {@code replayEnd} on and starts passing readings through */
+        synchronized void open(long replayEnd) {
+            this.replayEnd = replayEnd;
+            for (int i = 0; i < buffered; i++) {
+                if (sequences[i] >= replayEnd) {
+                    delegate.update(temperatures[i], humidities[i]);
+                }
+            }
+            sequences = null;
+            temperatures = null;
+            humidities = null;
+            replaying = false;
+        }
+
+        @Override
+        public WeatherObserver delegate() {
+            return delegate;
+        }
+    }
 }
@@ -0,0 +1,108 @@
+package org.example.pattern;
+
+/**
+ * Immutable summary of the readings in one aggregation window
+ */
+public final class WeatherSummary {
+    private final long windowStartNanos;
+    private final long windowEndNanos;
+    private final int count;
+    private final Stats temperature;
+    private final Stats humidity;
+
+    WeatherSummary(long windowStartNanos, long windowEndNanos, int count, Stats temperature, Stats humidity) {
+        this.windowStartNanos = windowStartNanos;
+        this.windowEndNanos = windowEndNanos;
+        this.count = count;
+        this.temperature = temperature;
+        this.humidity = humidity;
+    }
+
+    /** Timestamp of the oldest reading in the window */
+    public long getWindowStartNanos() {
+        return windowStartNanos;
+    }
+
+    /** Timestamp of the newest reading in the window */
+    public long getWindowEndNanos() {
+        return windowEndNanos;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public Stats getTemperature() {
+        return temperature;
+    }
+
+    public Stats getHumidity() {
+        return humidity;
+    }
+
+    @Override
+    public String toString() {
+        return "WeatherSummary{count=" + count + ", temperature=" + temperature + ", humidity=" + humidity + '}';
+    }
+
+    /**
+     * Statistics of one metric. Percentiles are approximate (bucket resolution of the sketch).
+     */
+    public static final class Stats {
+        private final float min;
+        private final float max;
+        private final double mean;
+        private final double variance;
+        private final float p50;
+        private final float p90;
+        private final float p99;
+
+        Stats(float min, float max, double mean, double variance, float p50, float p90, float p99) {
+            this.min = min;
+            this.max = max;
+            this.mean = mean;
+            this.variance = variance;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+        }
+
+        public float getMin() {
+            return min;
+        }
+
+        public float getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return mean;
+        }
+
+        public double getVariance() {
+            return variance;
+        }
+
+        public double getStandardDeviation() {
+            return Math.sqrt(variance);
+        }
+
+        public float getP50() {
+            return p50;
+        }
+
+        public float getP90() {
+            return p90;
+        }
+
+        public float getP99() {
+            return p99;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("{min=%.2f, max=%.2f, mean=%.2f, stddev=%.2f, p50=%.2f, p90=%.2f, p99=%.2f}",
+                    min, max, mean, getStandardDeviation(), p50, p90, p99);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package org.example.pattern;
+
+/**
+ * Observer Interface for windowed aggregates
+ * Receives one WeatherSummary per window instead of every reading
+ */
+public interface WeatherSummaryObserver {
+    void onSummary(WeatherSummary summary);
+}
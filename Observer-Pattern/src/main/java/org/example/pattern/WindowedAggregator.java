@@ -0,0 +1,221 @@
+package org.example.pattern;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongSupplier;
+
+/**
+ * Aggregating Observer
+ * Maintains rolling statistics (min, max, mean, variance, p50/p90/p99) over temperature and
+ * humidity and emits one WeatherSummary per window to its WeatherSummaryObservers,
+ * instead of forwarding every reading.
+ *
+ * Windows are either tumbling (non-overlapping) or sliding, and measured by reading count or
+ * by time. Time windows are closed when a reading arrives past the window boundary, or when
+ * {@link #flush()} is called.
+ *
+ * Usage:
+ *   WindowedAggregator hourly = WindowedAggregator.tumblingTime(TimeUnit.HOURS.toNanos(1));
+ *   hourly.addSummaryObserver(summary -> System.out.println(summary));
+ *   weatherStation.addObserver(hourly);
+ */
+public class WindowedAggregator implements WeatherObserver {
+    private static final float TEMPERATURE_LOW = -60f;
+    private static final float TEMPERATURE_HIGH = 60f;
+    private static final int TEMPERATURE_BUCKETS = 1200;
+    private static final float HUMIDITY_LOW = 0f;
+    private static final float HUMIDITY_HIGH = 100f;
+    private static final int HUMIDITY_BUCKETS = 1000;
+
+    private enum Mode { TUMBLING_COUNT, SLIDING_COUNT, TUMBLING_TIME, SLIDING_TIME }
+
+    private final Mode mode;
+    private final long size;
+    private final long slide;
+    private final LongSupplier clock;
+
+    private final MetricWindow temperatures;
+    private final MetricWindow humidities;
+    private long[] timestamps;
+    private long headSequence;
+    private long tailSequence;
+
+    private long readingsSinceEmit;
+    private long windowEndNanos;
+    private long nextEmitNanos;
+    private boolean started;
+
+    private final CopyOnWriteArrayList<WeatherSummaryObserver> summaryObservers = new CopyOnWriteArrayList<>();
+
+    private WindowedAggregator(Mode mode, long size, long slide, LongSupplier clock, int initialCapacity) {
+        if (size <= 0 || slide <= 0) {
+            throw new IllegalArgumentException("Window size and slide must be positive");
+        }
+        this.mode = mode;
+        this.size = size;
+        this.slide = slide;
+        this.clock = clock;
+        this.temperatures = new MetricWindow(initialCapacity, TEMPERATURE_LOW, TEMPERATURE_HIGH, TEMPERATURE_BUCKETS);
+        this.humidities = new MetricWindow(initialCapacity, HUMIDITY_LOW, HUMIDITY_HIGH, HUMIDITY_BUCKETS);
+        this.timestamps = new long[Integer.highestOneBit(Math.max(2, initialCapacity - 1)) << 1];
+    }
+
+    /** Emits a summary every {@code count} readings, then starts a fresh window */
+    public static WindowedAggregator tumblingCount(int count) {
+        return new WindowedAggregator(Mode.TUMBLING_COUNT, count, count, System::nanoTime, count);
+    }
+
+    /** Emits a summary of the last {@code count} readings every {@code slide} readings */
+    public static WindowedAggregator slidingCount(int count, int slide) {
+        return new WindowedAggregator(Mode.SLIDING_COUNT, count, slide, System::nanoTime, count + 1);
+    }
+
+    /** Emits a summary for each consecutive window of {@code windowNanos} */
+    public static WindowedAggregator tumblingTime(long windowNanos) {
+        return tumblingTime(windowNanos, System::nanoTime);
+    }
+
+    public static WindowedAggregator tumblingTime(long windowNanos, LongSupplier clock) {
+        return new WindowedAggregator(Mode.TUMBLING_TIME, windowNanos, windowNanos, clock, 64);
+    }
+
+    /** Emits a summary of the last {@code windowNanos} every {@code slideNanos} */
+    public static WindowedAggregator slidingTime(long windowNanos, long slideNanos) {
+        return slidingTime(windowNanos, slideNanos, System::nanoTime);
+    }
+
+    public static WindowedAggregator slidingTime(long windowNanos, long slideNanos, LongSupplier clock) {
+        return new WindowedAggregator(Mode.SLIDING_TIME, windowNanos, slideNanos, clock, 64);
+    }
+
+    public void addSummaryObserver(WeatherSummaryObserver observer) {
+        summaryObservers.add(observer);
+    }
+
+    public void removeSummaryObserver(WeatherSummaryObserver observer) {
+        summaryObservers.remove(observer);
+    }
+
+    @Override
+    public void update(float temperature, float humidity) {
+        WeatherSummary summary = null;
+        synchronized (this) {
+            long now = clock.getAsLong();
+            switch (mode) {
+                case TUMBLING_COUNT:
+                    add(now, temperature, humidity);
+                    if (count() == size) {
+                        summary = summarize();
+                        clear();
+                    }
+                    break;
+                case SLIDING_COUNT:
+                    add(now, temperature, humidity);
+                    if (count() > size) {
+                        removeOldest();
+                    }
+                    if (count() == size && ++readingsSinceEmit >= slide) {
+                        summary = summarize();
+                        readingsSinceEmit = 0;
+                    }
+                    break;
+                case TUMBLING_TIME:
+                    if (!started) {
+                        started = true;
+                        windowEndNanos = now + size;
+                    } else if (now - windowEndNanos >= 0) {
+                        summary = count() > 0 ? summarize() : null;
+                        clear();
+                        long elapsedWindows = (now - windowEndNanos) / size + 1;
+                        windowEndNanos += elapsedWindows * size;
+                    }
+                    add(now, temperature, humidity);
+                    break;
+                case SLIDING_TIME:
+                    add(now, temperature, humidity);
+                    while (count() > 0 && now - timestamps[(int) headSequence & (timestamps.length - 1)] >= size) {
+                        removeOldest();
+                    }
+                    if (!started) {
+                        started = true;
+                        nextEmitNanos = now + slide;
+                    } else if (now - nextEmitNanos >= 0) {
+                        summary = summarize();
+                        nextEmitNanos = now + slide;
+                    }
+                    break;
+            }
+        }
+        if (summary != null) {
+            emit(summary);
+        }
+    }
+
+    /**
+     * Emits a summary of whatever is in the current window right now.
+     * For tumbling windows this also closes the window.
+     */
+    public void flush() {
+        WeatherSummary summary;
+        synchronized (this) {
+            if (count() == 0) {
+                return;
+            }
+            summary = summarize();
+            if (mode == Mode.TUMBLING_COUNT || mode == Mode.TUMBLING_TIME) {
+                clear();
+            }
+        }
+        emit(summary);
+    }
+
+    private void emit(WeatherSummary summary) {
+        for (WeatherSummaryObserver observer : summaryObservers) {
+            observer.onSummary(summary);
+        }
+    }
+
+    private int count() {
+        return (int) (tailSequence - headSequence);
+    }
+
+    private void add(long now, float temperature, float humidity) {
+        if (count() == timestamps.length) {
+            growTimestamps();
+        }
+        timestamps[(int) tailSequence++ & (timestamps.length - 1)] = now;
+        temperatures.add(temperature);
+        humidities.add(humidity);
+    }
+
+    private void removeOldest() {
+        headSequence++;
+        temperatures.removeOldest();
+        humidities.removeOldest();
+    }
+
+    private void clear() {
+        headSequence = tailSequence;
+        temperatures.clear();
+        humidities.clear();
+    }
+
+    private WeatherSummary summarize() {
+        int mask = timestamps.length - 1;
+        return new WeatherSummary(
+                timestamps[(int) headSequence & mask],
+                timestamps[(int) (tailSequence - 1) & mask],
+                count(),
+                temperatures.snapshot(),
+                humidities.snapshot());
+    }
+
+    private void growTimestamps() {
+        long[] grown = new long[timestamps.length * 2];
+        int mask = timestamps.length - 1;
+        int grownMask = grown.length - 1;
+        for (long s = headSequence; s < tailSequence; s++) {
+            grown[(int) s & grownMask] = timestamps[(int) s & mask];
+        }
+        timestamps = grown;
+    }
+}
@@ -0,0 +1,330 @@
+package org.example.pattern;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Event sink that hands events to a background writer thread.
+ *
+ * emit() claims a slot in a bounded ring with a CAS and never takes a lock, so any number
+ * of machines (or purchase sessions on different threads) can share one sink. The writer
+ * thread drains the ring in order and appends the events to a buffered stream, either as
+ * text lines ({@code <epochMillis> <EVENT> <message>}) or as binary records
+ * ({@code long epochMillis, short ordinal, int amount, short length + UTF-8 subject}),
+ * formatted into one reusable byte buffer that goes to the stream in large writes. When the ring is
+ * full, emit() either waits for the writer (nothing is lost) or drops and counts the
+ * event (the machine is never held up). If the writer thread has died, events are dropped
+ * and counted rather than waited for. Binary subjects are cut to 65,535 UTF-8 bytes, the
+ * most the length prefix can hold.
+ */
+public class AsyncEventSink implements VendingEventSink, AutoCloseable {
+    /** Record layout written by the background thread */
+    public enum Format {
+        LINE,
+        BINARY
+    }
+
+    private static final long IDLE_PARK_NANOS = 100_000;
+    /** Largest subject a BINARY record's unsigned short length prefix can describe */
+    private static final int MAX_SUBJECT_BYTES = 0xFFFF;
+
+    private final int mask;
+    private final VendingEvent[] events;
+    private final String[] subjects;
+    private final int[] amounts;
+    private final long[] timestamps;
+    /** Per slot: equals the position when free for that position, position + 1 once published */
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    private final Format format;
+    private final boolean dropWhenFull;
+    private final OutputStream out;
+    private final byte[] buffer = new byte[1 << 16];
+    private int buffered;
+    /** Events taken from the ring whose bytes have not been flushed yet */
+    private int pendingEvents;
+    private final StringBuilder line = new StringBuilder(128);
+    private final Thread writer;
+    private volatile boolean closed;
+
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private volatile long writtenEvents;
+    private volatile long truncatedSubjects;
+
+    /**
+     * Sink that waits for the writer when the ring is full.
+     */
+    public AsyncEventSink(OutputStream out, int capacity, Format format) {
+        this(out, capacity, format, false);
+    }
+
+    /**
+     * @param capacity     ring size, rounded up to a power of two
+     * @param dropWhenFull drop events instead of waiting when the writer falls behind
+     */
+    public AsyncEventSink(OutputStream out, int capacity, Format format, boolean dropWhenFull) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.mask = size - 1;
+        this.events = new VendingEvent[size];
+        this.subjects = new String[size];
+        this.amounts = new int[size];
+        this.timestamps = new long[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.format = format;
+        this.dropWhenFull = dropWhenFull;
+        this.out = out;
+        this.writer = new Thread(this::drainLoop, "vending-event-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public void emit(VendingEvent event, String subject, int amount) {
+        if (closed) {
+            droppedEvents.incrementAndGet();
+            return;
+        }
+        long position;
+        while (true) {
+            position = tail.get();
+            long sequence = sequences.get((int) position & mask);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+            } else if (sequence < position) {
+                // Slot still holds an unwritten event from the previous lap: ring is full
+                if (dropWhenFull || !writer.isAlive()) {
+                    droppedEvents.incrementAndGet();
+                    return;
+                }
+                LockSupport.unpark(writer);
+                Thread.yield();
+            }
+        }
+        // Read after the claim: if the sink was closed in the meantime, the writer may have
+        // seen the ring empty and exited before this event was published
+        boolean closedWhileEmitting = closed;
+        int index = (int) position & mask;
+        events[index] = event;
+        subjects[index] = subject;
+        amounts[index] = amount;
+        timestamps[index] = System.currentTimeMillis();
+        sequences.lazySet(index, position + 1);
+        if (closedWhileEmitting) {
+            drainAfterClose();
+        }
+    }
+
+    /**
+     * Writes the events the writer thread left behind, on the calling thread: those published
+     * after it finished, or all remaining ones if it died on an I/O error.
+     */
+    private synchronized void drainAfterClose() {
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                // The closed writer exits promptly; finish this event first
+                interrupted = true;
+            }
+        }
+        try {
+            drain();
+            flushBuffer();
+        } catch (IOException e) {
+            // What cannot be written is dropped
+            dropPending();
+            long end = tail.get();
+            droppedEvents.addAndGet(end - head);
+            head = end;
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drainLoop() {
+        try {
+            while (true) {
+                int drained = drain();
+                if (drained == 0) {
+                    flushBuffer();
+                    if (closed && head == tail.get()) {
+                        return;
+                    }
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+        } catch (IOException e) {
+            dropPending();
+            throw new UncheckedIOException("Cannot write vending events", e);
+        }
+    }
+
+    private int drain() throws IOException {
+        long position = head;
+        int drained = 0;
+        while (true) {
+            int index = (int) position & mask;
+            if (sequences.get(index) != position + 1) {
+                break;
+            }
+            VendingEvent event = events[index];
+            String subject = subjects[index];
+            int amount = amounts[index];
+            long timestamp = timestamps[index];
+            subjects[index] = null;
+            position++;
+            drained++;
+            // Free the slot for the producer one lap ahead
+            sequences.lazySet(index, position + mask);
+            head = position;
+            pendingEvents++;
+            write(event, subject, amount, timestamp);
+        }
+        return drained;
+    }
+
+    private void write(VendingEvent event, String subject, int amount, long timestamp) throws IOException {
+        if (format == Format.BINARY) {
+            ensureSpace(16);
+            putLong(timestamp);
+            putShort(event.ordinal());
+            putInt(amount);
+            putText(subject == null ? "" : subject, true);
+            return;
+        }
+        line.setLength(0);
+        line.append(timestamp).append(' ').append(event.name()).append(' ');
+        event.appendTo(line, subject, amount).append('\n');
+        putText(line, false);
+    }
+
+    private void putText(CharSequence text, boolean lengthPrefixed) throws IOException {
+        int length = text.length();
+        // Text that might not fit in the buffer takes the byte[] path
+        boolean ascii = length + 2 <= buffer.length;
+        for (int i = 0; i < length && ascii; i++) {
+            ascii = text.charAt(i) < 0x80;
+        }
+        if (!ascii) {
+            byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+            int count = bytes.length;
+            if (lengthPrefixed && count > MAX_SUBJECT_BYTES) {
+                count = MAX_SUBJECT_BYTES;
+                while ((bytes[count] & 0xC0) == 0x80) {
+                    // Do not split a multi-byte character
+                    count--;
+                }
+                truncatedSubjects++;
+            }
+            if (count + 2 > buffer.length) {
+                // Larger than the buffer: write it straight through
+                if (lengthPrefixed) {
+                    ensureSpace(2);
+                    putShort(count);
+                }
+                flushBuffer();
+                out.write(bytes, 0, count);
+                return;
+            }
+            ensureSpace(count + 2);
+            if (lengthPrefixed) {
+                putShort(count);
+            }
+            System.arraycopy(bytes, 0, buffer, buffered, count);
+            buffered += count;
+            return;
+        }
+        ensureSpace(length + 2);
+        if (lengthPrefixed) {
+            putShort(length);
+        }
+        for (int i = 0; i < length; i++) {
+            buffer[buffered++] = (byte) text.charAt(i);
+        }
+    }
+
+    private void putLong(long value) {
+        putInt((int) (value >>> 32));
+        putInt((int) value);
+    }
+
+    private void putInt(int value) {
+        putShort(value >>> 16);
+        putShort(value);
+    }
+
+    private void putShort(int value) {
+        buffer[buffered++] = (byte) (value >>> 8);
+        buffer[buffered++] = (byte) value;
+    }
+
+    private void ensureSpace(int bytes) throws IOException {
+        if (buffered + bytes > buffer.length) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (buffered > 0) {
+            out.write(buffer, 0, buffered);
+            buffered = 0;
+        }
+        out.flush();
+        writtenEvents += pendingEvents;
+        pendingEvents = 0;
+    }
+
+    /** After a failed write: the events not flushed yet are dropped */
+    private void dropPending() {
+        droppedEvents.addAndGet(pendingEvents);
+        pendingEvents = 0;
+        buffered = 0;
+    }
+
+    /** Events discarded because the ring was full, the writer died or the sink closed */
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    /** Events written to the output stream and flushed so far */
+    public long getWrittenEvents() {
+        return writtenEvents;
+    }
+
+    /** BINARY records whose subject was cut to 65,535 bytes */
+    public long getTruncatedSubjects() {
+        return truncatedSubjects;
+    }
+
+    /**
+     * Writes out everything emitted so far, flushes and stops the writer thread.
+     * The underlying stream is not closed. If the calling thread is interrupted while
+     * waiting for the writer, it returns early with its interrupt flag set.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        drainAfterClose();
+    }
+}
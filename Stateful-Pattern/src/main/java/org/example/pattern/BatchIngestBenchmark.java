@@ -0,0 +1,111 @@
+package org.example.pattern;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Random;
+
+/**
+ * Batch ingestion benchmark
+ * Replays the same synthetic kiosk telemetry (money, selections, cancels, refills) into a
+ * VendingMachine one call at a time, with System.out sent to a null stream, and through
+ * applyBatch.
+ *
+ * Usage: java org.example.pattern.BatchIngestBenchmark [opsPerBatch] [rounds]
+ */
+public class BatchIngestBenchmark {
+    private static final String[] CODES = {"A1", "A2", "B1", "B2"};
+
+    public static void main(String[] args) {
+        int opsPerBatch = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        VendingBatch batch = telemetry(opsPerBatch, new Random(42));
+        byte[] outcomes = new byte[batch.size()];
+
+        // Warm-up
+        VendingMachine machine = new VendingMachine();
+        for (int i = 0; i < 10; i++) {
+            machine.applyBatch(batch, outcomes);
+        }
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        long perCallNanos;
+        try {
+            replayPerCall(new VendingMachine(), batch);
+            long start = System.nanoTime();
+            replayPerCall(new VendingMachine(), batch);
+            perCallNanos = System.nanoTime() - start;
+        } finally {
+            System.setOut(console);
+        }
+
+        machine = new VendingMachine();
+        long dispensed = 0;
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            dispensed += machine.applyBatch(batch, outcomes);
+        }
+        long batchNanos = System.nanoTime() - start;
+
+        int[] counts = new int[VendOutcome.values().length];
+        for (byte outcome : outcomes) {
+            counts[outcome]++;
+        }
+        System.out.printf("%,d ops per batch, %d rounds, %,d dispensed%n", batch.size(), rounds, dispensed);
+        System.out.printf("Per call (printing): %6.1f M ops/s%n", batch.size() * 1e3 / perCallNanos);
+        System.out.printf("applyBatch:          %6.1f M ops/s%n", (double) batch.size() * rounds * 1e3 / batchNanos);
+        System.out.print("Outcomes of the last batch:");
+        for (VendOutcome outcome : VendOutcome.values()) {
+            if (counts[outcome.ordinal()] > 0) {
+                System.out.printf(" %s=%d", outcome, counts[outcome.ordinal()]);
+            }
+        }
+        System.out.println();
+    }
+
+    /** Mostly purchases, with short changes, invalid codes, cancels and periodic refills */
+    private static VendingBatch telemetry(int ops, Random random) {
+        VendingBatch batch = new VendingBatch(ops);
+        while (batch.size() < ops) {
+            int kind = random.nextInt(20);
+            batch.insertMoney(10 + 5 * random.nextInt(5));
+            if (kind == 0) {
+                batch.cancelTransaction();
+            } else if (kind == 1) {
+                batch.selectProduct(9);
+                batch.cancelTransaction();
+            } else {
+                batch.selectProduct(random.nextInt(4));
+                batch.cancelTransaction();
+            }
+            if (kind == 2) {
+                batch.refillProducts();
+            }
+        }
+        return batch;
+    }
+
+    private static void replayPerCall(VendingMachine machine, VendingBatch batch) {
+        int[] ops = batch.getOps();
+        for (int i = 0; i < batch.size() * VendingBatch.STRIDE; i += VendingBatch.STRIDE) {
+            int argument = ops[i + 1];
+            switch (ops[i]) {
+                case VendingBatch.INSERT_MONEY:
+                    machine.insertMoney(argument);
+                    break;
+                case VendingBatch.SELECT_PRODUCT:
+                    machine.selectProduct(argument < CODES.length ? CODES[argument] : "Z9");
+                    break;
+                case VendingBatch.DISPENSE:
+                    machine.dispenseProduct();
+                    break;
+                case VendingBatch.CANCEL:
+                    machine.cancelTransaction();
+                    break;
+                default:
+                    machine.refillProducts();
+                    break;
+            }
+        }
+    }
+}
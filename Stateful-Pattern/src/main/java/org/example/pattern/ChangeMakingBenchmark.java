@@ -0,0 +1,119 @@
+package org.example.pattern;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Change-making benchmark
+ * Plans payouts for a machine with many (non-canonical) denominations and large amounts:
+ * with plenty of coins, where the shared ChangeTable answers, and with scarce coins, where
+ * the bounded DP runs. Reports the time per payout and the bytes allocated while planning,
+ * and checks the plans against a straightforward bounded knapsack.
+ *
+ * Usage: java org.example.pattern.ChangeMakingBenchmark [denominations] [maxAmount] [payouts]
+ */
+public class ChangeMakingBenchmark {
+    public static void main(String[] args) {
+        int denominationCount = args.length > 0 ? Integer.parseInt(args[0]) : 24;
+        int maxAmount = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        int payouts = args.length > 2 ? Integer.parseInt(args[2]) : 2_000;
+
+        Random random = new Random(42);
+        int[] denominations = denominations(denominationCount, random);
+        int[] amounts = new int[payouts];
+        for (int i = 0; i < payouts; i++) {
+            amounts[i] = 1 + random.nextInt(maxAmount);
+        }
+        int[] plenty = new int[denominationCount];
+        Arrays.fill(plenty, 1_000_000);
+        int[] scarce = new int[denominationCount];
+        for (int i = 0; i < denominationCount; i++) {
+            scarce[i] = random.nextInt(4);
+        }
+        scarce[0] = maxAmount; // always possible with enough of the smallest coin
+
+        long start = System.nanoTime();
+        ChangeTable.forDenominations(denominations, maxAmount);
+        System.out.printf("%d denominations, amounts up to %,d: shared table built in %.1f ms%n",
+                denominationCount, maxAmount, (System.nanoTime() - start) / 1e6);
+
+        run("Plenty of coins (table)", new CoinInventory(denominations, plenty, maxAmount), amounts);
+        run("Scarce coins (bounded DP)", new CoinInventory(denominations, scarce, maxAmount), amounts);
+        verify(new CoinInventory(denominations, scarce, maxAmount), denominations, scarce, random);
+    }
+
+    private static void run(String label, CoinInventory coins, int[] amounts) {
+        // Warm-up, which also grows the scratch arrays to their final size
+        for (int amount : amounts) {
+            coins.canMakeChange(amount);
+        }
+        long probe = allocatedBytes();
+        long probeCost = allocatedBytes() - probe;
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        int possible = 0;
+        for (int amount : amounts) {
+            if (coins.canMakeChange(amount)) {
+                possible++;
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        long allocated = allocatedBytes() - allocatedBefore - probeCost;
+        System.out.printf("%-26s %,10.0f ns/payout, %d/%d possible, %d bytes allocated%n",
+                label + ":", (double) nanos / amounts.length, possible, amounts.length, allocated);
+    }
+
+    /** Compares plan sizes with a plain bounded knapsack (one coin at a time) on small amounts */
+    private static void verify(CoinInventory coins, int[] denominations, int[] counts, Random random) {
+        int checked = 0;
+        for (int trial = 0; trial < 200; trial++) {
+            int amount = 1 + random.nextInt(2_000);
+            int expected = referenceMinCoins(denominations, counts, amount);
+            boolean possible = coins.canMakeChange(amount);
+            int total = 0;
+            int value = 0;
+            for (int i = 0; i < coins.getDenominationCount(); i++) {
+                total += coins.getPlannedCoins(i);
+                value += coins.getPlannedCoins(i) * coins.getDenomination(i);
+                if (coins.getPlannedCoins(i) > coins.getCount(i)) {
+                    throw new IllegalStateException("Plan uses coins the machine does not have");
+                }
+            }
+            if (possible != (expected >= 0) || (possible && (total != expected || value != amount))) {
+                throw new IllegalStateException("Wrong plan for " + amount + ": " + total + " coins, expected " + expected);
+            }
+            checked++;
+        }
+        System.out.printf("Verified %d bounded plans against a reference knapsack%n", checked);
+    }
+
+    private static int referenceMinCoins(int[] denominations, int[] counts, int amount) {
+        int[] best = new int[amount + 1];
+        Arrays.fill(best, ChangeTable.IMPOSSIBLE);
+        best[0] = 0;
+        for (int i = 0; i < denominations.length; i++) {
+            for (int k = 0; k < Math.min(counts[i], amount); k++) {
+                for (int a = amount; a >= denominations[i]; a--) {
+                    best[a] = Math.min(best[a], best[a - denominations[i]] + 1);
+                }
+            }
+        }
+        return best[amount] >= ChangeTable.IMPOSSIBLE ? -1 : best[amount];
+    }
+
+    /** 1 plus irregular, non-canonical values, so greedy change is not optimal */
+    private static int[] denominations(int count, Random random) {
+        int[] values = new int[count];
+        values[0] = 1;
+        for (int i = 1; i < count; i++) {
+            values[i] = values[i - 1] + 1 + random.nextInt(3 * i + 2);
+        }
+        return values;
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,62 @@
+package org.example.pattern;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Minimum-coin change for every amount up to a limit, with an unlimited supply of each coin.
+ *
+ * Built once per denomination set and shared (through {@link #forDenominations}) by every
+ * CoinInventory using that set. If the coins a machine actually holds cover the unlimited
+ * optimum, that optimum is also the best payout the machine can make, so most payouts are
+ * answered from this table without running the bounded DP. Immutable.
+ */
+public final class ChangeTable {
+    static final int IMPOSSIBLE = Integer.MAX_VALUE / 2;
+
+    private static final Map<String, ChangeTable> CACHE = new ConcurrentHashMap<>();
+
+    private final int[] minCoins;
+    private final int[] lastCoin;
+
+    private ChangeTable(int[] denominations, int maxAmount) {
+        this.minCoins = new int[maxAmount + 1];
+        this.lastCoin = new int[maxAmount + 1];
+        for (int amount = 1; amount <= maxAmount; amount++) {
+            int best = IMPOSSIBLE;
+            int bestCoin = -1;
+            for (int i = 0; i < denominations.length && denominations[i] <= amount; i++) {
+                int coins = minCoins[amount - denominations[i]] + 1;
+                if (coins < best) {
+                    best = coins;
+                    bestCoin = i;
+                }
+            }
+            minCoins[amount] = best;
+            lastCoin[amount] = bestCoin;
+        }
+    }
+
+    /**
+     * Returns the shared table for the denominations (ascending, distinct, positive).
+     */
+    public static ChangeTable forDenominations(int[] denominations, int maxAmount) {
+        String key = Arrays.toString(denominations) + "/" + maxAmount;
+        return CACHE.computeIfAbsent(key, k -> new ChangeTable(denominations.clone(), maxAmount));
+    }
+
+    public int getMaxAmount() {
+        return minCoins.length - 1;
+    }
+
+    /** Fewest coins that make the amount, or IMPOSSIBLE */
+    int minCoins(int amount) {
+        return minCoins[amount];
+    }
+
+    /** Index of the last coin of an optimal payout of the amount */
+    int lastCoin(int amount) {
+        return lastCoin[amount];
+    }
+}
@@ -0,0 +1,214 @@
+package org.example.pattern;
+
+import java.util.Arrays;
+
+/**
+ * Coins a vending machine holds for giving change.
+ *
+ * A payout is planned with as few coins as possible using only the coins actually held.
+ * The shared ChangeTable answers the common case; when the machine is short of the coins
+ * that plan needs, a bounded DP over the held counts finds the best payout that is still
+ * possible (one sliding-window-minimum pass per denomination, O(denominations x amount)).
+ * All working arrays are kept between calls, so planning does not allocate unless an
+ * amount larger than any before it comes in. Not thread-safe.
+ */
+public class CoinInventory {
+    private final ChangeTable table;
+    private final int[] denominations;
+    private final int[] counts;
+    private final int[] refillCounts;
+    private final int[] plan;
+
+    // Scratch for the bounded DP, grown on demand
+    private int scratchAmount = -1;
+    private int[] previous;
+    private int[] current;
+    private int[] windowIndex;
+    private int[] windowKey;
+    private int[] used;
+
+    /**
+     * @param denominations coin values, distinct and positive
+     * @param counts        coins held of each denomination; also the level refill() restores
+     * @param maxChange     largest change amount answered from the precomputed table
+     */
+    public CoinInventory(int[] denominations, int[] counts, int maxChange) {
+        if (denominations.length != counts.length) {
+            throw new IllegalArgumentException("Need one count per denomination");
+        }
+        // Ascending values, counts following their denomination
+        long[] sorted = new long[denominations.length];
+        for (int i = 0; i < sorted.length; i++) {
+            if (denominations[i] <= 0) {
+                throw new IllegalArgumentException("Denominations must be positive: " + denominations[i]);
+            }
+            sorted[i] = ((long) denominations[i] << 32) | i;
+        }
+        Arrays.sort(sorted);
+        this.denominations = new int[sorted.length];
+        this.counts = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            this.denominations[i] = (int) (sorted[i] >>> 32);
+            this.counts[i] = counts[(int) sorted[i]];
+            if (i > 0 && this.denominations[i] == this.denominations[i - 1]) {
+                throw new IllegalArgumentException("Duplicate denomination: " + this.denominations[i]);
+            }
+        }
+        this.refillCounts = this.counts.clone();
+        this.plan = new int[sorted.length];
+        this.table = ChangeTable.forDenominations(this.denominations, maxChange);
+    }
+
+    /**
+     * Works out the payout for {@code amount} without paying it; see {@link #getPlannedCoins}.
+     *
+     * @return false if the held coins cannot make the amount
+     */
+    public boolean canMakeChange(int amount) {
+        Arrays.fill(plan, 0);
+        if (amount <= 0) {
+            return amount == 0;
+        }
+        if (amount <= table.getMaxAmount()) {
+            if (table.minCoins(amount) >= ChangeTable.IMPOSSIBLE) {
+                return false;
+            }
+            for (int remaining = amount; remaining > 0; ) {
+                int coin = table.lastCoin(remaining);
+                plan[coin]++;
+                remaining -= denominations[coin];
+            }
+            if (planFits()) {
+                return true;
+            }
+        }
+        return planBounded(amount);
+    }
+
+    /**
+     * Pays out {@code amount} in as few of the held coins as possible.
+     *
+     * @return false, with nothing paid, if the held coins cannot make the amount
+     */
+    public boolean payOut(int amount) {
+        if (!canMakeChange(amount)) {
+            return false;
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] -= plan[i];
+        }
+        return true;
+    }
+
+    private boolean planFits() {
+        for (int i = 0; i < plan.length; i++) {
+            if (plan[i] > counts[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Bounded change-making: dp[a] = min over k <= count of dp'[a - k v] + k, per residue class */
+    private boolean planBounded(int amount) {
+        ensureScratch(amount);
+        int stride = amount + 1;
+        int[] before = previous;
+        int[] after = current;
+        Arrays.fill(before, 0, stride, ChangeTable.IMPOSSIBLE);
+        before[0] = 0;
+        for (int i = 0; i < denominations.length; i++) {
+            int value = denominations[i];
+            int limit = Math.min(counts[i], amount / value);
+            int base = i * stride;
+            for (int residue = 0; residue < value && residue <= amount; residue++) {
+                int head = 0;
+                int tail = 0;
+                for (int j = 0, a = residue; a <= amount; j++, a += value) {
+                    if (before[a] < ChangeTable.IMPOSSIBLE) {
+                        int key = before[a] - j;
+                        while (tail > head && windowKey[tail - 1] >= key) {
+                            tail--;
+                        }
+                        windowIndex[tail] = j;
+                        windowKey[tail] = key;
+                        tail++;
+                    }
+                    while (tail > head && windowIndex[head] < j - limit) {
+                        head++;
+                    }
+                    if (tail > head) {
+                        after[a] = windowKey[head] + j;
+                        used[base + a] = j - windowIndex[head];
+                    } else {
+                        after[a] = ChangeTable.IMPOSSIBLE;
+                    }
+                }
+            }
+            int[] swap = before;
+            before = after;
+            after = swap;
+        }
+        if (before[amount] >= ChangeTable.IMPOSSIBLE) {
+            return false;
+        }
+        for (int i = denominations.length - 1, remaining = amount; i >= 0; i--) {
+            int coins = used[i * stride + remaining];
+            plan[i] = coins;
+            remaining -= coins * denominations[i];
+        }
+        return true;
+    }
+
+    private void ensureScratch(int amount) {
+        if (amount <= scratchAmount) {
+            return;
+        }
+        int size = Math.max(amount, scratchAmount * 2) + 1;
+        previous = new int[size];
+        current = new int[size];
+        windowIndex = new int[size];
+        windowKey = new int[size];
+        scratchAmount = size - 1;
+        used = new int[denominations.length * size];
+    }
+
+    /** Coins of denomination {@code index} in the last planned or paid payout */
+    public int getPlannedCoins(int index) {
+        return plan[index];
+    }
+
+    public void addCoins(int index, int count) {
+        counts[index] += count;
+    }
+
+    /** Restores every denomination to the level the inventory was created with */
+    public void refill() {
+        System.arraycopy(refillCounts, 0, counts, 0, counts.length);
+    }
+
+    /** Number of denominations; indexes are in ascending order of value */
+    public int getDenominationCount() {
+        return denominations.length;
+    }
+
+    public int getDenomination(int index) {
+        return denominations[index];
+    }
+
+    public int getCount(int index) {
+        return counts[index];
+    }
+
+    public void setCount(int index, int count) {
+        counts[index] = count;
+    }
+
+    public long getTotalValue() {
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            total += (long) counts[i] * denominations[i];
+        }
+        return total;
+    }
+}
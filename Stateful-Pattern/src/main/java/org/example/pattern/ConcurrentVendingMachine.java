@@ -0,0 +1,119 @@
+package org.example.pattern;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Thread-safe vending machine shared by many concurrent customer sessions.
+ *
+ * The planogram (products and their slots) is fixed at construction. Stock is kept in
+ * one atomic counter per slot and taken with a compare-and-set loop, so concurrent
+ * purchases never oversell and never contend on a global lock.
+ * Each customer gets their own PurchaseSession with its own state, money and selection.
+ */
+public class ConcurrentVendingMachine {
+    private static final int REFILL_QUANTITY = 10;
+
+    private final Product[] products;
+    private final Map<String, Integer> slotByCode;
+    private final AtomicIntegerArray stock;
+
+    /**
+     * Creates a machine with the demo planogram (A1, A2, B1, B2), 5 items each.
+     */
+    public ConcurrentVendingMachine() {
+        this(new Product[] {
+                new Product("A1", "Coke", 25),
+                new Product("A2", "Pepsi", 25),
+                new Product("B1", "Water", 15),
+                new Product("B2", "Juice", 30)
+        }, new int[] {5, 5, 5, 5});
+    }
+
+    public ConcurrentVendingMachine(Product[] products, int[] quantities) {
+        if (products.length != quantities.length) {
+            throw new IllegalArgumentException("Need one quantity per product");
+        }
+        this.products = products.clone();
+        this.stock = new AtomicIntegerArray(quantities.clone());
+        Map<String, Integer> slots = new HashMap<>();
+        for (int slot = 0; slot < products.length; slot++) {
+            if (slots.put(products[slot].getCode(), slot) != null) {
+                throw new IllegalArgumentException("Duplicate product code: " + products[slot].getCode());
+            }
+        }
+        this.slotByCode = Collections.unmodifiableMap(slots);
+    }
+
+    /**
+     * Starts a new customer session. Sessions are not thread-safe themselves;
+     * use one per customer (thread).
+     */
+    public PurchaseSession openSession() {
+        return new PurchaseSession(this);
+    }
+
+    public Product getProduct(String code) {
+        Integer slot = slotByCode.get(code);
+        return slot == null ? null : products[slot];
+    }
+
+    public int getStock(String code) {
+        Integer slot = slotByCode.get(code);
+        return slot == null ? 0 : stock.get(slot);
+    }
+
+    public boolean isProductAvailable(String code) {
+        return getStock(code) > 0;
+    }
+
+    /**
+     * Atomically takes one item of the product.
+     * @return false if the product is unknown or sold out
+     */
+    public boolean tryTake(String code) {
+        Integer slot = slotByCode.get(code);
+        if (slot == null) {
+            return false;
+        }
+        int quantity;
+        do {
+            quantity = stock.get(slot);
+            if (quantity <= 0) {
+                return false;
+            }
+        } while (!stock.compareAndSet(slot, quantity, quantity - 1));
+        return true;
+    }
+
+    public boolean hasAnyStock() {
+        for (int slot = 0; slot < products.length; slot++) {
+            if (stock.get(slot) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void refillAllProducts() {
+        for (int slot = 0; slot < products.length; slot++) {
+            stock.set(slot, REFILL_QUANTITY);
+        }
+    }
+
+    public void displayInventory() {
+        displayInventory(ConsoleEventSink.INSTANCE);
+    }
+
+    public void displayInventory(VendingEventSink sink) {
+        sink.emit(VendingEvent.INVENTORY_HEADER, null, 0);
+        for (int slot = 0; slot < products.length; slot++) {
+            Product product = products[slot];
+            sink.emit(VendingEvent.INVENTORY_ITEM,
+                    product.getCode() + ": " + product.getName() + " - $" + product.getPrice(), stock.get(slot));
+        }
+        sink.emit(VendingEvent.INVENTORY_FOOTER, null, 0);
+    }
+}
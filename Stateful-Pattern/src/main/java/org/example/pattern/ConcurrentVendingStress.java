@@ -0,0 +1,94 @@
+package org.example.pattern;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Stress check for ConcurrentVendingMachine
+ * Many threads run purchase sessions against one machine at the same time, buying more
+ * items than the machine holds. Products handed out are counted from the sessions' events
+ * (COLLECT_PRODUCT), independently of the stock counters. Afterwards, for every product, the
+ * initial planogram stock must equal the remaining stock plus the items handed out, and no
+ * stock counter may be negative. Exits with status 1 otherwise.
+ *
+ * Usage: java org.example.pattern.ConcurrentVendingStress [threads] [purchasesPerThread]
+ */
+public class ConcurrentVendingStress {
+    private static final int INITIAL_STOCK = 1_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int purchasesPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+
+        Product[] products = {
+                new Product("A1", "Coke", 25),
+                new Product("A2", "Pepsi", 25),
+                new Product("B1", "Water", 15),
+                new Product("B2", "Juice", 30)
+        };
+        int[] quantities = new int[products.length];
+        Arrays.fill(quantities, INITIAL_STOCK);
+        ConcurrentVendingMachine machine = new ConcurrentVendingMachine(products, quantities);
+
+        AtomicLongArray collected = new AtomicLongArray(products.length);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                PurchaseSession session = machine.openSession();
+                long[] handedOut = new long[products.length];
+                session.setEventSink((event, subject, amount) -> {
+                    if (event == VendingEvent.COLLECT_PRODUCT) {
+                        handedOut[indexOfName(products, subject)]++;
+                    }
+                });
+                try {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < purchasesPerThread; i++) {
+                        Product product = products[random.nextInt(products.length)];
+                        session.insertMoney(product.getPrice());
+                        session.selectProduct(product.getCode());
+                        session.cancelTransaction();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    for (int p = 0; p < handedOut.length; p++) {
+                        collected.addAndGet(p, handedOut[p]);
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+        long startNanos = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - startNanos;
+
+        System.out.printf("%d threads x %d purchase attempts in %.1f ms%n", threads, purchasesPerThread, elapsed / 1e6);
+        boolean ok = true;
+        for (int p = 0; p < products.length; p++) {
+            int remaining = machine.getStock(products[p].getCode());
+            boolean conserved = remaining >= 0 && quantities[p] == remaining + collected.get(p);
+            System.out.printf("%s: initial %d, handed out %d, remaining %d%s%n", products[p].getCode(),
+                    quantities[p], collected.get(p), remaining, conserved ? "" : "  <- MISMATCH");
+            ok &= conserved;
+        }
+        System.out.println(ok ? "OK: no overselling" : "FAILED: items handed out do not match stock");
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    private static int indexOfName(Product[] products, String name) {
+        for (int i = 0; i < products.length; i++) {
+            if (products[i].getName().equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Unknown product " + name);
+    }
+}
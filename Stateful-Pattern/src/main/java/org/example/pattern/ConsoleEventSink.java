@@ -0,0 +1,18 @@
+package org.example.pattern;
+
+/**
+ * Prints every event as its console message to System.out, as the states always did.
+ * This is the default sink of a VendingMachine.
+ */
+public final class ConsoleEventSink implements VendingEventSink {
+    public static final ConsoleEventSink INSTANCE = new ConsoleEventSink();
+
+    private ConsoleEventSink() {
+    }
+
+    @Override
+    public void emit(VendingEvent event, String subject, int amount) {
+        // Looked up per event so a redirected System.out is honoured
+        System.out.println(event.format(subject, amount));
+    }
+}
@@ -4,20 +4,20 @@ package org.example.pattern;
  * Dispensing State - Product is being dispensed
  */
 public class DispensingState implements VendingMachineState {
-    private VendingMachine vendingMachine;
+    private VendingContext vendingMachine;
     
-    public DispensingState(VendingMachine vendingMachine) {
+    public DispensingState(VendingContext vendingMachine) {
         this.vendingMachine = vendingMachine;
     }
     
     @Override
     public void insertMoney(int amount) {
-        System.out.println("Please wait, dispensing product...");
+        vendingMachine.emit(VendingEvent.WAIT_FOR_DISPENSING, null, amount);
     }
     
     @Override
     public void selectProduct(String productCode) {
-        System.out.println("Already dispensing a product. Please wait.");
+        vendingMachine.emit(VendingEvent.ALREADY_DISPENSING, productCode, 0);
     }
     
     @Override
@@ -25,21 +25,36 @@ public class DispensingState implements VendingMachineState {
         Product product = vendingMachine.getSelectedProduct();
         
         if (product == null) {
-            System.out.println("Error: No product selected.");
+            vendingMachine.emit(VendingEvent.NO_PRODUCT_SELECTED, null, 0);
             vendingMachine.setState(vendingMachine.getIdleState());
             return;
         }
         
-        System.out.println("Dispensing " + product.getName() + "...");
-        vendingMachine.reduceStock(product.getCode());
+        if (!vendingMachine.reduceStock(product.getCode())) {
+            // Another customer took the last item between selection and dispensing
+            int returnedMoney = vendingMachine.returnMoney();
+            vendingMachine.emit(VendingEvent.SOLD_OUT_REFUNDED, product.getName(), returnedMoney);
+            vendingMachine.resetSelectedProduct();
+            vendingMachine.setState(vendingMachine.hasAnyStock()
+                    ? vendingMachine.getIdleState() : vendingMachine.getOutOfStockState());
+            return;
+        }
+        
+        vendingMachine.emit(VendingEvent.DISPENSING, product.getName(), product.getPrice());
         
         // Calculate and return change
         int change = vendingMachine.getInsertedMoney() - product.getPrice();
         if (change > 0) {
-            System.out.println("Returning change: $" + change);
+            // HasMoneyState checked that the coins can make this change, but the coins may
+            // have changed since (e.g. a machine recovered mid-dispense)
+            if (vendingMachine.payOutChange(change)) {
+                vendingMachine.emit(VendingEvent.CHANGE_RETURNED, null, change);
+            } else {
+                vendingMachine.emit(VendingEvent.CHANGE_OWED, null, change);
+            }
         }
         
-        System.out.println("Please collect your " + product.getName());
+        vendingMachine.emit(VendingEvent.COLLECT_PRODUCT, product.getName(), 0);
         
         // Reset state
         vendingMachine.resetMoney();
@@ -47,7 +62,7 @@ public class DispensingState implements VendingMachineState {
         
         // Check if out of stock
         if (!vendingMachine.hasAnyStock()) {
-            System.out.println("Vending machine is now out of stock.");
+            vendingMachine.emit(VendingEvent.MACHINE_NOW_EMPTY, null, 0);
             vendingMachine.setState(vendingMachine.getOutOfStockState());
         } else {
             vendingMachine.setState(vendingMachine.getIdleState());
@@ -56,11 +71,11 @@ public class DispensingState implements VendingMachineState {
     
     @Override
     public void cancelTransaction() {
-        System.out.println("Cannot cancel transaction while dispensing.");
+        vendingMachine.emit(VendingEvent.CANCEL_REJECTED_WHILE_DISPENSING, null, 0);
     }
     
     @Override
     public void refillProducts() {
-        System.out.println("Cannot refill while dispensing product.");
+        vendingMachine.emit(VendingEvent.REFILL_REJECTED_WHILE_DISPENSING, null, 0);
     }
 }
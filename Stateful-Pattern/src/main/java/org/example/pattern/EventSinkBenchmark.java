@@ -0,0 +1,100 @@
+package org.example.pattern;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * Event sink benchmark
+ * Runs the operations of the Main demo scenarios in a loop and measures the latency of one
+ * pass with each sink: the console (System.out redirected to a null stream, so only the
+ * synchronised formatting and encoding is measured), the asynchronous appender in line and
+ * binary format (writing to a null stream), and the no-op sink. The asynchronous sinks
+ * wait when their ring is full, so every event is written.
+ *
+ * Usage: java org.example.pattern.EventSinkBenchmark [iterations]
+ */
+public class EventSinkBenchmark {
+    private static final int RING_CAPACITY = 1 << 20;
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        String[] results = new String[4];
+        try {
+            // Warm-up
+            measure(ConsoleEventSink.INSTANCE, iterations / 10);
+            measure(VendingEventSink.NO_OP, iterations / 10);
+
+            results[0] = report("Console", measure(ConsoleEventSink.INSTANCE, iterations), 0);
+            try (AsyncEventSink sink = new AsyncEventSink(OutputStream.nullOutputStream(), RING_CAPACITY,
+                    AsyncEventSink.Format.LINE)) {
+                results[1] = report("Async (line)", measure(sink, iterations), sink.getDroppedEvents());
+            }
+            try (AsyncEventSink sink = new AsyncEventSink(OutputStream.nullOutputStream(), RING_CAPACITY,
+                    AsyncEventSink.Format.BINARY)) {
+                results[2] = report("Async (binary)", measure(sink, iterations), sink.getDroppedEvents());
+            }
+            results[3] = report("No-op", measure(VendingEventSink.NO_OP, iterations), 0);
+        } finally {
+            System.setOut(console);
+        }
+        System.out.printf("%,d passes of the Main scenarios%n", iterations);
+        for (String result : results) {
+            System.out.println(result);
+        }
+    }
+
+    private static long[] measure(VendingEventSink sink, int iterations) {
+        VendingMachine machine = new VendingMachine();
+        machine.setEventSink(sink);
+        long[] nanos = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            scenarios(machine);
+            nanos[i] = System.nanoTime() - start;
+        }
+        return nanos;
+    }
+
+    /** The operations of Main.runScenarios, without its headings */
+    private static void scenarios(VendingMachine machine) {
+        machine.displayInventory();
+        machine.insertMoney(30);
+        machine.selectProduct("A1");
+        machine.insertMoney(20);
+        machine.selectProduct("B2");
+        machine.insertMoney(15);
+        machine.selectProduct("B2");
+        machine.insertMoney(50);
+        machine.cancelTransaction();
+        machine.insertMoney(30);
+        machine.selectProduct("Z9");
+        machine.cancelTransaction();
+        for (int i = 0; i < 4; i++) {
+            machine.insertMoney(25);
+            machine.selectProduct("A2");
+        }
+        machine.displayInventory();
+        machine.insertMoney(25);
+        machine.refillProducts();
+        machine.displayInventory();
+        machine.insertMoney(20);
+        machine.selectProduct("B1");
+        machine.selectProduct("A1");
+        machine.dispenseProduct();
+        machine.cancelTransaction();
+    }
+
+    private static String report(String label, long[] nanos, long dropped) {
+        long total = 0;
+        for (long n : nanos) {
+            total += n;
+        }
+        Arrays.sort(nanos);
+        return String.format("%-15s mean %7.0f ns  p50 %7d ns  p99 %7d ns  p99.9 %8d ns  dropped %d",
+                label + ":", (double) total / nanos.length, nanos[nanos.length / 2],
+                nanos[(int) (nanos.length * 0.99)], nanos[(int) (nanos.length * 0.999)], dropped);
+    }
+}
@@ -0,0 +1,149 @@
+package org.example.pattern;
+
+import java.util.Arrays;
+
+/**
+ * A period of fleet activity (dispenses and refills), sharded by machine.
+ *
+ * Every event is packed into one long: the second since the start of the log (17 bits,
+ * so a log spans at most about 36 hours), the kind, the machine and the slot. Machines are
+ * split into contiguous ranges, one per shard, and each shard is a growable long[] of its
+ * machines' events. Shards never share a machine, so they can be filled and processed in
+ * parallel: appends for different shards may run concurrently, appends to one shard may not.
+ *
+ * Within a shard, the events of each machine must be in time order; the events of
+ * different machines may interleave freely.
+ */
+public class FleetEventLog {
+    public static final int DISPENSE = 0;
+    /** Every slot of the machine restocked to the quantity given in the slot field */
+    public static final int REFILL = 1;
+
+    public static final int MAX_SECONDS = 1 << 17;
+    static final int MAX_MACHINES = 1 << 30;
+    static final int MAX_SLOTS = 1 << 16;
+
+    private final int machineCount;
+    private final int machinesPerShard;
+    private final long startSecond;
+    private final int lengthSeconds;
+    private final long[][] shards;
+    private final int[] sizes;
+
+    /**
+     * @param startSecond   the clock second the log starts at
+     * @param lengthSeconds the period the log covers, at most MAX_SECONDS
+     * @param initialShardCapacity events each shard has room for before growing
+     */
+    public FleetEventLog(int machineCount, int shardCount, long startSecond, int lengthSeconds,
+                         int initialShardCapacity) {
+        if (machineCount <= 0 || machineCount > MAX_MACHINES) {
+            throw new IllegalArgumentException("Invalid machine count: " + machineCount);
+        }
+        if (lengthSeconds <= 0 || lengthSeconds > MAX_SECONDS) {
+            throw new IllegalArgumentException("A log covers 1 to " + MAX_SECONDS + " seconds: " + lengthSeconds);
+        }
+        shardCount = Math.max(1, Math.min(shardCount, machineCount));
+        this.machineCount = machineCount;
+        this.machinesPerShard = (machineCount + shardCount - 1) / shardCount;
+        this.startSecond = startSecond;
+        this.lengthSeconds = lengthSeconds;
+        shardCount = (machineCount + machinesPerShard - 1) / machinesPerShard;
+        this.shards = new long[shardCount][];
+        this.sizes = new int[shardCount];
+        for (int shard = 0; shard < shardCount; shard++) {
+            shards[shard] = new long[Math.max(16, initialShardCapacity)];
+        }
+    }
+
+    /**
+     * @param second seconds since the start of the log
+     * @param kind   DISPENSE or REFILL
+     * @param slot   the slot dispensed from, or the refill quantity
+     */
+    public void append(int second, int kind, int machine, int slot) {
+        if (second < 0 || second >= lengthSeconds) {
+            throw new IllegalArgumentException("Second outside the log: " + second);
+        }
+        if (kind != DISPENSE && kind != REFILL) {
+            throw new IllegalArgumentException("Invalid event kind: " + kind);
+        }
+        if (slot < 0 || slot >= MAX_SLOTS) {
+            throw new IllegalArgumentException("Invalid slot: " + slot);
+        }
+        int shard = shardOf(machine);
+        long[] events = shards[shard];
+        int size = sizes[shard];
+        if (size == events.length) {
+            events = Arrays.copyOf(events, size + (size >> 1));
+            shards[shard] = events;
+        }
+        events[size] = pack(second, kind, machine, slot);
+        sizes[shard] = size + 1;
+    }
+
+    static long pack(int second, int kind, int machine, int slot) {
+        return (long) second << 47 | (long) kind << 46 | (long) machine << 16 | slot;
+    }
+
+    static int second(long event) {
+        return (int) (event >>> 47);
+    }
+
+    static int kind(long event) {
+        return (int) (event >>> 46) & 1;
+    }
+
+    static int machine(long event) {
+        return (int) (event >>> 16) & (MAX_MACHINES - 1);
+    }
+
+    static int slot(long event) {
+        return (int) event & (MAX_SLOTS - 1);
+    }
+
+    public int shardOf(int machine) {
+        if (machine < 0 || machine >= machineCount) {
+            throw new IllegalArgumentException("Invalid machine: " + machine);
+        }
+        return machine / machinesPerShard;
+    }
+
+    /** First machine of the shard; the shard holds the machines up to the next shard's first */
+    public int getFirstMachine(int shard) {
+        return shard * machinesPerShard;
+    }
+
+    /** The shard's packed events; only the first getShardSize entries are valid */
+    long[] getShard(int shard) {
+        return shards[shard];
+    }
+
+    public int getShardSize(int shard) {
+        return sizes[shard];
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    public int getMachineCount() {
+        return machineCount;
+    }
+
+    public long getStartSecond() {
+        return startSecond;
+    }
+
+    public long getEndSecond() {
+        return startSecond + lengthSeconds;
+    }
+
+    public long getEventCount() {
+        long count = 0;
+        for (int size : sizes) {
+            count += size;
+        }
+        return count;
+    }
+}
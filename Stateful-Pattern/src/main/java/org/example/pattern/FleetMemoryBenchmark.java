@@ -0,0 +1,55 @@
+package org.example.pattern;
+
+/**
+ * Memory footprint benchmark
+ * Compares the heap used by N VendingMachine objects with one VendingFleet of N machines
+ * (same 4-product planogram).
+ *
+ * Usage: java org.example.pattern.FleetMemoryBenchmark [machines]
+ */
+public class FleetMemoryBenchmark {
+    private static volatile Object sink;
+
+    public static void main(String[] args) {
+        int machines = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+
+        long before = usedHeap();
+        VendingMachine[] objectModel = new VendingMachine[machines];
+        for (int i = 0; i < machines; i++) {
+            objectModel[i] = new VendingMachine();
+        }
+        long objectBytes = usedHeap() - before;
+        keepAlive(objectModel);
+        objectModel = null;
+
+        before = usedHeap();
+        VendingFleet fleet = new VendingFleet(machines, new Product[] {
+                new Product("A1", "Coke", 25),
+                new Product("A2", "Pepsi", 25),
+                new Product("B1", "Water", 15),
+                new Product("B2", "Juice", 30)
+        }, 5);
+        long fleetBytes = usedHeap() - before;
+        keepAlive(fleet);
+
+        System.out.printf("Machines: %d%n", machines);
+        System.out.printf("Object per machine (VendingMachine): %,d bytes total, %.1f bytes/machine%n",
+                objectBytes, (double) objectBytes / machines);
+        System.out.printf("Structure of arrays (VendingFleet):  %,d bytes total, %.1f bytes/machine%n",
+                fleetBytes, (double) fleetBytes / machines);
+        System.out.printf("Reduction: %.1fx%n", (double) objectBytes / Math.max(1, fleetBytes));
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void keepAlive(Object object) {
+        sink = object;
+        sink = null;
+    }
+}
@@ -0,0 +1,148 @@
+package org.example.pattern;
+
+/**
+ * Stateless, singleton states for VendingFleet.
+ *
+ * Same behaviour as IdleState, HasMoneyState, DispensingState and OutOfStockState, but
+ * instead of holding a reference to one machine each state operates on a machine index
+ * in the fleet's arrays, so four instances serve the whole fleet. A machine's state is
+ * stored as the constant's ordinal in a byte.
+ */
+enum FleetState {
+    IDLE {
+        @Override
+        VendOutcome insertMoney(VendingFleet fleet, int machine, int amount) {
+            if (amount <= 0) {
+                return VendOutcome.INVALID_AMOUNT;
+            }
+            fleet.addMoney(machine, amount);
+            fleet.setState(machine, HAS_MONEY);
+            return VendOutcome.ACCEPTED;
+        }
+
+        @Override
+        VendOutcome selectProduct(VendingFleet fleet, int machine, int slot) {
+            return VendOutcome.NO_MONEY;
+        }
+
+        @Override
+        VendOutcome refillProducts(VendingFleet fleet, int machine) {
+            fleet.refill(machine);
+            return VendOutcome.REFILLED;
+        }
+    },
+
+    HAS_MONEY {
+        @Override
+        VendOutcome insertMoney(VendingFleet fleet, int machine, int amount) {
+            if (amount <= 0) {
+                return VendOutcome.INVALID_AMOUNT;
+            }
+            fleet.addMoney(machine, amount);
+            return VendOutcome.ACCEPTED;
+        }
+
+        @Override
+        VendOutcome selectProduct(VendingFleet fleet, int machine, int slot) {
+            if (slot < 0 || slot >= fleet.getSlotsPerMachine()) {
+                return VendOutcome.INVALID_PRODUCT;
+            }
+            if (fleet.getStock(machine, slot) <= 0) {
+                return VendOutcome.OUT_OF_STOCK;
+            }
+            if (fleet.getInsertedMoney(machine) < fleet.getPrice(slot)) {
+                return VendOutcome.INSUFFICIENT_FUNDS;
+            }
+            fleet.setSelectedSlot(machine, slot);
+            fleet.setState(machine, DISPENSING);
+            return DISPENSING.dispenseProduct(fleet, machine);
+        }
+
+        @Override
+        VendOutcome cancelTransaction(VendingFleet fleet, int machine) {
+            fleet.returnMoney(machine);
+            fleet.setState(machine, IDLE);
+            return VendOutcome.CANCELLED;
+        }
+
+        @Override
+        VendOutcome refillProducts(VendingFleet fleet, int machine) {
+            return VendOutcome.BUSY;
+        }
+    },
+
+    DISPENSING {
+        @Override
+        VendOutcome insertMoney(VendingFleet fleet, int machine, int amount) {
+            return VendOutcome.BUSY;
+        }
+
+        @Override
+        VendOutcome selectProduct(VendingFleet fleet, int machine, int slot) {
+            return VendOutcome.BUSY;
+        }
+
+        @Override
+        VendOutcome dispenseProduct(VendingFleet fleet, int machine) {
+            int slot = fleet.getSelectedSlot(machine);
+            if (slot < 0) {
+                fleet.setState(machine, IDLE);
+                return VendOutcome.NO_SELECTION;
+            }
+            fleet.takeItem(machine, slot);
+            fleet.returnMoney(machine);
+            fleet.setSelectedSlot(machine, -1);
+            fleet.setState(machine, fleet.hasAnyStock(machine) ? IDLE : OUT_OF_STOCK);
+            return VendOutcome.DISPENSED;
+        }
+
+        @Override
+        VendOutcome cancelTransaction(VendingFleet fleet, int machine) {
+            return VendOutcome.BUSY;
+        }
+
+        @Override
+        VendOutcome refillProducts(VendingFleet fleet, int machine) {
+            return VendOutcome.BUSY;
+        }
+    },
+
+    OUT_OF_STOCK {
+        @Override
+        VendOutcome insertMoney(VendingFleet fleet, int machine, int amount) {
+            return VendOutcome.MACHINE_EMPTY;
+        }
+
+        @Override
+        VendOutcome selectProduct(VendingFleet fleet, int machine, int slot) {
+            return VendOutcome.MACHINE_EMPTY;
+        }
+
+        @Override
+        VendOutcome refillProducts(VendingFleet fleet, int machine) {
+            fleet.refill(machine);
+            fleet.setState(machine, IDLE);
+            return VendOutcome.REFILLED;
+        }
+    };
+
+    private static final FleetState[] VALUES = values();
+
+    static FleetState of(byte ordinal) {
+        return VALUES[ordinal];
+    }
+
+    abstract VendOutcome insertMoney(VendingFleet fleet, int machine, int amount);
+
+    abstract VendOutcome selectProduct(VendingFleet fleet, int machine, int slot);
+
+    VendOutcome dispenseProduct(VendingFleet fleet, int machine) {
+        return VendOutcome.NO_SELECTION;
+    }
+
+    VendOutcome cancelTransaction(VendingFleet fleet, int machine) {
+        return VendOutcome.NO_TRANSACTION;
+    }
+
+    abstract VendOutcome refillProducts(VendingFleet fleet, int machine);
+}
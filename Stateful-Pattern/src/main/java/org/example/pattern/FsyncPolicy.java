@@ -0,0 +1,13 @@
+package org.example.pattern;
+
+/**
+ * When VendingJournal forces written events to stable storage
+ */
+public enum FsyncPolicy {
+    /** Never fsync explicitly; the OS writes the data back eventually (fastest, may lose recent events on power loss) */
+    NONE,
+    /** fsync once per group commit */
+    GROUP,
+    /** Write and fsync every single event (slowest, nothing acknowledged is ever lost) */
+    ALWAYS
+}
@@ -4,22 +4,22 @@ package org.example.pattern;
  * Has Money State - Money has been inserted, waiting for product selection
  */
 public class HasMoneyState implements VendingMachineState {
-    private VendingMachine vendingMachine;
+    private VendingContext vendingMachine;
     
-    public HasMoneyState(VendingMachine vendingMachine) {
+    public HasMoneyState(VendingContext vendingMachine) {
         this.vendingMachine = vendingMachine;
     }
     
     @Override
     public void insertMoney(int amount) {
         if (amount <= 0) {
-            System.out.println("Please insert a valid amount of money.");
+            vendingMachine.emit(VendingEvent.INVALID_AMOUNT, null, amount);
             return;
         }
         
-        System.out.println("Additional money inserted: $" + amount);
+        vendingMachine.emit(VendingEvent.ADDITIONAL_MONEY_INSERTED, null, amount);
         vendingMachine.addMoney(amount);
-        System.out.println("Total money: $" + vendingMachine.getInsertedMoney());
+        vendingMachine.emit(VendingEvent.TOTAL_MONEY, null, vendingMachine.getInsertedMoney());
     }
     
     @Override
@@ -27,22 +27,28 @@ public class HasMoneyState implements VendingMachineState {
         Product product = vendingMachine.getProduct(productCode);
         
         if (product == null) {
-            System.out.println("Invalid product code: " + productCode);
+            vendingMachine.emit(VendingEvent.INVALID_PRODUCT, productCode, 0);
             return;
         }
         
         if (!vendingMachine.isProductAvailable(productCode)) {
-            System.out.println("Sorry, " + product.getName() + " is out of stock.");
+            vendingMachine.emit(VendingEvent.PRODUCT_OUT_OF_STOCK, product.getName(), 0);
             return;
         }
         
         if (vendingMachine.getInsertedMoney() < product.getPrice()) {
             int needed = product.getPrice() - vendingMachine.getInsertedMoney();
-            System.out.println("Insufficient funds. Need $" + needed + " more.");
+            vendingMachine.emit(VendingEvent.INSUFFICIENT_FUNDS, product.getName(), needed);
             return;
         }
         
-        System.out.println("Product selected: " + product.getName());
+        int change = vendingMachine.getInsertedMoney() - product.getPrice();
+        if (!vendingMachine.canMakeChange(change)) {
+            vendingMachine.emit(VendingEvent.CANNOT_MAKE_CHANGE, product.getName(), change);
+            return;
+        }
+        
+        vendingMachine.emit(VendingEvent.PRODUCT_SELECTED, product.getName(), product.getPrice());
         vendingMachine.setSelectedProduct(product);
         vendingMachine.setState(vendingMachine.getDispensingState());
         vendingMachine.dispenseProduct();
@@ -50,18 +56,18 @@ public class HasMoneyState implements VendingMachineState {
     
     @Override
     public void dispenseProduct() {
-        System.out.println("Please select a product first.");
+        vendingMachine.emit(VendingEvent.SELECT_PRODUCT_FIRST, null, 0);
     }
     
     @Override
     public void cancelTransaction() {
         int returnedMoney = vendingMachine.returnMoney();
-        System.out.println("Transaction cancelled. Returning $" + returnedMoney);
+        vendingMachine.emit(VendingEvent.TRANSACTION_CANCELLED, null, returnedMoney);
         vendingMachine.setState(vendingMachine.getIdleState());
     }
     
     @Override
     public void refillProducts() {
-        System.out.println("Cannot refill while transaction is in progress. Please cancel first.");
+        vendingMachine.emit(VendingEvent.REFILL_REJECTED_IN_TRANSACTION, null, 0);
     }
 }
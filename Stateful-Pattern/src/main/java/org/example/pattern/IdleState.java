@@ -4,43 +4,43 @@ package org.example.pattern;
  * Idle State - Waiting for money to be inserted
  */
 public class IdleState implements VendingMachineState {
-    private VendingMachine vendingMachine;
+    private VendingContext vendingMachine;
     
-    public IdleState(VendingMachine vendingMachine) {
+    public IdleState(VendingContext vendingMachine) {
         this.vendingMachine = vendingMachine;
     }
     
     @Override
     public void insertMoney(int amount) {
         if (amount <= 0) {
-            System.out.println("Please insert a valid amount of money.");
+            vendingMachine.emit(VendingEvent.INVALID_AMOUNT, null, amount);
             return;
         }
         
-        System.out.println("Money inserted: $" + amount);
+        vendingMachine.emit(VendingEvent.MONEY_INSERTED, null, amount);
         vendingMachine.addMoney(amount);
         vendingMachine.setState(vendingMachine.getHasMoneyState());
     }
     
     @Override
     public void selectProduct(String productCode) {
-        System.out.println("Please insert money first.");
+        vendingMachine.emit(VendingEvent.INSERT_MONEY_FIRST, productCode, 0);
     }
     
     @Override
     public void dispenseProduct() {
-        System.out.println("Please insert money and select a product first.");
+        vendingMachine.emit(VendingEvent.INSERT_MONEY_AND_SELECT_FIRST, null, 0);
     }
     
     @Override
     public void cancelTransaction() {
-        System.out.println("No transaction to cancel.");
+        vendingMachine.emit(VendingEvent.NO_TRANSACTION, null, 0);
     }
     
     @Override
     public void refillProducts() {
-        System.out.println("Refilling products...");
+        vendingMachine.emit(VendingEvent.REFILLING, null, 0);
         vendingMachine.refillAllProducts();
-        System.out.println("Products refilled successfully!");
+        vendingMachine.emit(VendingEvent.REFILLED, null, 0);
     }
 }
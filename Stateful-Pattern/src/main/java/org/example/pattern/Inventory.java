@@ -0,0 +1,185 @@
+package org.example.pattern;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Inventory of a vending machine: products, their slots and stock levels.
+ *
+ * Besides the per-slot quantities it maintains the number of slots in stock and a bitset
+ * of slots in stock, both updated incrementally on every change. That makes
+ * "is anything left?" O(1) instead of a scan over all slots.
+ *
+ * A refill is recorded as a new refill epoch rather than writing every slot: a slot whose
+ * epoch is older than the current one is at the refill level. That keeps refillAll at
+ * O(words of the bitset). Not thread-safe.
+ */
+public class Inventory {
+    private final Map<String, Integer> slotByCode = new HashMap<>();
+    private Product[] products = new Product[8];
+    private int[] quantities = new int[8];
+    private int[] slotEpochs = new int[8];
+    private long[] inStock = new long[1];
+    private int slotCount;
+    private int inStockCount;
+
+    private int refillEpoch;
+    private int refillQuantity;
+
+    /**
+     * Adds a product in a new slot, or replaces the product and quantity of an existing code.
+     */
+    public void addProduct(Product product, int quantity) {
+        Integer existing = slotByCode.get(product.getCode());
+        int slot;
+        if (existing != null) {
+            slot = existing;
+        } else {
+            slot = slotCount++;
+            ensureCapacity(slotCount);
+            slotByCode.put(product.getCode(), slot);
+        }
+        products[slot] = product;
+        setQuantity(slot, quantity);
+    }
+
+    public Product getProduct(String code) {
+        Integer slot = slotByCode.get(code);
+        return slot == null ? null : products[slot];
+    }
+
+    /** Slot of the product code, or -1 if unknown */
+    public int slotOf(String code) {
+        Integer slot = slotByCode.get(code);
+        return slot == null ? -1 : slot;
+    }
+
+    public Product getProduct(int slot) {
+        return products[slot];
+    }
+
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    public int getQuantity(String code) {
+        int slot = slotOf(code);
+        return slot < 0 ? 0 : getQuantity(slot);
+    }
+
+    public int getQuantity(int slot) {
+        return slotEpochs[slot] == refillEpoch ? quantities[slot] : refillQuantity;
+    }
+
+    public boolean isAvailable(String code) {
+        int slot = slotOf(code);
+        return slot >= 0 && isAvailable(slot);
+    }
+
+    public boolean isAvailable(int slot) {
+        return (inStock[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    /**
+     * Takes one item of the product.
+     * @return false if the product is unknown or sold out
+     */
+    public boolean take(String code) {
+        int slot = slotOf(code);
+        return slot >= 0 && take(slot);
+    }
+
+    public boolean take(int slot) {
+        int quantity = getQuantity(slot);
+        if (quantity <= 0) {
+            return false;
+        }
+        setQuantity(slot, quantity - 1);
+        return true;
+    }
+
+    /** O(1): maintained count of slots with stock */
+    public boolean hasAnyStock() {
+        return inStockCount > 0;
+    }
+
+    public int getInStockSlotCount() {
+        return inStockCount;
+    }
+
+    /** First slot at or after {@code fromSlot} that has stock, or -1 */
+    public int nextAvailableSlot(int fromSlot) {
+        if (fromSlot >= slotCount) {
+            return -1;
+        }
+        int word = fromSlot >>> 6;
+        long bits = inStock[word] & (-1L << fromSlot);
+        while (true) {
+            if (bits != 0) {
+                int slot = (word << 6) + Long.numberOfTrailingZeros(bits);
+                return slot < slotCount ? slot : -1;
+            }
+            if (++word == inStock.length) {
+                return -1;
+            }
+            bits = inStock[word];
+        }
+    }
+
+    /**
+     * Sets every slot to {@code quantity} in O(words of the bitset).
+     */
+    public void refillAll(int quantity) {
+        refillEpoch++;
+        refillQuantity = quantity;
+        if (quantity > 0 && slotCount > 0) {
+            Arrays.fill(inStock, 0, slotCount >>> 6, -1L);
+            int remainder = slotCount & 63;
+            if (remainder != 0) {
+                inStock[slotCount >>> 6] = (1L << remainder) - 1;
+            }
+            inStockCount = slotCount;
+        } else {
+            Arrays.fill(inStock, 0L);
+            inStockCount = 0;
+        }
+    }
+
+    /**
+     * Visits every product with its quantity, in the iteration order of the code index.
+     */
+    public void forEach(ObjIntConsumer<Product> action) {
+        for (Integer slot : slotByCode.values()) {
+            action.accept(products[slot], getQuantity(slot));
+        }
+    }
+
+    /**
+     * Sets the stock of a slot directly, e.g. when restoring it from a journal.
+     */
+    public void setQuantity(int slot, int quantity) {
+        boolean wasAvailable = isAvailable(slot);
+        quantities[slot] = quantity;
+        slotEpochs[slot] = refillEpoch;
+        boolean available = quantity > 0;
+        if (available != wasAvailable) {
+            inStock[slot >>> 6] ^= 1L << slot;
+            inStockCount += available ? 1 : -1;
+        }
+    }
+
+    private void ensureCapacity(int slots) {
+        if (slots > products.length) {
+            int capacity = Math.max(slots, products.length * 2);
+            products = Arrays.copyOf(products, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+            slotEpochs = Arrays.copyOf(slotEpochs, capacity);
+        }
+        int words = (slots + 63) >>> 6;
+        if (words > inStock.length) {
+            inStock = Arrays.copyOf(inStock, Math.max(words, inStock.length * 2));
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package org.example.pattern;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Sell-through rates and stock levels for every slot of a fleet, from its dispense events.
+ *
+ * The rate of a slot is an exponentially decayed count of its sales. It is kept with
+ * forward decay: a sale at second t adds e^((t - landmark) / tau) instead of decaying
+ * the counter on every event, and the counter is scaled by e^(-(now - landmark) / tau)
+ * only when read. Recording a sale is then one table lookup and one add, and the
+ * contributions of different events are independent of order, so shards can be
+ * ingested in parallel. The landmark moves forward (rescaling every counter) before
+ * the weights could overflow.
+ *
+ * Events come either live from VendingMachines registered with {@link #track}, or in bulk
+ * from a FleetEventLog through {@link #ingest}. Time only moves when the owner calls
+ * {@link #advanceTo} or ingests a log. Not thread-safe, except that ingest itself runs on
+ * a ForkJoinPool.
+ */
+public class InventoryAnalytics {
+    private static final int MIN_SHARD_EVENTS = 1 << 16;
+    /**
+     * Largest exponent of a weight. A double overflows past e^709; the rest is headroom for
+     * the weighted sums of many sales.
+     */
+    private static final int MAX_WEIGHT_EXPONENT = 600;
+    /** Shortest half-life that keeps e^(MAX_SECONDS / tau) within MAX_WEIGHT_EXPONENT */
+    private static final long MIN_HALF_LIFE_SECONDS =
+            (long) Math.ceil(FleetEventLog.MAX_SECONDS * Math.log(2) / MAX_WEIGHT_EXPONENT);
+
+    private final int machineCount;
+    private final int slotsPerMachine;
+    private final int slotCapacity;
+    private final double tau;
+    /** weights[s] = e^(s / tau) for a sale s seconds after the landmark */
+    private final double[] weights;
+
+    private final double[] weightedSales;
+    private final int[] stock;
+    private long landmark;
+    private long now;
+    private double decay = 1;
+    private long dispenses;
+    private long refills;
+
+    /**
+     * @param slotCapacity    most items a slot holds
+     * @param halfLifeSeconds time after which a sale counts half as much
+     * @param startSecond     the clock second the analytics start at
+     */
+    public InventoryAnalytics(int machineCount, int slotsPerMachine, int slotCapacity,
+                              long halfLifeSeconds, long startSecond) {
+        this.tau = halfLifeSeconds / Math.log(2);
+        if (halfLifeSeconds < MIN_HALF_LIFE_SECONDS) {
+            throw new IllegalArgumentException("Half-life must be at least " + MIN_HALF_LIFE_SECONDS
+                    + " seconds: " + halfLifeSeconds);
+        }
+        this.machineCount = machineCount;
+        this.slotsPerMachine = slotsPerMachine;
+        this.slotCapacity = slotCapacity;
+        this.weights = new double[FleetEventLog.MAX_SECONDS];
+        for (int second = 0; second < weights.length; second++) {
+            weights[second] = Math.exp(second / tau);
+        }
+        int slotCount = VendingFleet.slotArrayLength(machineCount, slotsPerMachine);
+        this.weightedSales = new double[slotCount];
+        this.stock = new int[slotCount];
+        this.landmark = startSecond;
+        this.now = startSecond;
+    }
+
+    /**
+     * Starts following the machine's sales as machine {@code id}, from its current stock.
+     */
+    public void track(VendingMachine machine, int id) {
+        Inventory inventory = machine.getInventory();
+        if (inventory.getSlotCount() > slotsPerMachine) {
+            throw new IllegalArgumentException("Machine has " + inventory.getSlotCount()
+                    + " slots, analytics track " + slotsPerMachine);
+        }
+        int base = base(id);
+        for (int slot = 0; slot < slotsPerMachine; slot++) {
+            stock[base + slot] = slot < inventory.getSlotCount() ? inventory.getQuantity(slot) : 0;
+        }
+        machine.trackSales(this, id);
+    }
+
+    /**
+     * Moves the clock to {@code second}; later live events are recorded at that time.
+     */
+    public void advanceTo(long second) {
+        if (second < now) {
+            throw new IllegalArgumentException("Time cannot go back: " + second + " < " + now);
+        }
+        now = second;
+        if (now - landmark >= FleetEventLog.MAX_SECONDS) {
+            moveLandmark(now);
+        }
+        decay = Math.exp(-(now - landmark) / tau);
+    }
+
+    /** One item sold from the slot at the current time */
+    public void recordDispense(int machine, int slot) {
+        int index = index(machine, slot);
+        weightedSales[index] += weights[(int) (now - landmark)];
+        if (stock[index] > 0) {
+            stock[index]--;
+        }
+        dispenses++;
+    }
+
+    /** Every slot of the machine restocked to {@code quantity} at the current time */
+    public void recordRefill(int machine, int quantity) {
+        int from = base(machine);
+        Arrays.fill(stock, from, from + slotsPerMachine, Math.min(quantity, slotCapacity));
+        refills++;
+    }
+
+    /**
+     * Applies every event of the log, one fork/join task per group of shards, and moves
+     * the clock to the end of the log.
+     *
+     * @throws IllegalArgumentException if the log starts before the current time
+     */
+    public void ingest(FleetEventLog log, ForkJoinPool pool) {
+        if (log.getMachineCount() > machineCount) {
+            throw new IllegalArgumentException("Log covers " + log.getMachineCount() + " machines, analytics "
+                    + machineCount);
+        }
+        if (log.getStartSecond() < now) {
+            throw new IllegalArgumentException("Log starts at " + log.getStartSecond() + ", before " + now);
+        }
+        moveLandmark(log.getStartSecond());
+        long[] totals = new long[2];
+        pool.invoke(new IngestTask(log, 0, log.getShardCount(), totals));
+        dispenses += totals[0];
+        refills += totals[1];
+        advanceTo(log.getEndSecond());
+    }
+
+    private final class IngestTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final FleetEventLog log;
+        private final int fromShard;
+        private final int toShard;
+        private final long[] totals;
+
+        IngestTask(FleetEventLog log, int fromShard, int toShard, long[] totals) {
+            this.log = log;
+            this.fromShard = fromShard;
+            this.toShard = toShard;
+            this.totals = totals;
+        }
+
+        @Override
+        protected void compute() {
+            long events = 0;
+            for (int shard = fromShard; shard < toShard; shard++) {
+                events += log.getShardSize(shard);
+            }
+            if (toShard - fromShard > 1 && events > MIN_SHARD_EVENTS) {
+                int middle = (fromShard + toShard) >>> 1;
+                long[] left = new long[2];
+                long[] right = new long[2];
+                invokeAll(new IngestTask(log, fromShard, middle, left),
+                        new IngestTask(log, middle, toShard, right));
+                totals[0] = left[0] + right[0];
+                totals[1] = left[1] + right[1];
+                return;
+            }
+            for (int shard = fromShard; shard < toShard; shard++) {
+                ingestShard(log.getShard(shard), log.getShardSize(shard), totals);
+            }
+        }
+    }
+
+    /** Index of the machine's first slot in the per-slot arrays */
+    private int base(int machine) {
+        return Objects.checkIndex(machine, machineCount) * slotsPerMachine;
+    }
+
+    private int index(int machine, int slot) {
+        return base(machine) + Objects.checkIndex(slot, slotsPerMachine);
+    }
+
+    /** The shard's machines belong to this task alone, so their counters need no locking */
+    private void ingestShard(long[] events, int size, long[] totals) {
+        double[] weightedSales = this.weightedSales;
+        int[] stock = this.stock;
+        int slots = slotsPerMachine;
+        long dispensed = 0;
+        for (int i = 0; i < size; i++) {
+            long event = events[i];
+            int base = FleetEventLog.machine(event) * slots;
+            if (FleetEventLog.kind(event) == FleetEventLog.DISPENSE) {
+                int index = base + FleetEventLog.slot(event);
+                weightedSales[index] += weights[FleetEventLog.second(event)];
+                stock[index] = Math.max(0, stock[index] - 1);
+                dispensed++;
+            } else {
+                Arrays.fill(stock, base, base + slots, Math.min(FleetEventLog.slot(event), slotCapacity));
+            }
+        }
+        totals[0] += dispensed;
+        totals[1] += size - dispensed;
+    }
+
+    /** Rescales every counter so that weights are relative to {@code second} */
+    private void moveLandmark(long second) {
+        double factor = Math.exp(-(second - landmark) / tau);
+        for (int i = 0; i < weightedSales.length; i++) {
+            weightedSales[i] *= factor;
+        }
+        landmark = second;
+        decay = Math.exp(-(now - landmark) / tau);
+    }
+
+    /** Decayed sales of the slot; for a steady rate r per second this approaches r * tau */
+    public double getDecayedSales(int machine, int slot) {
+        return weightedSales[index(machine, slot)] * decay;
+    }
+
+    /** Estimated sales of the slot per hour */
+    public double getSalesPerHour(int machine, int slot) {
+        return getDecayedSales(machine, slot) / tau * 3600;
+    }
+
+    public int getStock(int machine, int slot) {
+        return stock[index(machine, slot)];
+    }
+
+    /**
+     * Predicted clock second the slot runs empty at its current sales rate.
+     *
+     * @return the current time if it is already empty, Long.MAX_VALUE if it has no sales
+     */
+    public long predictStockOut(int machine, int slot) {
+        int quantity = getStock(machine, slot);
+        if (quantity == 0) {
+            return now;
+        }
+        double perSecond = getDecayedSales(machine, slot) / tau;
+        if (perSecond <= 0) {
+            return Long.MAX_VALUE;
+        }
+        return now + (long) Math.min(quantity / perSecond, Long.MAX_VALUE / 2);
+    }
+
+    public int getMachineCount() {
+        return machineCount;
+    }
+
+    public int getSlotsPerMachine() {
+        return slotsPerMachine;
+    }
+
+    public int getSlotCapacity() {
+        return slotCapacity;
+    }
+
+    public long getCurrentSecond() {
+        return now;
+    }
+
+    public long getDispenseCount() {
+        return dispenses;
+    }
+
+    public long getRefillCount() {
+        return refills;
+    }
+}
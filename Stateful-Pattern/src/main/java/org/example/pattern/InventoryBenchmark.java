@@ -0,0 +1,83 @@
+package org.example.pattern;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Inventory benchmark
+ * Empties a machine with 10k slots one dispense at a time, checking after every dispense
+ * whether the machine is now out of stock, as DispensingState does. Compares the
+ * previous HashMap + stream scan with the Inventory component's maintained counter.
+ *
+ * Usage: java org.example.pattern.InventoryBenchmark [slots] [itemsPerSlot]
+ */
+public class InventoryBenchmark {
+    public static void main(String[] args) {
+        int slots = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int itemsPerSlot = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        String[] codes = new String[slots];
+        for (int i = 0; i < slots; i++) {
+            codes[i] = "S" + i;
+        }
+
+        // Warm-up
+        for (int i = 0; i < 3; i++) {
+            runHashMap(codes, itemsPerSlot);
+            runInventory(codes, itemsPerSlot);
+        }
+
+        long dispenses = (long) slots * itemsPerSlot;
+        long before = runHashMap(codes, itemsPerSlot);
+        long after = runInventory(codes, itemsPerSlot);
+        System.out.printf("%d slots, %d dispenses%n", slots, dispenses);
+        System.out.printf("Before (HashMap + stream scan): %.0f dispenses/s%n", dispenses * 1e9 / before);
+        System.out.printf("After  (Inventory counter):     %.0f dispenses/s%n", dispenses * 1e9 / after);
+    }
+
+    /** The inventory handling VendingMachine used before the Inventory component */
+    private static long runHashMap(String[] codes, int itemsPerSlot) {
+        Map<String, Integer> stock = new HashMap<>();
+        for (String code : codes) {
+            stock.put(code, itemsPerSlot);
+        }
+        int outOfStock = 0;
+        long start = System.nanoTime();
+        for (String code : codes) {
+            for (int i = 0; i < itemsPerSlot; i++) {
+                stock.put(code, stock.get(code) - 1);
+                if (!stock.values().stream().anyMatch(quantity -> quantity > 0)) {
+                    outOfStock++;
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        check(outOfStock);
+        return elapsed;
+    }
+
+    private static long runInventory(String[] codes, int itemsPerSlot) {
+        Inventory inventory = new Inventory();
+        for (String code : codes) {
+            inventory.addProduct(new Product(code, code, 1), itemsPerSlot);
+        }
+        int outOfStock = 0;
+        long start = System.nanoTime();
+        for (String code : codes) {
+            for (int i = 0; i < itemsPerSlot; i++) {
+                inventory.take(code);
+                if (!inventory.hasAnyStock()) {
+                    outOfStock++;
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        check(outOfStock);
+        return elapsed;
+    }
+
+    private static void check(int outOfStockTransitions) {
+        if (outOfStockTransitions != 1) {
+            throw new IllegalStateException("Expected exactly one out-of-stock transition, got " + outOfStockTransitions);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package org.example.pattern;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Journal recovery benchmark
+ * Writes a long history of purchase cycles to a VendingJournal, then recovers a fresh machine
+ * from it twice: by replaying the whole log, and from the latest snapshot plus the tail.
+ * The cycles are driven through the machine's own mutators, so nothing is printed per event.
+ *
+ * Usage: java org.example.pattern.JournalRecoveryBenchmark [events] [snapshotEveryEvents]
+ */
+public class JournalRecoveryBenchmark {
+    private static final int GROUP_COMMIT_EVENTS = 4096;
+
+    public static void main(String[] args) throws IOException {
+        long events = args.length > 0 ? Long.parseLong(args[0]) : 50_000_000L;
+        long snapshotEvery = args.length > 1 ? Long.parseLong(args[1]) : 1_000_000L;
+
+        Path fullDirectory = Files.createTempDirectory("vending-journal-full");
+        Path snapshotDirectory = Files.createTempDirectory("vending-journal-snap");
+        try {
+            VendingMachine original = new VendingMachine();
+            long start = System.nanoTime();
+            long written;
+            try (VendingJournal full = new VendingJournal(fullDirectory, GROUP_COMMIT_EVENTS, FsyncPolicy.NONE, 0);
+                 VendingJournal withSnapshots = new VendingJournal(snapshotDirectory, GROUP_COMMIT_EVENTS,
+                         FsyncPolicy.NONE, snapshotEvery)) {
+                written = generate(original, full, events);
+                generate(new VendingMachine(), withSnapshots, events);
+                System.out.printf("Wrote %d events (%d MB) twice in %.1f s%n",
+                        written, full.getWrittenBytes() >> 20, (System.nanoTime() - start) / 1e9);
+            }
+
+            recover("Full replay", fullDirectory, original);
+            recover("Snapshot + tail", snapshotDirectory, original);
+        } finally {
+            delete(fullDirectory);
+            delete(snapshotDirectory);
+        }
+    }
+
+    /** Purchase cycles as the states perform them, refilling whenever the machine runs dry */
+    private static long generate(VendingMachine machine, VendingJournal journal, long events) {
+        machine.setJournal(journal);
+        String[] codes = {"A1", "A2", "B1", "B2"};
+        int cycle = 0;
+        while (journal.getEventCount() < events) {
+            Product product = machine.getProduct(codes[cycle++ & 3]);
+            machine.setState(machine.getHasMoneyState());
+            machine.addMoney(50);
+            machine.setSelectedProduct(product);
+            machine.setState(machine.getDispensingState());
+            machine.reduceStock(product.getCode());
+            machine.returnMoney();
+            machine.resetSelectedProduct();
+            if (machine.hasAnyStock()) {
+                machine.setState(machine.getIdleState());
+            } else {
+                machine.setState(machine.getOutOfStockState());
+                machine.refillAllProducts();
+                machine.setState(machine.getIdleState());
+            }
+        }
+        machine.setJournal(null);
+        return journal.getEventCount();
+    }
+
+    private static void recover(String label, Path directory, VendingMachine expected) throws IOException {
+        VendingMachine machine = new VendingMachine();
+        long start = System.nanoTime();
+        long replayed;
+        try (VendingJournal journal = new VendingJournal(directory, GROUP_COMMIT_EVENTS, FsyncPolicy.NONE, 0)) {
+            replayed = journal.recover(machine);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-16s replayed %,d events in %.3f s (%s)%n",
+                label + ":", replayed, seconds, sameState(machine, expected) ? "state matches" : "STATE MISMATCH");
+    }
+
+    private static boolean sameState(VendingMachine a, VendingMachine b) {
+        if (a.getStateOrdinal() != b.getStateOrdinal() || a.getInsertedMoney() != b.getInsertedMoney()
+                || a.getSelectedProduct() != null != (b.getSelectedProduct() != null)) {
+            return false;
+        }
+        Inventory left = a.getInventory();
+        Inventory right = b.getInventory();
+        for (int slot = 0; slot < left.getSlotCount(); slot++) {
+            if (left.getQuantity(slot) != right.getQuantity(slot)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
@@ -7,9 +7,15 @@ package org.example.pattern;
  * The object will appear to change its class.
  */
 public class Main {
+    /**
+     * @param args "table" to run the scenarios on the table-driven machine
+     */
     public static void main(String[] args) {
-        VendingMachine vendingMachine = new VendingMachine();
-        
+        boolean tableDriven = args.length > 0 && args[0].equals("table");
+        runScenarios(tableDriven ? new TableDrivenVendingMachine() : new VendingMachine());
+    }
+    
+    static void runScenarios(VendingMachine vendingMachine) {
         System.out.println("=== VENDING MACHINE STATE PATTERN DEMO ===\n");
         
         // Display inventory
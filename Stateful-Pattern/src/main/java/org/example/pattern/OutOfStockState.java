@@ -4,37 +4,37 @@ package org.example.pattern;
  * Out of Stock State - No products available
  */
 public class OutOfStockState implements VendingMachineState {
-    private VendingMachine vendingMachine;
+    private VendingContext vendingMachine;
     
-    public OutOfStockState(VendingMachine vendingMachine) {
+    public OutOfStockState(VendingContext vendingMachine) {
         this.vendingMachine = vendingMachine;
     }
     
     @Override
     public void insertMoney(int amount) {
-        System.out.println("Sorry, vending machine is out of stock. Cannot accept money.");
+        vendingMachine.emit(VendingEvent.MACHINE_EMPTY_MONEY_REJECTED, null, amount);
     }
     
     @Override
     public void selectProduct(String productCode) {
-        System.out.println("Sorry, vending machine is out of stock.");
+        vendingMachine.emit(VendingEvent.MACHINE_EMPTY, productCode, 0);
     }
     
     @Override
     public void dispenseProduct() {
-        System.out.println("No products available.");
+        vendingMachine.emit(VendingEvent.NO_PRODUCTS, null, 0);
     }
     
     @Override
     public void cancelTransaction() {
-        System.out.println("No transaction to cancel.");
+        vendingMachine.emit(VendingEvent.NO_TRANSACTION, null, 0);
     }
     
     @Override
     public void refillProducts() {
-        System.out.println("Refilling products...");
+        vendingMachine.emit(VendingEvent.REFILLING, null, 0);
         vendingMachine.refillAllProducts();
-        System.out.println("Products refilled successfully!");
+        vendingMachine.emit(VendingEvent.REFILLED, null, 0);
         vendingMachine.setState(vendingMachine.getIdleState());
     }
 }
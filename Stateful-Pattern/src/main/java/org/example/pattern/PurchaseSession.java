@@ -0,0 +1,196 @@
+package org.example.pattern;
+
+/**
+ * One customer's session on a ConcurrentVendingMachine.
+ *
+ * The session is a context of its own (current state, inserted money, selected product)
+ * driven by the normal state objects, but all inventory operations go to the shared
+ * machine's atomic stock. If another session takes the last item between selection and
+ * dispensing, DispensingState refunds the customer instead of overselling. Whether the
+ * machine is out of stock is shared, so it is checked again at the start of every operation
+ * of a session without a purchase under way. Change is not limited by coins. A session is used by one thread at a time.
+ */
+public class PurchaseSession implements VendingContext {
+    private final ConcurrentVendingMachine machine;
+    private final VendingMachineState idleState;
+    private final VendingMachineState hasMoneyState;
+    private final VendingMachineState dispensingState;
+    private final VendingMachineState outOfStockState;
+    private VendingMachineState currentState;
+    private int insertedMoney;
+    private Product selectedProduct;
+    private int itemsDispensed;
+    private VendingEventSink eventSink = ConsoleEventSink.INSTANCE;
+
+    PurchaseSession(ConcurrentVendingMachine machine) {
+        this.machine = machine;
+        idleState = new IdleState(this);
+        hasMoneyState = new HasMoneyState(this);
+        dispensingState = new DispensingState(this);
+        outOfStockState = new OutOfStockState(this);
+        currentState = idleState;
+    }
+
+    /**
+     * Sends the session's messages to the sink instead of the console.
+     */
+    public void setEventSink(VendingEventSink eventSink) {
+        this.eventSink = eventSink;
+    }
+
+    public VendingEventSink getEventSink() {
+        return eventSink;
+    }
+
+    @Override
+    public void emit(VendingEvent event, String subject, int amount) {
+        eventSink.emit(event, subject, amount);
+    }
+
+    public void insertMoney(int amount) {
+        state().insertMoney(amount);
+    }
+
+    public void selectProduct(String productCode) {
+        state().selectProduct(productCode);
+    }
+
+    @Override
+    public void dispenseProduct() {
+        state().dispenseProduct();
+    }
+
+    /**
+     * The current state, moved between idle and out of stock if the shared stock changed
+     * since this session last looked: another session may have sold the last item, or the
+     * machine may have been refilled.
+     */
+    private VendingMachineState state() {
+        if (currentState == idleState || currentState == outOfStockState) {
+            currentState = machine.hasAnyStock() ? idleState : outOfStockState;
+        }
+        return currentState;
+    }
+
+    public void cancelTransaction() {
+        state().cancelTransaction();
+    }
+
+    public void refillProducts() {
+        state().refillProducts();
+    }
+
+    @Override
+    public void setState(VendingMachineState state) {
+        this.currentState = state;
+    }
+
+    @Override
+    public VendingMachineState getIdleState() {
+        return idleState;
+    }
+
+    @Override
+    public VendingMachineState getHasMoneyState() {
+        return hasMoneyState;
+    }
+
+    @Override
+    public VendingMachineState getDispensingState() {
+        return dispensingState;
+    }
+
+    @Override
+    public VendingMachineState getOutOfStockState() {
+        return outOfStockState;
+    }
+
+    @Override
+    public void addMoney(int amount) {
+        insertedMoney += amount;
+    }
+
+    @Override
+    public int getInsertedMoney() {
+        return insertedMoney;
+    }
+
+    @Override
+    public void resetMoney() {
+        insertedMoney = 0;
+    }
+
+    @Override
+    public int returnMoney() {
+        int money = insertedMoney;
+        insertedMoney = 0;
+        return money;
+    }
+
+    @Override
+    public Product getProduct(String code) {
+        return machine.getProduct(code);
+    }
+
+    @Override
+    public boolean isProductAvailable(String code) {
+        return machine.isProductAvailable(code);
+    }
+
+    @Override
+    public boolean reduceStock(String code) {
+        if (!machine.tryTake(code)) {
+            return false;
+        }
+        itemsDispensed++;
+        return true;
+    }
+
+    @Override
+    public boolean hasAnyStock() {
+        return machine.hasAnyStock();
+    }
+
+    @Override
+    public void refillAllProducts() {
+        machine.refillAllProducts();
+    }
+
+    @Override
+    public boolean canMakeChange(int amount) {
+        return true;
+    }
+
+    @Override
+    public boolean payOutChange(int amount) {
+        return true;
+    }
+
+    @Override
+    public void setSelectedProduct(Product product) {
+        selectedProduct = product;
+    }
+
+    @Override
+    public Product getSelectedProduct() {
+        return selectedProduct;
+    }
+
+    @Override
+    public void resetSelectedProduct() {
+        selectedProduct = null;
+    }
+
+    public void displayInventory() {
+        machine.displayInventory(eventSink);
+    }
+
+    /** Number of items this session has taken out of the machine */
+    public int getItemsDispensed() {
+        return itemsDispensed;
+    }
+
+    public ConcurrentVendingMachine getMachine() {
+        return machine;
+    }
+}
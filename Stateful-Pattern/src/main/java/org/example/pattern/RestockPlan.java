@@ -0,0 +1,80 @@
+package org.example.pattern;
+
+/**
+ * Result of RestockPlanner: for every region, the machines to visit in route order and how
+ * many items to load into each of their slots.
+ */
+public class RestockPlan {
+    private final int slotsPerMachine;
+    private final int[][] stops;
+    private final int[][] quantities;
+    private final double[] routeLengths;
+    private final double[] nearestNeighbourLengths;
+
+    RestockPlan(int slotsPerMachine, int[][] stops, int[][] quantities, double[] routeLengths,
+                double[] nearestNeighbourLengths) {
+        this.slotsPerMachine = slotsPerMachine;
+        this.stops = stops;
+        this.quantities = quantities;
+        this.routeLengths = routeLengths;
+        this.nearestNeighbourLengths = nearestNeighbourLengths;
+    }
+
+    public int getRegionCount() {
+        return stops.length;
+    }
+
+    public int getStopCount(int region) {
+        return stops[region].length;
+    }
+
+    /** Machine of the region's {@code stop}-th visit */
+    public int getMachine(int region, int stop) {
+        return stops[region][stop];
+    }
+
+    /** Items to load into {@code slot} at the region's {@code stop}-th visit */
+    public int getQuantity(int region, int stop, int slot) {
+        return quantities[region][stop * slotsPerMachine + slot];
+    }
+
+    /** Length of the region's route from its depot through every stop and back */
+    public double getRouteLength(int region) {
+        return routeLengths[region];
+    }
+
+    public int getStopCount() {
+        int count = 0;
+        for (int[] region : stops) {
+            count += region.length;
+        }
+        return count;
+    }
+
+    public long getTotalItems() {
+        long total = 0;
+        for (int[] region : quantities) {
+            for (int quantity : region) {
+                total += quantity;
+            }
+        }
+        return total;
+    }
+
+    public double getTotalRouteLength() {
+        double total = 0;
+        for (double length : routeLengths) {
+            total += length;
+        }
+        return total;
+    }
+
+    /** Total length of the routes before 2-opt, for comparison */
+    public double getNearestNeighbourRouteLength() {
+        double total = 0;
+        for (double length : nearestNeighbourLengths) {
+            total += length;
+        }
+        return total;
+    }
+}
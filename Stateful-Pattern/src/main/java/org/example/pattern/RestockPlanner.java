@@ -0,0 +1,193 @@
+package org.example.pattern;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Plans restock visits from the sales rates of InventoryAnalytics.
+ *
+ * A machine is visited when one of its slots is predicted to run empty within the planning
+ * horizon. Each slot then gets enough items to cover its expected sales until the next
+ * visit, capped at the slot capacity, instead of every slot being filled to a fixed level.
+ *
+ * Machines belong to regions, each served by one truck from its depot. A region's route is
+ * built with nearest neighbour and then shortened with 2-opt; regions are planned in
+ * parallel on a ForkJoinPool.
+ */
+public class RestockPlanner {
+    private static final int MAX_TWO_OPT_PASSES = 50;
+
+    private final double[] x;
+    private final double[] y;
+    private final double[] depotX;
+    private final double[] depotY;
+    /** Machines of each region, concatenated; region r is [regionStart[r], regionStart[r + 1]) */
+    private final int[] regionMachines;
+    private final int[] regionStart;
+
+    /**
+     * @param x      machine locations
+     * @param y      machine locations
+     * @param region region of every machine, indexing depotX and depotY
+     */
+    public RestockPlanner(double[] x, double[] y, int[] region, double[] depotX, double[] depotY) {
+        if (x.length != y.length || x.length != region.length || depotX.length != depotY.length) {
+            throw new IllegalArgumentException("Need one location and region per machine, one location per depot");
+        }
+        this.x = x.clone();
+        this.y = y.clone();
+        this.depotX = depotX.clone();
+        this.depotY = depotY.clone();
+        int regions = depotX.length;
+        regionStart = new int[regions + 1];
+        for (int r : region) {
+            if (r < 0 || r >= regions) {
+                throw new IllegalArgumentException("Invalid region: " + r);
+            }
+            regionStart[r + 1]++;
+        }
+        for (int r = 0; r < regions; r++) {
+            regionStart[r + 1] += regionStart[r];
+        }
+        regionMachines = new int[region.length];
+        int[] fill = Arrays.copyOf(regionStart, regions);
+        for (int machine = 0; machine < region.length; machine++) {
+            regionMachines[fill[region[machine]]++] = machine;
+        }
+    }
+
+    /**
+     * @param horizonSeconds visit machines with a slot predicted empty within this time
+     * @param coverSeconds   stock each visited slot for the sales expected in this time
+     */
+    public RestockPlan plan(InventoryAnalytics analytics, long horizonSeconds, long coverSeconds, ForkJoinPool pool) {
+        if (analytics.getMachineCount() < x.length) {
+            throw new IllegalArgumentException("Analytics cover " + analytics.getMachineCount() + " machines, planner "
+                    + x.length);
+        }
+        int regions = depotX.length;
+        int slots = analytics.getSlotsPerMachine();
+        int[][] stops = new int[regions][];
+        int[][] quantities = new int[regions][];
+        double[] routeLengths = new double[regions];
+        double[] nearestNeighbourLengths = new double[regions];
+        pool.submit(() -> IntStream.range(0, regions).parallel().forEach(region -> {
+            // Select the machines and quantities, then order the visits
+            int[] machines = new int[regionStart[region + 1] - regionStart[region]];
+            int[] loads = new int[machines.length * slots];
+            int count = 0;
+            long visitBefore = analytics.getCurrentSecond() + horizonSeconds;
+            for (int i = regionStart[region]; i < regionStart[region + 1]; i++) {
+                int machine = regionMachines[i];
+                boolean due = false;
+                int items = 0;
+                for (int slot = 0; slot < slots; slot++) {
+                    int quantity = restockQuantity(analytics, machine, slot, coverSeconds);
+                    loads[count * slots + slot] = quantity;
+                    items += quantity;
+                    due |= analytics.predictStockOut(machine, slot) < visitBefore;
+                }
+                if (due && items > 0) {
+                    machines[count++] = machine;
+                }
+            }
+            int[] order = nearestNeighbour(region, machines, count);
+            nearestNeighbourLengths[region] = length(region, machines, order);
+            twoOpt(region, machines, order);
+            routeLengths[region] = length(region, machines, order);
+
+            stops[region] = new int[count];
+            quantities[region] = new int[count * slots];
+            for (int stop = 0; stop < count; stop++) {
+                stops[region][stop] = machines[order[stop]];
+                System.arraycopy(loads, order[stop] * slots, quantities[region], stop * slots, slots);
+            }
+        })).join();
+        return new RestockPlan(slots, stops, quantities, routeLengths, nearestNeighbourLengths);
+    }
+
+    private static int restockQuantity(InventoryAnalytics analytics, int machine, int slot, long coverSeconds) {
+        double expected = analytics.getSalesPerHour(machine, slot) * coverSeconds / 3600;
+        int target = (int) Math.min(analytics.getSlotCapacity(), Math.ceil(expected));
+        return Math.max(0, target - analytics.getStock(machine, slot));
+    }
+
+    /** Visit order (indexes into machines) starting from the depot, always to the closest unvisited */
+    private int[] nearestNeighbour(int region, int[] machines, int count) {
+        int[] order = new int[count];
+        boolean[] visited = new boolean[count];
+        double fromX = depotX[region];
+        double fromY = depotY[region];
+        for (int stop = 0; stop < count; stop++) {
+            int best = -1;
+            double bestDistance = Double.MAX_VALUE;
+            for (int i = 0; i < count; i++) {
+                if (!visited[i]) {
+                    double dx = x[machines[i]] - fromX;
+                    double dy = y[machines[i]] - fromY;
+                    double distance = dx * dx + dy * dy;
+                    if (distance < bestDistance) {
+                        bestDistance = distance;
+                        best = i;
+                    }
+                }
+            }
+            visited[best] = true;
+            order[stop] = best;
+            fromX = x[machines[best]];
+            fromY = y[machines[best]];
+        }
+        return order;
+    }
+
+    /**
+     * Replaces crossing edge pairs (a, b), (c, d) with (a, c), (b, d) by reversing the path
+     * between them, until no exchange shortens the route. The depot stays at both ends.
+     */
+    private void twoOpt(int region, int[] machines, int[] order) {
+        int n = order.length;
+        boolean improved = true;
+        for (int pass = 0; improved && pass < MAX_TWO_OPT_PASSES; pass++) {
+            improved = false;
+            // Position -1 and n are the depot
+            for (int i = -1; i < n - 1; i++) {
+                for (int j = i + 2; j < n; j++) {
+                    double delta = distance(region, machines, order, i, j) + distance(region, machines, order, i + 1, j + 1)
+                            - distance(region, machines, order, i, i + 1) - distance(region, machines, order, j, j + 1);
+                    if (delta < -1e-9) {
+                        reverse(order, i + 1, j);
+                        improved = true;
+                    }
+                }
+            }
+        }
+    }
+
+    private static void reverse(int[] order, int from, int to) {
+        for (; from < to; from++, to--) {
+            int swap = order[from];
+            order[from] = order[to];
+            order[to] = swap;
+        }
+    }
+
+    /** Distance between route positions p and q, where -1 and order.length are the depot */
+    private double distance(int region, int[] machines, int[] order, int p, int q) {
+        double px = p < 0 || p >= order.length ? depotX[region] : x[machines[order[p]]];
+        double py = p < 0 || p >= order.length ? depotY[region] : y[machines[order[p]]];
+        double qx = q < 0 || q >= order.length ? depotX[region] : x[machines[order[q]]];
+        double qy = q < 0 || q >= order.length ? depotY[region] : y[machines[order[q]]];
+        double dx = px - qx;
+        double dy = py - qy;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private double length(int region, int[] machines, int[] order) {
+        double total = 0;
+        for (int p = -1; p < order.length; p++) {
+            total += distance(region, machines, order, p, p + 1);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,209 @@
+package org.example.pattern;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Restock planning benchmark
+ * Generates a day of fleet activity (machines with different demand, products with
+ * different popularity, a refill whenever a slot sells out), ingests it into InventoryAnalytics
+ * on one thread and on all cores, and plans the next restock round. Finally checks the live
+ * path: a VendingMachine tracked by the analytics reports its sales as they happen.
+ *
+ * Usage: java org.example.pattern.RestockPlanningBenchmark [events] [machines] [slots]
+ * (events beyond ~150M need a larger heap, e.g. -Xmx4g)
+ */
+public class RestockPlanningBenchmark {
+    private static final int DAY = 86_400;
+    private static final int SLOT_CAPACITY = 50;
+    private static final int MACHINES_PER_REGION = 250;
+    private static final long HALF_LIFE = 4 * 3600;
+
+    public static void main(String[] args) {
+        long events = args.length > 0 ? Long.parseLong(args[0]) : 100_000_000L;
+        int machines = args.length > 1 ? Integer.parseInt(args[1]) : 50_000;
+        int slots = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        long start = System.nanoTime();
+        FleetEventLog log = generate(events, machines, slots, ForkJoinPool.commonPool());
+        System.out.printf("Generated %,d events for %,d machines x %d slots in %.1f s (%d shards)%n",
+                log.getEventCount(), machines, slots, (System.nanoTime() - start) / 1e9, log.getShardCount());
+
+        InventoryAnalytics sequential = ingest(log, machines, slots, new ForkJoinPool(1), "1 thread");
+        InventoryAnalytics parallel = ingest(log, machines, slots, new ForkJoinPool(cores), "fork/join pool of " + cores);
+        for (int machine = 0; machine < machines; machine++) {
+            for (int slot = 0; slot < slots; slot++) {
+                if (sequential.getStock(machine, slot) != parallel.getStock(machine, slot)
+                        || sequential.getDecayedSales(machine, slot) != parallel.getDecayedSales(machine, slot)) {
+                    throw new IllegalStateException("Parallel ingest differs at machine " + machine + " slot " + slot);
+                }
+            }
+        }
+        log = null; // let the events go before planning
+
+        plan(parallel, machines, slots);
+        live();
+    }
+
+    /** One shard per ~200 machines, generated in parallel with an independent random stream each */
+    private static FleetEventLog generate(long events, int machines, int slots, ForkJoinPool pool) {
+        SplittableRandom random = new SplittableRandom(42);
+        double[] demand = new double[machines];
+        double totalDemand = 0;
+        for (int machine = 0; machine < machines; machine++) {
+            // Log-normal spread: a few busy machines, many quiet ones
+            demand[machine] = Math.exp(0.6 * gaussian(random));
+            totalDemand += demand[machine];
+        }
+        // Zipf popularity of the slots
+        double[] cumulative = new double[slots];
+        double sum = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            sum += 1.0 / (slot + 1);
+            cumulative[slot] = sum;
+        }
+        for (int slot = 0; slot < slots; slot++) {
+            cumulative[slot] /= sum;
+        }
+
+        int shards = Math.max(1, machines / 200);
+        double perDemand = events / totalDemand;
+        int capacity = (int) (events / shards * 1.1) + 1024;
+        FleetEventLog log = new FleetEventLog(machines, shards, 0, DAY, capacity);
+        long[] seeds = new long[log.getShardCount()];
+        for (int shard = 0; shard < seeds.length; shard++) {
+            seeds[shard] = random.nextLong();
+        }
+        pool.submit(() -> IntStream.range(0, log.getShardCount()).parallel().forEach(shard -> {
+            SplittableRandom shardRandom = new SplittableRandom(seeds[shard]);
+            int to = shard + 1 < log.getShardCount() ? log.getFirstMachine(shard + 1) : machines;
+            int[] stock = new int[slots];
+            for (int machine = log.getFirstMachine(shard); machine < to; machine++) {
+                simulateDay(log, machine, demand[machine] * perDemand, cumulative, stock, shardRandom);
+            }
+        })).join();
+        return log;
+    }
+
+    /** Customers arrive as a Poisson process; a machine is refilled as soon as a slot sells out */
+    private static void simulateDay(FleetEventLog log, int machine, double customers, double[] cumulative,
+                                    int[] stock, SplittableRandom random) {
+        int slots = stock.length;
+        Arrays.fill(stock, SLOT_CAPACITY);
+        // Products sit in different slots on different machines
+        int rotation = random.nextInt(slots);
+        double meanGap = DAY / Math.max(customers, 1e-9);
+        double time = 0;
+        while (true) {
+            time -= meanGap * Math.log(1 - random.nextDouble());
+            if (time >= DAY) {
+                return;
+            }
+            double pick = random.nextDouble();
+            int rank = 0;
+            while (cumulative[rank] < pick && rank < slots - 1) {
+                rank++;
+            }
+            int slot = (rank + rotation) % slots;
+            log.append((int) time, FleetEventLog.DISPENSE, machine, slot);
+            if (--stock[slot] == 0) {
+                Arrays.fill(stock, SLOT_CAPACITY);
+                log.append((int) time, FleetEventLog.REFILL, machine, SLOT_CAPACITY);
+            }
+        }
+    }
+
+    private static InventoryAnalytics ingest(FleetEventLog log, int machines, int slots, ForkJoinPool pool,
+                                             String label) {
+        InventoryAnalytics analytics = null;
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < 3; run++) {
+            analytics = new InventoryAnalytics(machines, slots, SLOT_CAPACITY, HALF_LIFE, 0);
+            long start = System.nanoTime();
+            analytics.ingest(log, pool);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        pool.shutdown();
+        System.out.printf("Ingest, %-20s %6.0f ms, %,.0f M events/s (%,d dispenses, %,d refills)%n",
+                label + ":", best / 1e6, log.getEventCount() / (best / 1e9) / 1e6,
+                analytics.getDispenseCount(), analytics.getRefillCount());
+        return analytics;
+    }
+
+    /** Machines scattered over a grid of square regions with a depot in the middle of each */
+    private static void plan(InventoryAnalytics analytics, int machines, int slots) {
+        int regions = Math.max(1, machines / MACHINES_PER_REGION);
+        int side = (int) Math.ceil(Math.sqrt(regions));
+        SplittableRandom random = new SplittableRandom(7);
+        double[] x = new double[machines];
+        double[] y = new double[machines];
+        int[] region = new int[machines];
+        double[] depotX = new double[regions];
+        double[] depotY = new double[regions];
+        for (int r = 0; r < regions; r++) {
+            depotX[r] = (r % side) * 10 + 5;
+            depotY[r] = (r / side) * 10 + 5;
+        }
+        for (int machine = 0; machine < machines; machine++) {
+            region[machine] = machine % regions;
+            x[machine] = depotX[region[machine]] - 5 + 10 * random.nextDouble();
+            y[machine] = depotY[region[machine]] - 5 + 10 * random.nextDouble();
+        }
+        RestockPlanner planner = new RestockPlanner(x, y, region, depotX, depotY);
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        planner.plan(analytics, 6 * 3600, 24 * 3600, pool); // warm-up
+        long start = System.nanoTime();
+        RestockPlan plan = planner.plan(analytics, 6 * 3600, 24 * 3600, pool);
+        long nanos = System.nanoTime() - start;
+
+        // What "fill every slot of a visited machine" would have loaded
+        long fillUp = 0;
+        for (int r = 0; r < plan.getRegionCount(); r++) {
+            for (int stop = 0; stop < plan.getStopCount(r); stop++) {
+                for (int slot = 0; slot < slots; slot++) {
+                    fillUp += SLOT_CAPACITY - analytics.getStock(plan.getMachine(r, stop), slot);
+                }
+            }
+        }
+        System.out.printf("Restock plan in %.0f ms: %,d of %,d machines due within 6 h across %d regions%n",
+                nanos / 1e6, plan.getStopCount(), machines, regions);
+        System.out.printf("  %,d items to cover 24 h of sales (filling every slot: %,d)%n",
+                plan.getTotalItems(), fillUp);
+        System.out.printf("  route length %,.0f after 2-opt, %,.0f nearest neighbour alone (%.1f%% shorter)%n",
+                plan.getTotalRouteLength(), plan.getNearestNeighbourRouteLength(),
+                100 * (1 - plan.getTotalRouteLength() / plan.getNearestNeighbourRouteLength()));
+    }
+
+    /** A Coke every 5 minutes for 3 hours on a tracked machine, refilled when it runs out */
+    private static void live() {
+        InventoryAnalytics analytics = new InventoryAnalytics(1, 4, 10, 3600, 0);
+        VendingMachine machine = new VendingMachine();
+        machine.setEventSink(VendingEventSink.NO_OP);
+        analytics.track(machine, 0);
+        for (long second = 0; second <= 3 * 3600; second += 300) {
+            analytics.advanceTo(second);
+            if (!machine.isProductAvailable("A1")) {
+                machine.refillProducts();
+            }
+            machine.insertMoney(25);
+            machine.selectProduct("A1");
+            machine.dispenseProduct();
+        }
+        int slot = machine.getInventory().slotOf("A1");
+        if (analytics.getStock(0, slot) != machine.getInventory().getQuantity(slot)) {
+            throw new IllegalStateException("Tracked stock differs from the machine's");
+        }
+        System.out.printf("Live: A1 sells %.1f/h (true rate 12/h, decayed estimate), %d left, empty in %d min%n",
+                analytics.getSalesPerHour(0, slot), analytics.getStock(0, slot),
+                (analytics.predictStockOut(0, slot) - analytics.getCurrentSecond()) / 60);
+    }
+
+    private static double gaussian(SplittableRandom random) {
+        double u = 1 - random.nextDouble();
+        double v = random.nextDouble();
+        return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * v);
+    }
+}
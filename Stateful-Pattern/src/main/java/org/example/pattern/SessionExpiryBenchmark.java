@@ -0,0 +1,125 @@
+package org.example.pattern;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Session expiry benchmark
+ * Schedules 10M concurrent idle timeouts on a TimingWheel, cancels half of them (the
+ * customers who finish their purchase), and advances time until the rest expire. For
+ * comparison, schedules and cancels 1M timeouts on a ScheduledThreadPoolExecutor. Finally
+ * checks the wiring end to end: abandoned sessions on real machines are refunded, and
+ * unwatched machines give back their timeouts and ids.
+ *
+ * Usage: java org.example.pattern.SessionExpiryBenchmark [timeouts] [machines]
+ */
+public class SessionExpiryBenchmark {
+    private static final long TIMEOUT_TICKS = 3_000; // 30 s at 10 ms ticks
+
+    public static void main(String[] args) {
+        int timeouts = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int machines = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+
+        timingWheel(timeouts / 10); // warm-up
+        timingWheel(timeouts);
+        executor(Math.min(timeouts, 1_000_000));
+        machines(machines);
+    }
+
+    private static void timingWheel(int timeouts) {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+        TimingWheel wheel = new TimingWheel(timeouts);
+        long[] handles = new long[timeouts];
+        long[] fired = new long[1];
+        TimingWheel.ExpiryHandler handler = payload -> fired[0]++;
+
+        // Sessions start over the first 10 s (1000 ticks), each with a 30 s timeout
+        int perTick = Math.max(1, timeouts / 1000);
+        long start = System.nanoTime();
+        for (int i = 0; i < timeouts; i++) {
+            if (i % perTick == 0) {
+                wheel.advance(wheel.getCurrentTick() + 1, handler);
+            }
+            handles[i] = wheel.schedule(TIMEOUT_TICKS, i);
+        }
+        long scheduleNanos = System.nanoTime() - start;
+        long heapAfter = runtime.totalMemory() - runtime.freeMemory();
+
+        start = System.nanoTime();
+        for (int i = 0; i < timeouts; i += 2) {
+            wheel.cancel(handles[i]);
+        }
+        long cancelNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        wheel.advance(wheel.getCurrentTick() + TIMEOUT_TICKS + 1, handler);
+        long expireNanos = System.nanoTime() - start;
+
+        System.out.printf("TimingWheel, %,d timeouts:%n", timeouts);
+        System.out.printf("  schedule %5.1f ns/op, cancel %5.1f ns/op, expire %,d in %.0f ms (%.1f ns/timeout)%n",
+                (double) scheduleNanos / timeouts, cancelNanos * 2.0 / timeouts,
+                fired[0], expireNanos / 1e6, (double) expireNanos / Math.max(1, fired[0]));
+        System.out.printf("  ~%d bytes per pending timeout (incl. handle array), %d still pending%n",
+                (heapAfter - heapBefore) / timeouts, wheel.getPendingCount());
+    }
+
+    private static void executor(int timeouts) {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        executor.setRemoveOnCancelPolicy(true);
+        ScheduledFuture<?>[] futures = new ScheduledFuture<?>[timeouts];
+        Runnable noop = () -> { };
+        long start = System.nanoTime();
+        for (int i = 0; i < timeouts; i++) {
+            futures[i] = executor.schedule(noop, 30 + i % 10, TimeUnit.SECONDS);
+        }
+        long scheduleNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (ScheduledFuture<?> future : futures) {
+            future.cancel(false);
+        }
+        long cancelNanos = System.nanoTime() - start;
+        executor.shutdownNow();
+        System.out.printf("ScheduledThreadPoolExecutor, %,d timeouts:%n", timeouts);
+        System.out.printf("  schedule %5.1f ns/op, cancel %5.1f ns/op%n",
+                (double) scheduleNanos / timeouts, (double) cancelNanos / timeouts);
+    }
+
+    /** Half the customers walk away after inserting money; their sessions must be refunded */
+    private static void machines(int count) {
+        SessionTimeouts timeouts = new SessionTimeouts(30_000, 10, 0);
+        VendingMachine[] fleet = new VendingMachine[count];
+        for (int i = 0; i < count; i++) {
+            fleet[i] = new VendingMachine();
+            fleet[i].setEventSink(VendingEventSink.NO_OP);
+            timeouts.watch(fleet[i]);
+            fleet[i].insertMoney(30);
+        }
+        timeouts.advanceTo(20_000);
+        for (int i = 0; i < count; i += 2) {
+            fleet[i].selectProduct("A1");
+        }
+        timeouts.advanceTo(31_000);
+        int refunded = 0;
+        for (VendingMachine machine : fleet) {
+            if (machine.getInsertedMoney() == 0 && machine.getStateOrdinal() == 0) {
+                refunded++;
+            }
+        }
+        System.out.printf("%,d machines: %,d sessions timed out, %,d machines back to idle with no money held%n",
+                count, timeouts.getExpiredSessions(), refunded);
+
+        // Machines leaving the fleet mid-session: their timeouts are disarmed and their ids reused
+        for (int i = 0; i < count; i++) {
+            fleet[i].insertMoney(30);
+            timeouts.unwatch(fleet[i]);
+        }
+        for (int i = 0; i < count; i++) {
+            timeouts.watch(fleet[i]);
+        }
+        System.out.printf("After unwatching and re-watching all: %,d watched, %,d timeouts pending%n",
+                timeouts.getWatchedCount(), timeouts.getPendingCount());
+    }
+}
@@ -0,0 +1,114 @@
+package org.example.pattern;
+
+import java.util.Arrays;
+
+/**
+ * Idle timeouts for the purchase sessions of many vending machines.
+ *
+ * A watched machine arms a timer when it enters HasMoneyState and re-arms it whenever more
+ * money is inserted; leaving the state disarms it. A session that stays idle for the timeout
+ * is cancelled through the machine's normal cancelTransaction path, which refunds the money.
+ *
+ * All timers live in one TimingWheel, so there is no thread or ScheduledFuture per session:
+ * the owner drives time by calling {@link #advanceTo} (e.g. from one ticker for the whole
+ * fleet). Not thread-safe; use it from the thread that operates the machines.
+ */
+public class SessionTimeouts {
+    private final TimingWheel wheel;
+    private final long tickMillis;
+    private final long timeoutTicks;
+    private final long startMillis;
+    private final TimingWheel.ExpiryHandler expire = this::expire;
+
+    private VendingMachine[] machines = new VendingMachine[16];
+    private int machineCount;
+    /** Ids of unwatched machines, reused by watch */
+    private int[] freeIds = new int[16];
+    private int freeCount;
+    private long expiredSessions;
+
+    /**
+     * @param idleTimeoutMillis how long a session may sit in HasMoneyState without activity
+     * @param tickMillis        timer resolution
+     * @param startMillis       the time {@link #advanceTo} is measured from
+     */
+    public SessionTimeouts(long idleTimeoutMillis, long tickMillis, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive: " + tickMillis);
+        }
+        this.tickMillis = tickMillis;
+        this.timeoutTicks = Math.max(1, (idleTimeoutMillis + tickMillis - 1) / tickMillis);
+        this.startMillis = startMillis;
+        this.wheel = new TimingWheel(1024);
+    }
+
+    /**
+     * Starts enforcing the idle timeout on the machine's sessions.
+     */
+    public void watch(VendingMachine machine) {
+        int id;
+        if (freeCount > 0) {
+            id = freeIds[--freeCount];
+        } else {
+            if (machineCount == machines.length) {
+                machines = Arrays.copyOf(machines, machineCount * 2);
+            }
+            id = machineCount++;
+        }
+        machines[id] = machine;
+        machine.watchSessions(this, id);
+    }
+
+    /**
+     * Stops enforcing the idle timeout on the machine's sessions, e.g. when it leaves the fleet,
+     * and disarms its pending timeout. Its slot is reused by the next watched machine.
+     */
+    public void unwatch(VendingMachine machine) {
+        int id = machine.unwatchSessions(this);
+        if (id < 0) {
+            return;
+        }
+        machines[id] = null;
+        if (freeCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+        }
+        freeIds[freeCount++] = id;
+    }
+
+    /** Machines currently watched */
+    public int getWatchedCount() {
+        return machineCount - freeCount;
+    }
+
+    /**
+     * Moves the clock to {@code nowMillis} and cancels every session that has timed out.
+     *
+     * @return the number of sessions cancelled
+     */
+    public int advanceTo(long nowMillis) {
+        return wheel.advance((nowMillis - startMillis) / tickMillis, expire);
+    }
+
+    long arm(int machineId) {
+        return wheel.schedule(timeoutTicks, machineId);
+    }
+
+    void disarm(long handle) {
+        wheel.cancel(handle);
+    }
+
+    private void expire(int machineId) {
+        expiredSessions++;
+        machines[machineId].expireSession();
+    }
+
+    /** Sessions waiting to time out */
+    public int getPendingCount() {
+        return wheel.getPendingCount();
+    }
+
+    /** Sessions cancelled because they timed out */
+    public long getExpiredSessions() {
+        return expiredSessions;
+    }
+}
@@ -0,0 +1,66 @@
+package org.example.pattern;
+
+/**
+ * State dispatch benchmark
+ * Drives the polymorphic state objects (VendingMachine) and the compiled transition table
+ * (TableDrivenVendingMachine) through the same mix of operations, hitting every state.
+ * Events go to the no-op sink, so the measurement is dispatch and bookkeeping, not printing.
+ *
+ * Usage: java org.example.pattern.StateDispatchBenchmark [operations]
+ */
+public class StateDispatchBenchmark {
+    private static final String[] CODES = {"A1", "A2", "B1", "B2", "Z9"};
+
+    public static void main(String[] args) {
+        long operations = args.length > 0 ? Long.parseLong(args[0]) : 5_000_000L;
+        long[] polymorphic = new long[2];
+        long[] table = new long[2];
+        // Warm-up, alternating so neither variant gets the JIT to itself
+        for (int i = 0; i < 3; i++) {
+            run(new VendingMachine(), operations / 4);
+            run(new TableDrivenVendingMachine(), operations / 4);
+        }
+        polymorphic[0] = run(new VendingMachine(), operations);
+        table[0] = run(new TableDrivenVendingMachine(), operations);
+        polymorphic[1] = run(new VendingMachine(), operations);
+        table[1] = run(new TableDrivenVendingMachine(), operations);
+        System.out.printf("%,d operations%n", operations);
+        System.out.printf("State objects:    %.1f M ops/s%n", operations * 1e3 / Math.min(polymorphic[0], polymorphic[1]));
+        System.out.printf("Transition table: %.1f M ops/s%n", operations * 1e3 / Math.min(table[0], table[1]));
+    }
+
+    /** Mixed workload: purchases, invalid input, cancels and refills */
+    private static long run(VendingMachine machine, long operations) {
+        machine.setEventSink(VendingEventSink.NO_OP);
+        long start = System.nanoTime();
+        for (long i = 0; i < operations; i++) {
+            int step = (int) (i % 7);
+            switch (step) {
+                case 0:
+                    machine.insertMoney(30);
+                    break;
+                case 1:
+                    machine.selectProduct(CODES[(int) (i / 7 % CODES.length)]);
+                    break;
+                case 2:
+                    machine.insertMoney(i % 3 == 0 ? 0 : 10);
+                    break;
+                case 3:
+                    machine.dispenseProduct();
+                    break;
+                case 4:
+                    machine.cancelTransaction();
+                    break;
+                case 5:
+                    machine.selectProduct("A1");
+                    break;
+                default:
+                    if (!machine.hasAnyStock()) {
+                        machine.refillProducts();
+                    }
+                    break;
+            }
+        }
+        return System.nanoTime() - start;
+    }
+}
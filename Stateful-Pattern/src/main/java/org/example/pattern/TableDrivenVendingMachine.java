@@ -0,0 +1,354 @@
+package org.example.pattern;
+
+/**
+ * Vending machine driven by a compiled TransitionTable instead of the state objects.
+ *
+ * Behaves and reports events exactly like VendingMachine: the rules below are the behaviour of
+ * IdleState, HasMoneyState, DispensingState and OutOfStockState written as a table.
+ * Every operation is one lookup in the jump table followed by the guards of that cell, all
+ * from a single dispatch loop. Guards and actions are the opcodes below, run by a switch in
+ * this class, so the loop makes no interface calls and the JIT can compile it as one method.
+ *
+ * Transitions still go through setState, so a journal attached to the machine keeps working.
+ */
+public class TableDrivenVendingMachine extends VendingMachine {
+    // States, numbered like VendingMachine.getStateOrdinal()
+    public static final int IDLE = 0;
+    public static final int HAS_MONEY = 1;
+    public static final int DISPENSING = 2;
+    public static final int OUT_OF_STOCK = 3;
+    public static final int STATE_COUNT = 4;
+
+    // Events
+    public static final int INSERT_MONEY = 0;
+    public static final int SELECT_PRODUCT = 1;
+    public static final int DISPENSE = 2;
+    public static final int CANCEL = 3;
+    public static final int REFILL = 4;
+    public static final int EVENT_COUNT = 5;
+
+    // Guard opcodes; all from IF_NO_PRODUCT on are about the event's product
+    /** The amount inserted is not positive */
+    public static final int IF_INVALID_AMOUNT = 1;
+    /** The event's product is unknown, or nothing is selected */
+    public static final int IF_NO_PRODUCT = 2;
+    /** The event's product is sold out */
+    public static final int IF_SOLD_OUT = 3;
+    /** The event's product is sold out but other products are left */
+    public static final int IF_SOLD_OUT_OTHERS_LEFT = 4;
+    public static final int IF_INSUFFICIENT_FUNDS = 5;
+    public static final int IF_CANNOT_MAKE_CHANGE = 6;
+    /** The selection is the last item in the machine */
+    public static final int IF_LAST_ITEM = 7;
+
+    // Action opcodes
+    /** Reports the rule's operand (a VendingEvent ordinal) with the event's code and amount */
+    public static final int DO_SAY = 1;
+    public static final int DO_ACCEPT_MONEY = 2;
+    public static final int DO_ACCEPT_ADDITIONAL_MONEY = 3;
+    public static final int DO_REPORT_SOLD_OUT = 4;
+    public static final int DO_REPORT_INSUFFICIENT_FUNDS = 5;
+    public static final int DO_REPORT_CANNOT_MAKE_CHANGE = 6;
+    public static final int DO_SELECT = 7;
+    public static final int DO_REFUND = 8;
+    public static final int DO_REFUND_SOLD_OUT = 9;
+    public static final int DO_VEND = 10;
+    public static final int DO_VEND_LAST_ITEM = 11;
+    public static final int DO_REFILL = 12;
+
+    private static final VendingEvent[] EVENTS = VendingEvent.values();
+    private static final TransitionTable STANDARD_TABLE = standardTable();
+
+
+    // The table's arrays, held directly so the dispatch loop does not go through the table
+    private final int[] jump;
+    private final int[] rules;
+    private final VendingMachineState[] states;
+    private int state = IDLE;
+    // Product the current event is about (the code selected, or the selection being
+    // dispensed), looked up once, by the first guard or action of the cell that needs it
+    private String productCode;
+    private boolean resolved;
+    private int slot = -1;
+    private Product product;
+
+    public TableDrivenVendingMachine() {
+        this(STANDARD_TABLE);
+    }
+
+    /**
+     * @param table rules using this class's states, events and opcodes
+     */
+    public TableDrivenVendingMachine(TransitionTable table) {
+        if (table.getStateCount() != STATE_COUNT || table.getEventCount() != EVENT_COUNT) {
+            throw new IllegalArgumentException("Table is not for this machine's states and events");
+        }
+        this.jump = table.jump();
+        this.rules = table.rules();
+        this.states = new VendingMachineState[] {
+                getIdleState(), getHasMoneyState(), getDispensingState(), getOutOfStockState()};
+    }
+
+    @Override
+    public void insertMoney(int amount) {
+        fire(INSERT_MONEY, amount, null);
+    }
+
+    @Override
+    public void selectProduct(String productCode) {
+        fire(SELECT_PRODUCT, 0, productCode);
+    }
+
+    @Override
+    public void dispenseProduct() {
+        fire(DISPENSE, 0, null);
+    }
+
+    @Override
+    public void cancelTransaction() {
+        fire(CANCEL, 0, null);
+    }
+
+    @Override
+    public void refillProducts() {
+        fire(REFILL, 0, null);
+    }
+
+    /**
+     * Runs the event through the table, including any follow-up events.
+     */
+    public void fire(int event, int amount, String code) {
+        while (event != TransitionTable.NONE) {
+            if (event == SELECT_PRODUCT) {
+                productCode = code;
+                resolved = false;
+            } else if (event == DISPENSE && !(resolved && getSelectedProduct() == product)) {
+                // Usually the follow-up of SELECT_PRODUCT, with the product already resolved
+                productCode = getSelectedProduct() == null ? null : getSelectedProduct().getCode();
+                resolved = false;
+            }
+            int rule = jump[state * EVENT_COUNT + event];
+            while (rule >= 0) {
+                int guard = rules[rule + TransitionTable.GUARD];
+                if (guard == TransitionTable.ALWAYS || test(guard, amount)) {
+                    break;
+                }
+                rule = rules[rule + TransitionTable.NEXT];
+            }
+            if (rule < 0) {
+                return;
+            }
+            execute(rules[rule + TransitionTable.ACTION], rules[rule + TransitionTable.OPERAND], amount, code);
+            int target = rules[rule + TransitionTable.TARGET];
+            if (target != TransitionTable.STAY) {
+                super.setState(states[target]);
+                state = target;
+            }
+            event = rules[rule + TransitionTable.FOLLOW_UP];
+        }
+    }
+
+    private void resolve() {
+        if (!resolved) {
+            slot = productCode == null ? -1 : getInventory().slotOf(productCode);
+            product = slot < 0 ? null : getInventory().getProduct(slot);
+            resolved = true;
+        }
+    }
+
+    @Override
+    public void setState(VendingMachineState newState) {
+        super.setState(newState);
+        state = getStateOrdinal();
+    }
+
+    @Override
+    void restore(int stateOrdinal, int money, int selectedSlot) {
+        super.restore(stateOrdinal, money, selectedSlot);
+        state = stateOrdinal;
+    }
+
+    /** Current state, one of IDLE, HAS_MONEY, DISPENSING, OUT_OF_STOCK */
+    public int getState() {
+        return state;
+    }
+
+
+    /**
+     * The vending machine's behaviour as a transition table.
+     */
+    public static TransitionTable standardTable() {
+        TransitionTable.Definition d = new TransitionTable.Definition(STATE_COUNT, EVENT_COUNT);
+        int always = TransitionTable.ALWAYS;
+        int stay = TransitionTable.STAY;
+
+        // Idle - waiting for money
+        say(d, IDLE, INSERT_MONEY, IF_INVALID_AMOUNT, VendingEvent.INVALID_AMOUNT);
+        d.rule(IDLE, INSERT_MONEY, always, DO_ACCEPT_MONEY, HAS_MONEY);
+        say(d, IDLE, SELECT_PRODUCT, always, VendingEvent.INSERT_MONEY_FIRST);
+        say(d, IDLE, DISPENSE, always, VendingEvent.INSERT_MONEY_AND_SELECT_FIRST);
+        say(d, IDLE, CANCEL, always, VendingEvent.NO_TRANSACTION);
+        d.rule(IDLE, REFILL, always, DO_REFILL, stay);
+
+        // Has money - waiting for a selection
+        say(d, HAS_MONEY, INSERT_MONEY, IF_INVALID_AMOUNT, VendingEvent.INVALID_AMOUNT);
+        d.rule(HAS_MONEY, INSERT_MONEY, always, DO_ACCEPT_ADDITIONAL_MONEY, stay);
+        say(d, HAS_MONEY, SELECT_PRODUCT, IF_NO_PRODUCT, VendingEvent.INVALID_PRODUCT);
+        d.rule(HAS_MONEY, SELECT_PRODUCT, IF_SOLD_OUT, DO_REPORT_SOLD_OUT, stay);
+        d.rule(HAS_MONEY, SELECT_PRODUCT, IF_INSUFFICIENT_FUNDS, DO_REPORT_INSUFFICIENT_FUNDS, stay);
+        d.rule(HAS_MONEY, SELECT_PRODUCT, IF_CANNOT_MAKE_CHANGE, DO_REPORT_CANNOT_MAKE_CHANGE, stay);
+        d.rule(HAS_MONEY, SELECT_PRODUCT, always, DO_SELECT, 0, DISPENSING, DISPENSE);
+        say(d, HAS_MONEY, DISPENSE, always, VendingEvent.SELECT_PRODUCT_FIRST);
+        d.rule(HAS_MONEY, CANCEL, always, DO_REFUND, IDLE);
+        say(d, HAS_MONEY, REFILL, always, VendingEvent.REFILL_REJECTED_IN_TRANSACTION);
+
+        // Dispensing
+        say(d, DISPENSING, INSERT_MONEY, always, VendingEvent.WAIT_FOR_DISPENSING);
+        say(d, DISPENSING, SELECT_PRODUCT, always, VendingEvent.ALREADY_DISPENSING);
+        d.rule(DISPENSING, DISPENSE, IF_NO_PRODUCT, DO_SAY, VendingEvent.NO_PRODUCT_SELECTED.ordinal(),
+                IDLE, TransitionTable.NONE);
+        d.rule(DISPENSING, DISPENSE, IF_SOLD_OUT_OTHERS_LEFT, DO_REFUND_SOLD_OUT, IDLE);
+        d.rule(DISPENSING, DISPENSE, IF_SOLD_OUT, DO_REFUND_SOLD_OUT, OUT_OF_STOCK);
+        d.rule(DISPENSING, DISPENSE, IF_LAST_ITEM, DO_VEND_LAST_ITEM, OUT_OF_STOCK);
+        d.rule(DISPENSING, DISPENSE, always, DO_VEND, IDLE);
+        say(d, DISPENSING, CANCEL, always, VendingEvent.CANCEL_REJECTED_WHILE_DISPENSING);
+        say(d, DISPENSING, REFILL, always, VendingEvent.REFILL_REJECTED_WHILE_DISPENSING);
+
+        // Out of stock
+        say(d, OUT_OF_STOCK, INSERT_MONEY, always, VendingEvent.MACHINE_EMPTY_MONEY_REJECTED);
+        say(d, OUT_OF_STOCK, SELECT_PRODUCT, always, VendingEvent.MACHINE_EMPTY);
+        say(d, OUT_OF_STOCK, DISPENSE, always, VendingEvent.NO_PRODUCTS);
+        say(d, OUT_OF_STOCK, CANCEL, always, VendingEvent.NO_TRANSACTION);
+        d.rule(OUT_OF_STOCK, REFILL, always, DO_REFILL, IDLE);
+
+        return d.compile();
+    }
+
+    /** A rule that only reports the message and stays in the state */
+    private static void say(TransitionTable.Definition d, int state, int event, int guard, VendingEvent message) {
+        d.rule(state, event, guard, DO_SAY, message.ordinal(), TransitionTable.STAY, TransitionTable.NONE);
+    }
+
+    private boolean test(int guard, int amount) {
+        if (guard >= IF_NO_PRODUCT) {
+            resolve();
+        }
+        switch (guard) {
+            case TransitionTable.ALWAYS:
+                return true;
+            case IF_INVALID_AMOUNT:
+                return amount <= 0;
+            case IF_NO_PRODUCT:
+                return product == null;
+            case IF_SOLD_OUT:
+                return !getInventory().isAvailable(slot);
+            case IF_SOLD_OUT_OTHERS_LEFT:
+                return !getInventory().isAvailable(slot) && hasAnyStock();
+            case IF_INSUFFICIENT_FUNDS:
+                return getInsertedMoney() < product.getPrice();
+            case IF_CANNOT_MAKE_CHANGE:
+                return !canMakeChange(getInsertedMoney() - product.getPrice());
+            case IF_LAST_ITEM:
+                return getInventory().getInStockSlotCount() == 1 && getInventory().getQuantity(slot) == 1;
+            default:
+                throw unknownOpcode("guard", guard);
+        }
+    }
+
+    /** Kept small, with the work in the methods below, so that it inlines into fire() */
+    private void execute(int action, int operand, int amount, String code) {
+        switch (action) {
+            case TransitionTable.NOTHING:
+                break;
+            case DO_SAY:
+                emit(EVENTS[operand], code, amount);
+                break;
+            case DO_ACCEPT_MONEY:
+                acceptMoney(amount);
+                break;
+            case DO_ACCEPT_ADDITIONAL_MONEY:
+                acceptAdditionalMoney(amount);
+                break;
+            case DO_REPORT_SOLD_OUT:
+                resolve();
+                emit(VendingEvent.PRODUCT_OUT_OF_STOCK, product.getName(), 0);
+                break;
+            case DO_REPORT_INSUFFICIENT_FUNDS:
+                resolve();
+                emit(VendingEvent.INSUFFICIENT_FUNDS, product.getName(), product.getPrice() - getInsertedMoney());
+                break;
+            case DO_REPORT_CANNOT_MAKE_CHANGE:
+                resolve();
+                emit(VendingEvent.CANNOT_MAKE_CHANGE, product.getName(), getInsertedMoney() - product.getPrice());
+                break;
+            case DO_SELECT:
+                select();
+                break;
+            case DO_REFUND:
+                emit(VendingEvent.TRANSACTION_CANCELLED, null, returnMoney());
+                break;
+            case DO_REFUND_SOLD_OUT:
+                refundSoldOut();
+                break;
+            case DO_VEND:
+                vend();
+                break;
+            case DO_VEND_LAST_ITEM:
+                vend();
+                emit(VendingEvent.MACHINE_NOW_EMPTY, null, 0);
+                break;
+            case DO_REFILL:
+                refill();
+                break;
+            default:
+                throw unknownOpcode("action", action);
+        }
+    }
+
+    private static IllegalStateException unknownOpcode(String kind, int opcode) {
+        return new IllegalStateException("Unknown " + kind + " opcode: " + opcode);
+    }
+
+    private void acceptMoney(int amount) {
+        emit(VendingEvent.MONEY_INSERTED, null, amount);
+        addMoney(amount);
+    }
+
+    private void acceptAdditionalMoney(int amount) {
+        emit(VendingEvent.ADDITIONAL_MONEY_INSERTED, null, amount);
+        addMoney(amount);
+        emit(VendingEvent.TOTAL_MONEY, null, getInsertedMoney());
+    }
+
+    private void select() {
+        resolve();
+        emit(VendingEvent.PRODUCT_SELECTED, product.getName(), product.getPrice());
+        setSelectedProduct(product);
+    }
+
+    private void refundSoldOut() {
+        int returnedMoney = returnMoney();
+        emit(VendingEvent.SOLD_OUT_REFUNDED, getSelectedProduct().getName(), returnedMoney);
+        resetSelectedProduct();
+    }
+
+    private void refill() {
+        emit(VendingEvent.REFILLING, null, 0);
+        refillAllProducts();
+        emit(VendingEvent.REFILLED, null, 0);
+    }
+
+    private void vend() {
+        resolve();
+        Product selected = product;
+        takeSlot(slot);
+        emit(VendingEvent.DISPENSING, selected.getName(), selected.getPrice());
+        int change = getInsertedMoney() - selected.getPrice();
+        if (change > 0) {
+            emit(payOutChange(change) ? VendingEvent.CHANGE_RETURNED : VendingEvent.CHANGE_OWED, null, change);
+        }
+        emit(VendingEvent.COLLECT_PRODUCT, selected.getName(), 0);
+        resetMoney();
+        resetSelectedProduct();
+    }
+}
@@ -0,0 +1,258 @@
+package org.example.pattern;
+
+import java.util.Arrays;
+
+/**
+ * Hierarchical timing wheel for large numbers of timeouts.
+ *
+ * Four wheels of 256 slots each cover 2^32 ticks; a timer sits in the slot of the
+ * coarsest wheel it fits in and is cascaded into finer wheels as time approaches its
+ * deadline, as in the classic kernel timer design. Timers are stored in primitive arrays
+ * and linked into their slot through intrusive next/prev indexes, so scheduling and
+ * cancelling are O(1) and allocate nothing once the arrays have grown. A bitmap of the
+ * occupied slots of every wheel lets {@link #advance} jump straight to the next slot that
+ * holds timers, so its cost follows the number of timers, not the number of elapsed ticks.
+ *
+ * Time only moves when the owner calls {@link #advance}; there is no thread. Not thread-safe.
+ */
+public class TimingWheel {
+    /** Called for every timer that reaches its deadline */
+    @FunctionalInterface
+    public interface ExpiryHandler {
+        void expired(int payload);
+    }
+
+    private static final int WHEEL_BITS = 8;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_DELTA = (1L << (WHEEL_BITS * LEVELS)) - 1;
+    private static final int NIL = -1;
+
+    private final int[] heads = new int[LEVELS * WHEEL_SIZE];
+    /** One bit per slot, set while the slot holds timers */
+    private final long[] occupied = new long[LEVELS * WHEEL_SIZE / 64];
+    private long currentTick;
+
+    // Timer storage, indexed by timer id
+    private long[] deadlines;
+    private int[] payloads;
+    private int[] next;
+    private int[] prev;
+    /** Slot the timer is linked into, or NIL when free */
+    private int[] slots;
+    private int[] generations;
+    private int freeList = NIL;
+    private int allocated;
+    private int pending;
+
+    public TimingWheel(int initialCapacity) {
+        Arrays.fill(heads, NIL);
+        int capacity = Math.max(16, initialCapacity);
+        deadlines = new long[capacity];
+        payloads = new int[capacity];
+        next = new int[capacity];
+        prev = new int[capacity];
+        slots = new int[capacity];
+        generations = new int[capacity];
+    }
+
+    /**
+     * Schedules a timer {@code delayTicks} after the current tick.
+     *
+     * @return a handle for {@link #cancel}
+     */
+    public long schedule(long delayTicks, int payload) {
+        int timer = allocate();
+        deadlines[timer] = currentTick + Math.max(1, delayTicks);
+        payloads[timer] = payload;
+        link(timer);
+        pending++;
+        return ((long) generations[timer] << 32) | timer;
+    }
+
+    /**
+     * Cancels a pending timer.
+     *
+     * @return false if the timer already expired or was cancelled
+     */
+    public boolean cancel(long handle) {
+        int timer = (int) handle;
+        if (timer < 0 || timer >= allocated || slots[timer] == NIL
+                || generations[timer] != (int) (handle >>> 32)) {
+            return false;
+        }
+        unlink(timer);
+        release(timer);
+        pending--;
+        return true;
+    }
+
+    /**
+     * Moves time forward to {@code tick}, calling the handler for every timer whose
+     * deadline passed, in deadline order. The handler may schedule and cancel timers.
+     *
+     * @return the number of expired timers
+     */
+    public int advance(long tick, ExpiryHandler handler) {
+        int expired = 0;
+        while (currentTick < tick) {
+            long nextTick = pending == 0 ? Long.MAX_VALUE : nextOccupiedTick();
+            if (nextTick > tick) {
+                // Nothing to cascade or expire before then: jump straight there
+                currentTick = tick;
+                break;
+            }
+            // Skip the ticks that only visit empty slots
+            currentTick = nextTick;
+            int index = (int) (currentTick & WHEEL_MASK);
+            if (index == 0) {
+                cascade(1);
+            }
+            // Pop one at a time, so the handler can safely cancel other timers of this slot
+            int timer;
+            while ((timer = heads[index]) != NIL) {
+                unlink(timer);
+                int payload = payloads[timer];
+                release(timer);
+                pending--;
+                expired++;
+                handler.expired(payload);
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * First tick after the current one that visits an occupied slot: expires a level 0 slot,
+     * or cascades a slot of a coarser wheel.
+     */
+    private long nextOccupiedTick() {
+        long next = Long.MAX_VALUE;
+        for (int level = 0; level < LEVELS; level++) {
+            // A level's slot is visited when the ticks below it roll over to 0
+            int shift = WHEEL_BITS * level;
+            long turn = (currentTick >>> shift) + 1;
+            int from = (int) (turn & WHEEL_MASK);
+            int index = nextOccupied(level, from);
+            if (index < 0) {
+                index = nextOccupied(level, 0);
+                if (index < 0) {
+                    continue;
+                }
+                index += WHEEL_SIZE;
+            }
+            next = Math.min(next, (turn + index - from) << shift);
+        }
+        return next;
+    }
+
+    /** First occupied slot of the level at or after {@code from}, or -1 */
+    private int nextOccupied(int level, int from) {
+        int base = level * WHEEL_SIZE;
+        for (int bit = from; bit < WHEEL_SIZE; bit = (bit | 63) + 1) {
+            long word = occupied[(base + bit) >>> 6] & (-1L << bit);
+            if (word != 0) {
+                return (bit & ~63) + Long.numberOfTrailingZeros(word);
+            }
+        }
+        return -1;
+    }
+
+    /** Re-files the timers of the current slot of {@code level} into finer wheels */
+    private void cascade(int level) {
+        if (level >= LEVELS) {
+            return;
+        }
+        int index = (int) ((currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+        if (index == 0) {
+            cascade(level + 1);
+        }
+        int slot = level * WHEEL_SIZE + index;
+        int timer = heads[slot];
+        heads[slot] = NIL;
+        occupied[slot >>> 6] &= ~(1L << slot);
+        while (timer != NIL) {
+            int following = next[timer];
+            link(timer);
+            timer = following;
+        }
+    }
+
+    private void link(int timer) {
+        long deadline = deadlines[timer];
+        long delta = Math.min(deadline - currentTick, MAX_DELTA);
+        int slot;
+        if (delta <= 0) {
+            // Cascaded down on its deadline tick: the slot about to be expired
+            slot = (int) (currentTick & WHEEL_MASK);
+        } else {
+            int level = 0;
+            while (delta >= 1L << (WHEEL_BITS * (level + 1))) {
+                level++;
+            }
+            long position = delta == MAX_DELTA ? currentTick + delta : deadline;
+            slot = level * WHEEL_SIZE + (int) ((position >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+        }
+        int head = heads[slot];
+        next[timer] = head;
+        prev[timer] = NIL;
+        if (head != NIL) {
+            prev[head] = timer;
+        }
+        heads[slot] = timer;
+        occupied[slot >>> 6] |= 1L << slot;
+        slots[timer] = slot;
+    }
+
+    private void unlink(int timer) {
+        int before = prev[timer];
+        int after = next[timer];
+        if (before == NIL) {
+            int slot = slots[timer];
+            heads[slot] = after;
+            if (after == NIL) {
+                occupied[slot >>> 6] &= ~(1L << slot);
+            }
+        } else {
+            next[before] = after;
+        }
+        if (after != NIL) {
+            prev[after] = before;
+        }
+    }
+
+    private int allocate() {
+        int timer = freeList;
+        if (timer != NIL) {
+            freeList = next[timer];
+            return timer;
+        }
+        if (allocated == deadlines.length) {
+            int capacity = allocated * 2;
+            deadlines = Arrays.copyOf(deadlines, capacity);
+            payloads = Arrays.copyOf(payloads, capacity);
+            next = Arrays.copyOf(next, capacity);
+            prev = Arrays.copyOf(prev, capacity);
+            slots = Arrays.copyOf(slots, capacity);
+            generations = Arrays.copyOf(generations, capacity);
+        }
+        return allocated++;
+    }
+
+    private void release(int timer) {
+        slots[timer] = NIL;
+        generations[timer]++;
+        next[timer] = freeList;
+        freeList = timer;
+    }
+
+    public long getCurrentTick() {
+        return currentTick;
+    }
+
+    /** Timers scheduled and not yet expired or cancelled */
+    public int getPendingCount() {
+        return pending;
+    }
+}
@@ -0,0 +1,171 @@
+package org.example.pattern;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compiled transition table of a state machine with int states and int events.
+ *
+ * The machine is declared as a list of rules (state, event, guard, action, operand, target
+ * state, follow-up event) in a Definition and compiled once into a flat jump table indexed by
+ * {@code state * eventCount + event}, pointing into one flat int array holding RULE_SIZE ints
+ * per rule (guard, action, operand, target, follow-up, next rule). Guards and actions are
+ * opcodes, not objects: the machine interprets them with a switch of its own, so running the
+ * table makes no interface calls. Rules of one cell are tried in declaration order; the
+ * first whose guard passes runs its action and moves the machine to its target. A cell with
+ * no matching rule leaves the machine as it is.
+ */
+public final class TransitionTable {
+    /** Target of a rule that stays in the current state */
+    public static final int STAY = -1;
+    /** Follow-up of a rule that fires no further event */
+    public static final int NONE = -1;
+    /** Guard opcode of a rule that always applies */
+    public static final int ALWAYS = 0;
+    /** Action opcode of a rule that does nothing */
+    public static final int NOTHING = 0;
+
+    // Offsets of a rule's fields from the rule's index in rules()
+    static final int GUARD = 0;
+    static final int ACTION = 1;
+    static final int OPERAND = 2;
+    static final int TARGET = 3;
+    static final int FOLLOW_UP = 4;
+    /** Index of the next rule of the same cell, or -1 */
+    static final int NEXT = 5;
+    static final int RULE_SIZE = 6;
+
+    private final int eventCount;
+    private final int[] jump;
+    private final int[] rules;
+
+    private TransitionTable(int eventCount, int[] jump, int[] rules) {
+        this.eventCount = eventCount;
+        this.jump = jump;
+        this.rules = rules;
+    }
+
+    /**
+     * Index into rules() of the first rule of each cell, or -1, by {@code state * eventCount + event}.
+     * Shared, not copied: the dispatch loop reads it directly.
+     */
+    int[] jump() {
+        return jump;
+    }
+
+    /** RULE_SIZE ints per rule; shared, not copied */
+    int[] rules() {
+        return rules;
+    }
+
+    public int getStateCount() {
+        return eventCount == 0 ? 0 : jump.length / eventCount;
+    }
+
+    public int getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * Declarative list of rules, compiled into a TransitionTable.
+     */
+    public static final class Definition {
+        private final int stateCount;
+        private final int eventCount;
+        private final List<Rule> rules = new ArrayList<>();
+
+        public Definition(int stateCount, int eventCount) {
+            this.stateCount = stateCount;
+            this.eventCount = eventCount;
+        }
+
+        /**
+         * @param guard  guard opcode, or ALWAYS
+         * @param action action opcode, or NOTHING
+         * @param target next state, or STAY
+         */
+        public Definition rule(int state, int event, int guard, int action, int target) {
+            return rule(state, event, guard, action, 0, target, NONE);
+        }
+
+        /**
+         * @param operand  passed to the action, e.g. the event an action reports
+         * @param followUp event fired right after the transition, or NONE
+         */
+        public Definition rule(int state, int event, int guard, int action, int operand, int target, int followUp) {
+            check(state, stateCount, "state");
+            check(event, eventCount, "event");
+            if (target != STAY) {
+                check(target, stateCount, "target state");
+            }
+            if (followUp != NONE) {
+                check(followUp, eventCount, "follow-up event");
+            }
+            if (guard < 0 || action < 0) {
+                throw new IllegalArgumentException("Invalid opcode: " + Math.min(guard, action));
+            }
+            rules.add(new Rule(state, event, guard, action, operand, target, followUp));
+            return this;
+        }
+
+        private static void check(int value, int count, String what) {
+            if (value < 0 || value >= count) {
+                throw new IllegalArgumentException("Invalid " + what + ": " + value);
+            }
+        }
+
+        public TransitionTable compile() {
+            int[] jump = new int[stateCount * eventCount];
+            Arrays.fill(jump, -1);
+            int[] compiled = new int[rules.size() * RULE_SIZE];
+
+            // Lay the rules out cell by cell, keeping declaration order within a cell
+            int index = 0;
+            for (int state = 0; state < stateCount; state++) {
+                for (int event = 0; event < eventCount; event++) {
+                    int previous = -1;
+                    for (Rule rule : rules) {
+                        if (rule.state != state || rule.event != event) {
+                            continue;
+                        }
+                        if (previous < 0) {
+                            jump[state * eventCount + event] = index;
+                        } else {
+                            compiled[previous + NEXT] = index;
+                        }
+                        compiled[index + GUARD] = rule.guard;
+                        compiled[index + ACTION] = rule.action;
+                        compiled[index + OPERAND] = rule.operand;
+                        compiled[index + TARGET] = rule.target;
+                        compiled[index + FOLLOW_UP] = rule.followUp;
+                        compiled[index + NEXT] = -1;
+                        previous = index;
+                        index += RULE_SIZE;
+                    }
+                }
+            }
+            return new TransitionTable(eventCount, jump, compiled);
+        }
+    }
+
+    private static final class Rule {
+        final int state;
+        final int event;
+        final int guard;
+        final int action;
+        final int operand;
+        final int target;
+        final int followUp;
+
+        Rule(int state, int event, int guard, int action, int operand, int target, int followUp) {
+            this.state = state;
+            this.event = event;
+            this.guard = guard;
+            this.action = action;
+            this.operand = operand;
+            this.target = target;
+            this.followUp = followUp;
+        }
+    }
+}
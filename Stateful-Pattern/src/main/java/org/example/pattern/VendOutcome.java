@@ -0,0 +1,42 @@
+package org.example.pattern;
+
+/**
+ * Result of one vending operation, for the silent (non-printing) machine engines
+ */
+public enum VendOutcome {
+    /** Money was accepted */
+    ACCEPTED,
+    /** Amount was zero or negative */
+    INVALID_AMOUNT,
+    /** A product was selected before money was inserted */
+    NO_MONEY,
+    /** Dispensing was requested without a selected product */
+    NO_SELECTION,
+    /** Unknown product code or slot */
+    INVALID_PRODUCT,
+    /** The selected product is sold out */
+    OUT_OF_STOCK,
+    /** Not enough money for the selected product */
+    INSUFFICIENT_FUNDS,
+    /** The product was dispensed and change returned */
+    DISPENSED,
+    /** The transaction was cancelled and the money returned */
+    CANCELLED,
+    /** Cancel was requested with no transaction in progress */
+    NO_TRANSACTION,
+    /** The machine is dispensing or mid-transaction and cannot do this now */
+    BUSY,
+    /** The whole machine is out of stock */
+    MACHINE_EMPTY,
+    /** The machine was refilled */
+    REFILLED,
+    /** The machine's coins cannot make the change for the selected product */
+    NO_CHANGE;
+
+    private static final VendOutcome[] VALUES = values();
+
+    /** Decodes an outcome stored as its ordinal, e.g. by VendingMachine.applyBatch */
+    public static VendOutcome of(byte ordinal) {
+        return VALUES[ordinal];
+    }
+}
@@ -0,0 +1,73 @@
+package org.example.pattern;
+
+import java.util.Arrays;
+
+/**
+ * Packed batch of vending operations for VendingMachine.applyBatch.
+ *
+ * Each operation takes STRIDE ints: the opcode and one argument (the amount for
+ * INSERT_MONEY, the product slot for SELECT_PRODUCT, unused otherwise). A batch can be
+ * cleared and refilled, so replaying a stream of telemetry does not allocate per operation.
+ */
+public class VendingBatch {
+    public static final int INSERT_MONEY = 0;
+    public static final int SELECT_PRODUCT = 1;
+    public static final int DISPENSE = 2;
+    public static final int CANCEL = 3;
+    public static final int REFILL = 4;
+
+    /** ints per operation */
+    public static final int STRIDE = 2;
+
+    private int[] ops;
+    private int size;
+
+    public VendingBatch(int initialCapacity) {
+        this.ops = new int[Math.max(1, initialCapacity) * STRIDE];
+    }
+
+    public VendingBatch insertMoney(int amount) {
+        return add(INSERT_MONEY, amount);
+    }
+
+    public VendingBatch selectProduct(int slot) {
+        return add(SELECT_PRODUCT, slot);
+    }
+
+    public VendingBatch dispenseProduct() {
+        return add(DISPENSE, 0);
+    }
+
+    public VendingBatch cancelTransaction() {
+        return add(CANCEL, 0);
+    }
+
+    public VendingBatch refillProducts() {
+        return add(REFILL, 0);
+    }
+
+    private VendingBatch add(int opcode, int argument) {
+        int index = size * STRIDE;
+        if (index == ops.length) {
+            ops = Arrays.copyOf(ops, ops.length * 2);
+        }
+        ops[index] = opcode;
+        ops[index + 1] = argument;
+        size++;
+        return this;
+    }
+
+    /** Number of operations in the batch */
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /** The packed operations; only the first {@code size() * STRIDE} ints are valid */
+    public int[] getOps() {
+        return ops;
+    }
+}
@@ -0,0 +1,66 @@
+package org.example.pattern;
+
+/**
+ * Context interface - what the state objects operate on.
+ *
+ * Implemented by VendingMachine, and by PurchaseSession for one customer of a
+ * ConcurrentVendingMachine, so both run the same vending rules from the same state classes.
+ */
+public interface VendingContext {
+    /** Reports an event to the context's sink */
+    void emit(VendingEvent event, String subject, int amount);
+
+    void setState(VendingMachineState state);
+
+    VendingMachineState getIdleState();
+
+    VendingMachineState getHasMoneyState();
+
+    VendingMachineState getDispensingState();
+
+    VendingMachineState getOutOfStockState();
+
+    /** Runs the current state's dispenseProduct */
+    void dispenseProduct();
+
+    void addMoney(int amount);
+
+    int getInsertedMoney();
+
+    void resetMoney();
+
+    /**
+     * Clears the inserted money.
+     * @return the money to hand back
+     */
+    int returnMoney();
+
+    /** @return null if the code is unknown */
+    Product getProduct(String code);
+
+    boolean isProductAvailable(String code);
+
+    /**
+     * Takes one item of the product out of stock.
+     * @return false if the product is not stocked or already sold out
+     */
+    boolean reduceStock(String code);
+
+    boolean hasAnyStock();
+
+    void refillAllProducts();
+
+    boolean canMakeChange(int amount);
+
+    /**
+     * Pays out change.
+     * @return false, with nothing paid, if the change cannot be made
+     */
+    boolean payOutChange(int amount);
+
+    void setSelectedProduct(Product product);
+
+    Product getSelectedProduct();
+
+    void resetSelectedProduct();
+}
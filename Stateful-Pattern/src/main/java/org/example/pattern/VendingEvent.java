@@ -0,0 +1,88 @@
+package org.example.pattern;
+
+/**
+ * Typed events emitted by the vending machine states to a VendingEventSink.
+ *
+ * An event carries a subject and an amount. The subject is the product name, the entered
+ * code for INVALID_PRODUCT, or the product line for INVENTORY_ITEM. The amount is money in
+ * dollars, or the stock for INVENTORY_ITEM. Each event renders to the console message the
+ * demo has always printed: {@code %s} in the template is the subject and {@code %d} the amount.
+ */
+public enum VendingEvent {
+    // Idle and out of stock
+    INVALID_AMOUNT("Please insert a valid amount of money."),
+    MONEY_INSERTED("Money inserted: $%d"),
+    INSERT_MONEY_FIRST("Please insert money first."),
+    INSERT_MONEY_AND_SELECT_FIRST("Please insert money and select a product first."),
+    NO_TRANSACTION("No transaction to cancel."),
+    REFILLING("Refilling products..."),
+    REFILLED("Products refilled successfully!"),
+    MACHINE_EMPTY_MONEY_REJECTED("Sorry, vending machine is out of stock. Cannot accept money."),
+    MACHINE_EMPTY("Sorry, vending machine is out of stock."),
+    NO_PRODUCTS("No products available."),
+
+    // Has money
+    ADDITIONAL_MONEY_INSERTED("Additional money inserted: $%d"),
+    TOTAL_MONEY("Total money: $%d"),
+    INVALID_PRODUCT("Invalid product code: %s"),
+    PRODUCT_OUT_OF_STOCK("Sorry, %s is out of stock."),
+    INSUFFICIENT_FUNDS("Insufficient funds. Need $%d more."),
+    CANNOT_MAKE_CHANGE("Sorry, cannot return $%d change for %s. Please select another product or cancel."),
+    PRODUCT_SELECTED("Product selected: %s"),
+    SELECT_PRODUCT_FIRST("Please select a product first."),
+    TRANSACTION_CANCELLED("Transaction cancelled. Returning $%d"),
+    REFILL_REJECTED_IN_TRANSACTION("Cannot refill while transaction is in progress. Please cancel first."),
+    SESSION_EXPIRED("Session timed out with $%d inserted."),
+
+    // Dispensing
+    WAIT_FOR_DISPENSING("Please wait, dispensing product..."),
+    ALREADY_DISPENSING("Already dispensing a product. Please wait."),
+    NO_PRODUCT_SELECTED("Error: No product selected."),
+    SOLD_OUT_REFUNDED("Sorry, %s just sold out. Returning $%d"),
+    DISPENSING("Dispensing %s..."),
+    CHANGE_RETURNED("Returning change: $%d"),
+    CHANGE_OWED("Sorry, cannot return $%d change. Please contact the operator."),
+    COLLECT_PRODUCT("Please collect your %s"),
+    MACHINE_NOW_EMPTY("Vending machine is now out of stock."),
+    CANCEL_REJECTED_WHILE_DISPENSING("Cannot cancel transaction while dispensing."),
+    REFILL_REJECTED_WHILE_DISPENSING("Cannot refill while dispensing product."),
+
+    // Inventory display
+    INVENTORY_HEADER("\n=== Vending Machine Inventory ==="),
+    INVENTORY_ITEM("%s (Stock: %d)"),
+    INVENTORY_FOOTER("================================\n");
+
+    private final String template;
+
+    VendingEvent(String template) {
+        this.template = template;
+    }
+
+    /** The console message of this event */
+    public String format(String subject, int amount) {
+        return appendTo(new StringBuilder(template.length() + 16), subject, amount).toString();
+    }
+
+    /** Appends the console message of this event, without allocating beyond the builder's growth */
+    public StringBuilder appendTo(StringBuilder out, String subject, int amount) {
+        int length = template.length();
+        for (int i = 0; i < length; i++) {
+            char c = template.charAt(i);
+            if (c == '%' && i + 1 < length) {
+                char placeholder = template.charAt(i + 1);
+                if (placeholder == 's') {
+                    out.append(subject);
+                    i++;
+                    continue;
+                }
+                if (placeholder == 'd') {
+                    out.append(amount);
+                    i++;
+                    continue;
+                }
+            }
+            out.append(c);
+        }
+        return out;
+    }
+}
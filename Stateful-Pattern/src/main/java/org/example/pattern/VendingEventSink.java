@@ -0,0 +1,19 @@
+package org.example.pattern;
+
+/**
+ * Receives the events of a vending machine instead of the machine printing them.
+ *
+ * Implementations are called on the thread operating the machine, so they should return
+ * quickly; see ConsoleEventSink and AsyncEventSink.
+ */
+@FunctionalInterface
+public interface VendingEventSink {
+    /** Discards every event, e.g. for benchmarks */
+    VendingEventSink NO_OP = (event, subject, amount) -> { };
+
+    /**
+     * @param subject product name or code, or null if the event has none
+     * @param amount  money in dollars (stock for INVENTORY_ITEM), or 0 if the event has none
+     */
+    void emit(VendingEvent event, String subject, int amount);
+}
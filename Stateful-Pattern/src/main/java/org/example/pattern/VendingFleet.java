@@ -0,0 +1,179 @@
+package org.example.pattern;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Fleet-scale vending engine.
+ *
+ * Simulates many identical vending machines with a structure-of-arrays layout instead of
+ * one VendingMachine object graph per machine: the state is a byte ordinal of FleetState,
+ * inserted money and the selected slot are ints, and stock is a slice of one shared int[]
+ * ({@code slotsPerMachine} entries per machine). All machines share the planogram.
+ *
+ * Operations return a VendOutcome instead of printing. Not thread-safe.
+ */
+public class VendingFleet {
+    private static final int REFILL_QUANTITY = 10;
+    /** Longest array every JVM allocates */
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    private final int machineCount;
+    private final int slotsPerMachine;
+    private final Product[] planogram;
+    private final int[] prices;
+    private final Map<String, Integer> slotByCode = new HashMap<>();
+
+    private final byte[] states;
+    private final int[] insertedMoney;
+    private final int[] selectedSlots;
+    private final int[] stock;
+    private final int[] inStockSlots;
+
+    public VendingFleet(int machineCount, Product[] planogram, int initialQuantity) {
+        this.machineCount = machineCount;
+        this.slotsPerMachine = planogram.length;
+        this.planogram = planogram.clone();
+        this.prices = new int[slotsPerMachine];
+        for (int slot = 0; slot < slotsPerMachine; slot++) {
+            prices[slot] = planogram[slot].getPrice();
+            slotByCode.put(planogram[slot].getCode(), slot);
+        }
+
+        states = new byte[machineCount];
+        insertedMoney = new int[machineCount];
+        selectedSlots = new int[machineCount];
+        stock = new int[slotArrayLength(machineCount, slotsPerMachine)];
+        inStockSlots = new int[machineCount];
+
+        Arrays.fill(selectedSlots, -1);
+        Arrays.fill(stock, initialQuantity);
+        byte initialState = (byte) (initialQuantity > 0 ? FleetState.IDLE : FleetState.OUT_OF_STOCK).ordinal();
+        Arrays.fill(states, initialState);
+        Arrays.fill(inStockSlots, initialQuantity > 0 ? slotsPerMachine : 0);
+    }
+
+    public VendOutcome insertMoney(int machine, int amount) {
+        return FleetState.of(states[machine]).insertMoney(this, machine, amount);
+    }
+
+    public VendOutcome selectProduct(int machine, String productCode) {
+        Integer slot = slotByCode.get(productCode);
+        return selectProduct(machine, slot == null ? -1 : slot);
+    }
+
+    public VendOutcome selectProduct(int machine, int slot) {
+        return FleetState.of(states[machine]).selectProduct(this, machine, slot);
+    }
+
+    public VendOutcome dispenseProduct(int machine) {
+        return FleetState.of(states[machine]).dispenseProduct(this, machine);
+    }
+
+    public VendOutcome cancelTransaction(int machine) {
+        return FleetState.of(states[machine]).cancelTransaction(this, machine);
+    }
+
+    public VendOutcome refillProducts(int machine) {
+        return FleetState.of(states[machine]).refillProducts(this, machine);
+    }
+
+    public int getMachineCount() {
+        return machineCount;
+    }
+
+    public int getSlotsPerMachine() {
+        return slotsPerMachine;
+    }
+
+    public Product getProduct(int slot) {
+        return planogram[slot];
+    }
+
+    /** Name of the machine's current state, e.g. "IDLE" */
+    public String getStateName(int machine) {
+        return FleetState.of(states[machine]).name();
+    }
+
+    public int getInsertedMoney(int machine) {
+        return insertedMoney[machine];
+    }
+
+    public int getStock(int machine, int slot) {
+        return stock[index(machine, slot)];
+    }
+
+    public boolean hasAnyStock(int machine) {
+        return inStockSlots[machine] > 0;
+    }
+
+    // Mutators used by FleetState
+
+    int getPrice(int slot) {
+        return prices[slot];
+    }
+
+    void setState(int machine, FleetState state) {
+        states[machine] = (byte) state.ordinal();
+    }
+
+    void addMoney(int machine, int amount) {
+        insertedMoney[machine] += amount;
+    }
+
+    int returnMoney(int machine) {
+        int money = insertedMoney[machine];
+        insertedMoney[machine] = 0;
+        return money;
+    }
+
+    int getSelectedSlot(int machine) {
+        return selectedSlots[machine];
+    }
+
+    void setSelectedSlot(int machine, int slot) {
+        selectedSlots[machine] = slot;
+    }
+
+    void takeItem(int machine, int slot) {
+        if (--stock[index(machine, slot)] == 0) {
+            inStockSlots[machine]--;
+        }
+    }
+
+    void refill(int machine) {
+        int base = base(machine);
+        Arrays.fill(stock, base, base + slotsPerMachine, REFILL_QUANTITY);
+        inStockSlots[machine] = slotsPerMachine;
+    }
+
+    /** Index of the machine's first slot in stock */
+    private int base(int machine) {
+        return Objects.checkIndex(machine, machineCount) * slotsPerMachine;
+    }
+
+    private int index(int machine, int slot) {
+        return base(machine) + Objects.checkIndex(slot, slotsPerMachine);
+    }
+
+    /**
+     * Length of an array with one entry per slot of every machine.
+     *
+     * @throws IllegalArgumentException if a count is negative, or there are more slots than an
+     *                                  array can hold
+     */
+    static int slotArrayLength(int machineCount, int slotsPerMachine) {
+        if (machineCount < 0 || slotsPerMachine < 0) {
+            throw new IllegalArgumentException("Invalid fleet size: " + machineCount + " machines of "
+                    + slotsPerMachine + " slots");
+        }
+        long length = Math.multiplyExact((long) machineCount, slotsPerMachine);
+        if (length > MAX_ARRAY_LENGTH) {
+            throw new IllegalArgumentException(machineCount + " machines of " + slotsPerMachine + " slots make "
+                    + length + " slots, more than the " + MAX_ARRAY_LENGTH + " an array can hold");
+        }
+        return (int) length;
+    }
+}
@@ -0,0 +1,537 @@
+package org.example.pattern;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Event-sourced transaction journal for a VendingMachine.
+ *
+ * Every state change of the machine (money added or returned, product selected,
+ * stock taken, change paid, refill, state transition) is appended to a compact binary log:
+ * one type byte followed by one or two int arguments. Events are buffered and written
+ * in groups; the FsyncPolicy decides when they are forced to disk. The log starts with a
+ * header, and each group is framed by its length and a CRC32C of its events, so recovery
+ * can tell a group torn by a crash, which it truncates along with everything after it, from
+ * damage in the middle of the log, which it reports. Logs of earlier releases have no header
+ * and no frames; they are still read and appended to, and anything unreadable at their end
+ * is taken for a torn tail.
+ *
+ * Every {@code snapshotEveryEvents} events a snapshot of the whole machine is written
+ * next to the log, tagged with the log position it corresponds to and headed by a format
+ * version (unversioned snapshots of earlier releases are still read). {@link #recover}
+ * loads the latest snapshot and replays only the events after it, applying them
+ * directly to the machine's fields without running the state handlers (and without
+ * printing anything).
+ *
+ * The product planogram and the coin denominations are configuration, not journaled:
+ * recover into a machine that was set up with the same products in the same order and
+ * the same coin inventory.
+ */
+public class VendingJournal implements AutoCloseable {
+    static final byte MONEY_ADDED = 1;
+    static final byte MONEY_RESET = 2;
+    static final byte PRODUCT_SELECTED = 3;
+    static final byte SELECTION_CLEARED = 4;
+    static final byte STOCK_TAKEN = 5;
+    static final byte STOCK_SET = 6;
+    static final byte REFILLED = 7;
+    static final byte STATE_CHANGED = 8;
+    static final byte CHANGE_PAID = 9;
+    static final byte COINS_ADDED = 10;
+
+    private static final String LOG_FILE = "journal.log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+    private static final int MAX_EVENT_SIZE = 9;
+    /** First int of a framed log; its first byte is no event type, unlike an unframed log's */
+    private static final int LOG_MAGIC = 0x564A4C47;
+    private static final int LOG_VERSION = 1;
+    private static final int LOG_HEADER_SIZE = 8;
+    /** Length of the group's events, then their CRC32C */
+    private static final int FRAME_HEADER_SIZE = 8;
+    private static final int MAX_GROUP_BYTES = 1 << 20;
+    /** First int of a versioned snapshot; older snapshots start with their log position */
+    private static final int SNAPSHOT_MAGIC = 0x564A534E;
+    private static final int SNAPSHOT_VERSION = 2;
+
+    private final Path directory;
+    private final FileChannel log;
+    /** false for a log of an earlier release, which has no header and no frames */
+    private final boolean framed;
+    private final ByteBuffer buffer;
+    private final int groupCommitEvents;
+    private final FsyncPolicy fsyncPolicy;
+    private final long snapshotEveryEvents;
+    private final CRC32C checksum = new CRC32C();
+
+    private long writtenBytes;
+    private long eventCount;
+    private int pendingEvents;
+    private long eventsSinceSnapshot;
+
+    /**
+     * @param groupCommitEvents   events buffered before they are written as one group, up to
+     *                            1 MB of events
+     * @param snapshotEveryEvents events between automatic snapshots, or 0 for none
+     */
+    public VendingJournal(Path directory, int groupCommitEvents, FsyncPolicy fsyncPolicy,
+                          long snapshotEveryEvents) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.log = FileChannel.open(directory.resolve(LOG_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            this.framed = openLog();
+        } catch (IOException | RuntimeException e) {
+            log.close();
+            throw e;
+        }
+        this.writtenBytes = log.size();
+        this.log.position(writtenBytes);
+        this.groupCommitEvents = Math.max(1, Math.min(groupCommitEvents, MAX_GROUP_BYTES / MAX_EVENT_SIZE));
+        this.buffer = ByteBuffer.allocateDirect(FRAME_HEADER_SIZE + this.groupCommitEvents * MAX_EVENT_SIZE);
+        startGroup();
+        this.fsyncPolicy = fsyncPolicy;
+        this.snapshotEveryEvents = snapshotEveryEvents;
+    }
+
+    /**
+     * Writes the header of a new log (or of one whose header was torn).
+     *
+     * @return false for a log of an earlier release, which stays unframed
+     */
+    private boolean openLog() throws IOException {
+        long size = log.size();
+        ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_SIZE);
+        read(header, 0);
+        if (size >= LOG_HEADER_SIZE && header.getInt(0) == LOG_MAGIC) {
+            int version = header.getInt(4);
+            if (version != LOG_VERSION) {
+                throw new IllegalStateException("Unsupported vending journal version " + version);
+            }
+            return true;
+        }
+        if (size >= LOG_HEADER_SIZE || (size > 0 && header.get(0) != (byte) (LOG_MAGIC >>> 24))) {
+            return false;
+        }
+        // New, or the header was torn
+        log.truncate(0);
+        header.clear();
+        header.putInt(LOG_MAGIC).putInt(LOG_VERSION).flip();
+        while (header.hasRemaining()) {
+            log.write(header, header.position());
+        }
+        log.force(false);
+        return true;
+    }
+
+    /** Fills the cleared buffer from the log at the position, or up to the end of the log */
+    private void read(ByteBuffer into, long position) throws IOException {
+        while (into.hasRemaining()) {
+            if (log.read(into, position + into.position()) < 0) {
+                break;
+            }
+        }
+        into.flip();
+    }
+
+    /** Empties the buffer, leaving room for the frame header of a framed log */
+    private void startGroup() {
+        buffer.clear();
+        if (framed) {
+            buffer.position(FRAME_HEADER_SIZE);
+        }
+    }
+
+    void append(byte type, int argument) {
+        buffer.put(type).putInt(argument);
+        eventAppended();
+    }
+
+    void append(byte type, int first, int second) {
+        buffer.put(type).putInt(first).putInt(second);
+        eventAppended();
+    }
+
+    private void eventAppended() {
+        eventCount++;
+        eventsSinceSnapshot++;
+        if (++pendingEvents >= groupCommitEvents || fsyncPolicy == FsyncPolicy.ALWAYS) {
+            flush();
+        }
+    }
+
+    boolean isSnapshotDue() {
+        return snapshotEveryEvents > 0 && eventsSinceSnapshot >= snapshotEveryEvents;
+    }
+
+    /**
+     * Writes all buffered events to the log (fsyncing them unless the policy is NONE).
+     */
+    public void flush() {
+        if (pendingEvents == 0) {
+            return;
+        }
+        try {
+            buffer.flip();
+            if (framed) {
+                int length = buffer.limit() - FRAME_HEADER_SIZE;
+                buffer.putInt(0, length).putInt(4, checksum(buffer, FRAME_HEADER_SIZE, length));
+            }
+            while (buffer.hasRemaining()) {
+                writtenBytes += log.write(buffer);
+            }
+            startGroup();
+            pendingEvents = 0;
+            if (fsyncPolicy != FsyncPolicy.NONE) {
+                log.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write vending journal", e);
+        }
+    }
+
+    /**
+     * Flushes and forces the log, then writes a snapshot of the machine at the current log position.
+     * The log is forced under every FsyncPolicy: a snapshot must never point past the durable log.
+     */
+    public void snapshot(VendingMachine machine) {
+        flush();
+        try {
+            log.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write vending journal", e);
+        }
+        Inventory inventory = machine.getInventory();
+        int slots = inventory.getSlotCount();
+        CoinInventory coins = machine.getCoinInventory();
+        int denominations = coins == null ? 0 : coins.getDenominationCount();
+        ByteBuffer snapshot = ByteBuffer.allocate(8 + 4 * 7 + 4 * slots + 4 * denominations);
+        snapshot.putInt(SNAPSHOT_MAGIC)
+                .putInt(SNAPSHOT_VERSION)
+                .putLong(writtenBytes)
+                .putInt(machine.getStateOrdinal())
+                .putInt(machine.getInsertedMoney())
+                .putInt(machine.getSelectedProduct() == null ? -1 : inventory.slotOf(machine.getSelectedProduct().getCode()))
+                .putInt(slots);
+        for (int slot = 0; slot < slots; slot++) {
+            snapshot.putInt(inventory.getQuantity(slot));
+        }
+        snapshot.putInt(denominations);
+        for (int i = 0; i < denominations; i++) {
+            snapshot.putInt(coins.getCount(i));
+        }
+        snapshot.flip();
+
+        Path target = directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, writtenBytes, SNAPSHOT_SUFFIX));
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (snapshot.hasRemaining()) {
+                channel.write(snapshot);
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write vending snapshot", e);
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot publish vending snapshot", e);
+        }
+        eventsSinceSnapshot = 0;
+    }
+
+    /**
+     * Restores the machine from the latest snapshot plus the events logged after it.
+     * Call this before attaching the journal to the machine. A torn tail left by a crash is
+     * truncated.
+     *
+     * @return the number of events replayed after the snapshot
+     * @throws IllegalStateException if the log is damaged before its end
+     */
+    public long recover(VendingMachine machine) {
+        flush();
+        try {
+            long position = loadLatestSnapshot(machine);
+            return replay(machine, position);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot recover vending machine", e);
+        }
+    }
+
+    /**
+     * Loads the latest snapshot within the log. A snapshot past the end of the log (whose
+     * unforced tail was lost in a crash) would include events the log no longer holds,
+     * so it is ignored.
+     */
+    private long loadLatestSnapshot(VendingMachine machine) throws IOException {
+        Path latest;
+        long logSize = log.size();
+        try (Stream<Path> files = Files.list(directory)) {
+            latest = files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX)
+                        && snapshotPosition(name) <= logSize;
+            }).max(Path::compareTo).orElse(null);
+        }
+        if (latest == null) {
+            return 0;
+        }
+        ByteBuffer snapshot = ByteBuffer.wrap(Files.readAllBytes(latest));
+        if (snapshot.getInt(0) == SNAPSHOT_MAGIC) {
+            int version = snapshot.getInt(4);
+            if (version != SNAPSHOT_VERSION) {
+                throw new IllegalStateException("Unsupported vending snapshot version " + version + " in " + latest);
+            }
+            snapshot.position(8);
+        }
+        // else: written before snapshots had a version, with the same layout minus the header
+        long position = snapshot.getLong();
+        int state = snapshot.getInt();
+        int money = snapshot.getInt();
+        int selectedSlot = snapshot.getInt();
+        int slots = snapshot.getInt();
+        Inventory inventory = machine.getInventory();
+        for (int slot = 0; slot < slots; slot++) {
+            inventory.setQuantity(slot, snapshot.getInt());
+        }
+        // The oldest snapshots end here: they predate coin counts
+        int denominations = snapshot.hasRemaining() ? snapshot.getInt() : 0;
+        for (int i = 0; i < denominations; i++) {
+            machine.getCoinInventory().setCount(i, snapshot.getInt());
+        }
+        machine.restore(state, money, selectedSlot);
+        return position;
+    }
+
+    /** Log position in a snapshot file name */
+    private static long snapshotPosition(String name) {
+        return Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length()));
+    }
+
+    private long replay(VendingMachine machine, long fromPosition) throws IOException {
+        Replay replay = new Replay(machine);
+        long position = framed
+                ? replayGroups(replay, Math.max(fromPosition, LOG_HEADER_SIZE))
+                : replayUnframed(replay, fromPosition);
+        if (position < writtenBytes) {
+            // Torn write of the last groups before a crash: drop them
+            log.truncate(position);
+            log.position(position);
+            writtenBytes = position;
+        }
+        machine.restore(replay.state, replay.money, replay.selectedSlot);
+        return replay.replayed;
+    }
+
+    /**
+     * Replays whole groups whose checksum matches, up to the first that does not. A crash only
+     * tears the end of the log, so that group must not be followed by an intact one.
+     *
+     * @return the end of the last group replayed
+     * @throws IllegalStateException if an intact group follows a damaged one, or an intact group
+     *                               holds something that is no event
+     */
+    private long replayGroups(Replay replay, long position) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocateDirect(FRAME_HEADER_SIZE + MAX_GROUP_BYTES);
+        long end = writtenBytes;
+        while (position < end) {
+            chunk.clear();
+            chunk.limit((int) Math.min(chunk.capacity(), end - position));
+            read(chunk, position);
+            boolean lastChunk = position + chunk.limit() == end;
+            int frame = 0;
+            boolean damaged = false;
+            while (chunk.limit() - frame >= FRAME_HEADER_SIZE) {
+                int length = chunk.getInt(frame);
+                int events = frame + FRAME_HEADER_SIZE;
+                if (length <= 0 || length > MAX_GROUP_BYTES) {
+                    damaged = true;
+                    break;
+                }
+                if (chunk.limit() - events < length) {
+                    // Read whole with the next chunk, unless the log ends inside it
+                    break;
+                }
+                if (checksum(chunk, events, length) != chunk.getInt(frame + 4)) {
+                    damaged = true;
+                    break;
+                }
+                int applied = replay.apply(chunk, events, events + length);
+                if (applied < events + length) {
+                    throw new IllegalStateException("Corrupt vending journal at byte " + (position + applied));
+                }
+                frame = applied;
+            }
+            position += frame;
+            if (damaged || lastChunk) {
+                break;
+            }
+        }
+        if (position < end && hasIntactGroupAfter(position, end)) {
+            throw new IllegalStateException("Corrupt vending journal: damaged group at byte " + position);
+        }
+        return position;
+    }
+
+    /** Whether a whole group whose checksum matches starts at any byte after the position */
+    private boolean hasIntactGroupAfter(long position, long end) throws IOException {
+        ByteBuffer window = ByteBuffer.allocateDirect(FRAME_HEADER_SIZE + MAX_GROUP_BYTES);
+        long start = position + 1;
+        while (end - start >= FRAME_HEADER_SIZE) {
+            window.clear();
+            window.limit((int) Math.min(window.capacity(), end - start));
+            read(window, start);
+            int offset = 0;
+            for (; offset <= window.limit() - FRAME_HEADER_SIZE; offset++) {
+                int length = window.getInt(offset);
+                if (length <= 0 || length > MAX_GROUP_BYTES
+                        || end - start - offset - FRAME_HEADER_SIZE < length) {
+                    continue;
+                }
+                if (window.limit() - offset - FRAME_HEADER_SIZE < length) {
+                    // Read it whole with the next window
+                    break;
+                }
+                if (checksum(window, offset + FRAME_HEADER_SIZE, length) == window.getInt(offset + 4)) {
+                    return true;
+                }
+            }
+            start += offset;
+        }
+        return false;
+    }
+
+    /**
+     * Replays a log of an earlier release. It has no checksums, so whatever cannot be read at
+     * its end, a cut-off event or bytes that are no event, is taken for a torn tail.
+     *
+     * @return the end of the last event replayed
+     */
+    private long replayUnframed(Replay replay, long position) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocateDirect(1 << 20);
+        long end = writtenBytes;
+        while (position < end) {
+            chunk.clear();
+            chunk.limit((int) Math.min(chunk.capacity(), end - position));
+            read(chunk, position);
+            // An event cut off by the chunk is read whole with the next one
+            int applied = replay.apply(chunk, 0, chunk.limit());
+            if (applied == 0) {
+                break;
+            }
+            position += applied;
+        }
+        return position;
+    }
+
+    /** CRC32C of the buffer's bytes between the offsets */
+    private int checksum(ByteBuffer buffer, int from, int length) {
+        checksum.reset();
+        checksum.update(buffer.duplicate().limit(from + length).position(from));
+        return (int) checksum.getValue();
+    }
+
+    /** Events appended through this journal instance */
+    public long getEventCount() {
+        return eventCount;
+    }
+
+    /** Size of the log on disk, excluding buffered events */
+    public long getWrittenBytes() {
+        return writtenBytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        log.force(true);
+        log.close();
+    }
+
+    /** The machine's fields, rebuilt event by event */
+    private static final class Replay {
+        private final Inventory inventory;
+        private final CoinInventory coins;
+        private int state;
+        private int money;
+        private int selectedSlot;
+        private long replayed;
+
+        Replay(VendingMachine machine) {
+            inventory = machine.getInventory();
+            coins = machine.getCoinInventory();
+            state = machine.getStateOrdinal();
+            money = machine.getInsertedMoney();
+            selectedSlot = machine.getSelectedProduct() == null
+                    ? -1 : inventory.slotOf(machine.getSelectedProduct().getCode());
+        }
+
+        /**
+         * Applies the events between the offsets, stopping at one cut off at {@code to} or of
+         * no known type.
+         *
+         * @return the offset after the last event applied
+         */
+        int apply(ByteBuffer buffer, int from, int to) {
+            int offset = from;
+            while (offset < to) {
+                byte type = buffer.get(offset);
+                int size = type == STOCK_SET || type == COINS_ADDED ? 9 : 5;
+                if (to - offset < size) {
+                    break;
+                }
+                int argument = buffer.getInt(offset + 1);
+                switch (type) {
+                    case MONEY_ADDED:
+                        money += argument;
+                        break;
+                    case MONEY_RESET:
+                        money = 0;
+                        break;
+                    case PRODUCT_SELECTED:
+                        selectedSlot = argument;
+                        break;
+                    case SELECTION_CLEARED:
+                        selectedSlot = -1;
+                        break;
+                    case STOCK_TAKEN:
+                        inventory.take(argument);
+                        break;
+                    case STOCK_SET:
+                        inventory.setQuantity(argument, buffer.getInt(offset + 5));
+                        break;
+                    case REFILLED:
+                        inventory.refillAll(argument);
+                        if (coins != null) {
+                            coins.refill();
+                        }
+                        break;
+                    case CHANGE_PAID:
+                        coins.payOut(argument);
+                        break;
+                    case COINS_ADDED:
+                        coins.addCoins(argument, buffer.getInt(offset + 5));
+                        break;
+                    case STATE_CHANGED:
+                        state = argument;
+                        break;
+                    default:
+                        return offset;
+                }
+                offset += size;
+                replayed++;
+            }
+            return offset;
+        }
+    }
+}
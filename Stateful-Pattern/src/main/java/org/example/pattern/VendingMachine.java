@@ -1,24 +1,31 @@
 package org.example.pattern;
 
-import java.util.HashMap;
-import java.util.Map;
-
 /**
  * Context class - Vending Machine
  * Maintains the current state and delegates operations to the state objects
  */
-public class VendingMachine {
+public class VendingMachine implements VendingContext {
     private VendingMachineState currentState;
     private VendingMachineState idleState;
     private VendingMachineState hasMoneyState;
     private VendingMachineState dispensingState;
     private VendingMachineState outOfStockState;
     
-    private Map<String, Product> inventory;
-    private Map<String, Integer> stock;
+    private Inventory inventory;
+    private CoinInventory coins;
     private int insertedMoney;
     private Product selectedProduct;
     
+    private VendingJournal journal;
+    private VendingEventSink eventSink = ConsoleEventSink.INSTANCE;
+    
+    private SessionTimeouts sessionTimeouts;
+    private int sessionTimeoutId;
+    private long sessionTimer = -1;
+    
+    private InventoryAnalytics analytics;
+    private int analyticsId;
+    
     public VendingMachine() {
         // Initialize states
         idleState = new IdleState(this);
@@ -27,8 +34,7 @@ public class VendingMachine {
         outOfStockState = new OutOfStockState(this);
         
         // Initialize inventory
-        inventory = new HashMap<>();
-        stock = new HashMap<>();
+        inventory = new Inventory();
         
         // Add some initial products
         addProduct(new Product("A1", "Coke", 25), 5);
@@ -36,14 +42,98 @@ public class VendingMachine {
         addProduct(new Product("B1", "Water", 15), 5);
         addProduct(new Product("B2", "Juice", 30), 5);
         
+        // and a float of coins for change
+        coins = new CoinInventory(new int[] {1, 5, 10, 20}, new int[] {20, 20, 20, 20}, 1000);
+        
         // Set initial state
         currentState = idleState;
         insertedMoney = 0;
     }
     
     public void addProduct(Product product, int quantity) {
-        inventory.put(product.getCode(), product);
-        stock.put(product.getCode(), quantity);
+        inventory.addProduct(product, quantity);
+        if (journal != null) {
+            journal.append(VendingJournal.STOCK_SET, inventory.slotOf(product.getCode()), quantity);
+        }
+    }
+    
+    /**
+     * Records every following change of this machine in the journal.
+     * Recover the machine from the journal first, if it has history.
+     */
+    public void setJournal(VendingJournal journal) {
+        this.journal = journal;
+    }
+    
+    public VendingJournal getJournal() {
+        return journal;
+    }
+    
+    /**
+     * Sends the machine's messages to the sink instead of the console.
+     */
+    public void setEventSink(VendingEventSink eventSink) {
+        this.eventSink = eventSink;
+    }
+    
+    public VendingEventSink getEventSink() {
+        return eventSink;
+    }
+    
+    /** Called by SessionTimeouts.watch */
+    void watchSessions(SessionTimeouts sessionTimeouts, int id) {
+        this.sessionTimeouts = sessionTimeouts;
+        this.sessionTimeoutId = id;
+        if (currentState == hasMoneyState) {
+            restartSessionTimer();
+        }
+    }
+    
+    /**
+     * Called by SessionTimeouts.unwatch.
+     * @return the machine's id in those timeouts, or -1 if it is not watched by them
+     */
+    int unwatchSessions(SessionTimeouts sessionTimeouts) {
+        if (this.sessionTimeouts != sessionTimeouts) {
+            return -1;
+        }
+        stopSessionTimer();
+        this.sessionTimeouts = null;
+        return sessionTimeoutId;
+    }
+    
+    /** Called by InventoryAnalytics.track */
+    void trackSales(InventoryAnalytics analytics, int id) {
+        this.analytics = analytics;
+        this.analyticsId = id;
+    }
+    
+    /**
+     * Cancels the current session after it sat idle for too long, refunding the money.
+     */
+    void expireSession() {
+        sessionTimer = -1;
+        if (currentState == hasMoneyState) {
+            emit(VendingEvent.SESSION_EXPIRED, null, insertedMoney);
+            cancelTransaction();
+        }
+    }
+    
+    private void restartSessionTimer() {
+        stopSessionTimer();
+        sessionTimer = sessionTimeouts.arm(sessionTimeoutId);
+    }
+    
+    private void stopSessionTimer() {
+        if (sessionTimer != -1) {
+            sessionTimeouts.disarm(sessionTimer);
+            sessionTimer = -1;
+        }
+    }
+    
+    /** Reports an event to the sink; used by the states */
+    public void emit(VendingEvent event, String subject, int amount) {
+        eventSink.emit(event, subject, amount);
     }
     
     public void insertMoney(int amount) {
@@ -69,6 +159,41 @@ public class VendingMachine {
     // State management
     public void setState(VendingMachineState state) {
         this.currentState = state;
+        if (sessionTimeouts != null) {
+            if (state == hasMoneyState) {
+                restartSessionTimer();
+            } else {
+                stopSessionTimer();
+            }
+        }
+        if (journal != null) {
+            journal.append(VendingJournal.STATE_CHANGED, getStateOrdinal());
+            // Snapshot only between transactions, when the machine is at rest
+            if ((state == idleState || state == outOfStockState) && journal.isSnapshotDue()) {
+                journal.snapshot(this);
+            }
+        }
+    }
+    
+    /** 0 idle, 1 has money, 2 dispensing, 3 out of stock */
+    int getStateOrdinal() {
+        if (currentState == hasMoneyState) {
+            return 1;
+        }
+        if (currentState == dispensingState) {
+            return 2;
+        }
+        return currentState == outOfStockState ? 3 : 0;
+    }
+    
+    /**
+     * Restores state, money and selection recovered from the journal, without journaling them.
+     */
+    void restore(int stateOrdinal, int money, int selectedSlot) {
+        VendingMachineState[] states = {idleState, hasMoneyState, dispensingState, outOfStockState};
+        this.currentState = states[stateOrdinal];
+        this.insertedMoney = money;
+        this.selectedProduct = selectedSlot < 0 ? null : inventory.getProduct(selectedSlot);
     }
     
     // Getters for state objects
@@ -91,6 +216,13 @@ public class VendingMachine {
     // Money management
     public void addMoney(int amount) {
         this.insertedMoney += amount;
+        if (sessionTimeouts != null && currentState == hasMoneyState) {
+            // Inserting more money is activity: restart the idle timeout
+            restartSessionTimer();
+        }
+        if (journal != null) {
+            journal.append(VendingJournal.MONEY_ADDED, amount);
+        }
     }
     
     public int getInsertedMoney() {
@@ -99,31 +231,97 @@ public class VendingMachine {
     
     public void resetMoney() {
         this.insertedMoney = 0;
+        if (journal != null) {
+            journal.append(VendingJournal.MONEY_RESET, 0);
+        }
     }
     
     public int returnMoney() {
         int money = insertedMoney;
-        insertedMoney = 0;
+        resetMoney();
         return money;
     }
     
     // Product management
+    public Inventory getInventory() {
+        return inventory;
+    }
+    
     public Product getProduct(String code) {
-        return inventory.get(code);
+        return inventory.getProduct(code);
+    }
+    
+    /**
+     * Coins for giving change, or null if change is not limited by coins.
+     */
+    public CoinInventory getCoinInventory() {
+        return coins;
+    }
+    
+    public void setCoinInventory(CoinInventory coins) {
+        this.coins = coins;
+    }
+    
+    public boolean canMakeChange(int amount) {
+        return coins == null || coins.canMakeChange(amount);
+    }
+    
+    /**
+     * Pays out change from the coin inventory.
+     * @return false, with nothing paid, if the coins cannot make the amount
+     */
+    public boolean payOutChange(int amount) {
+        if (coins == null || amount == 0) {
+            return true;
+        }
+        if (!coins.payOut(amount)) {
+            return false;
+        }
+        if (journal != null) {
+            journal.append(VendingJournal.CHANGE_PAID, amount);
+        }
+        return true;
+    }
+    
+    public void addCoins(int denominationIndex, int count) {
+        coins.addCoins(denominationIndex, count);
+        if (journal != null) {
+            journal.append(VendingJournal.COINS_ADDED, denominationIndex, count);
+        }
     }
     
     public boolean isProductAvailable(String code) {
-        return stock.containsKey(code) && stock.get(code) > 0;
+        return inventory.isAvailable(code);
     }
     
-    public void reduceStock(String code) {
-        if (stock.containsKey(code)) {
-            stock.put(code, stock.get(code) - 1);
+    /**
+     * Takes one item of the product out of stock.
+     * @return false if the product is not stocked or already sold out
+     */
+    public boolean reduceStock(String code) {
+        int slot = inventory.slotOf(code);
+        return slot >= 0 && takeSlot(slot);
+    }
+    
+    /** reduceStock for a slot already looked up */
+    boolean takeSlot(int slot) {
+        if (!inventory.take(slot)) {
+            return false;
+        }
+        if (journal != null) {
+            journal.append(VendingJournal.STOCK_TAKEN, slot);
         }
+        if (analytics != null) {
+            analytics.recordDispense(analyticsId, slot);
+        }
+        return true;
     }
     
     public void setSelectedProduct(Product product) {
         this.selectedProduct = product;
+        if (journal != null) {
+            journal.append(VendingJournal.PRODUCT_SELECTED, inventory.slotOf(product.getCode()));
+        }
     }
     
     public Product getSelectedProduct() {
@@ -132,26 +330,136 @@ public class VendingMachine {
     
     public void resetSelectedProduct() {
         this.selectedProduct = null;
+        if (journal != null) {
+            journal.append(VendingJournal.SELECTION_CLEARED, 0);
+        }
     }
     
     public boolean hasAnyStock() {
-        return stock.values().stream().anyMatch(quantity -> quantity > 0);
+        return inventory.hasAnyStock();
     }
     
     public void refillAllProducts() {
-        for (String code : stock.keySet()) {
-            stock.put(code, 10); // Refill to 10 items each
+        inventory.refillAll(10); // Refill to 10 items each
+        if (coins != null) {
+            coins.refill();
+        }
+        if (journal != null) {
+            journal.append(VendingJournal.REFILLED, 10);
+        }
+        if (analytics != null) {
+            analytics.recordRefill(analyticsId, 10);
+        }
+    }
+    
+    public int applyBatch(VendingBatch batch, byte[] outcomes) {
+        return applyBatch(batch.getOps(), batch.size(), outcomes);
+    }
+    
+    /**
+     * Applies packed operations (see VendingBatch) in one pass, without printing.
+     * Each operation goes through the current state object like a normal call, with the
+     * events captured instead of reported; the outcome of operation i is stored as the
+     * ordinal of its VendOutcome in {@code outcomes[i]}.
+     *
+     * @return the number of products dispensed
+     */
+    public int applyBatch(int[] ops, int opCount, byte[] outcomes) {
+        if (outcomes.length < opCount) {
+            throw new IllegalArgumentException("outcomes holds " + outcomes.length + " results, need " + opCount);
+        }
+        int dispensed = 0;
+        int slotCount = inventory.getSlotCount();
+        OutcomeSink sink = new OutcomeSink();
+        VendingEventSink reportingSink = eventSink;
+        eventSink = sink;
+        try {
+            for (int i = 0, index = 0; i < opCount; i++, index += VendingBatch.STRIDE) {
+                int argument = ops[index + 1];
+                sink.outcome = null;
+                switch (ops[index]) {
+                    case VendingBatch.INSERT_MONEY:
+                        currentState.insertMoney(argument);
+                        break;
+                    case VendingBatch.SELECT_PRODUCT:
+                        // An unknown slot is an unknown code
+                        currentState.selectProduct(argument >= 0 && argument < slotCount
+                                ? inventory.getProduct(argument).getCode() : null);
+                        break;
+                    case VendingBatch.DISPENSE:
+                        currentState.dispenseProduct();
+                        break;
+                    case VendingBatch.CANCEL:
+                        currentState.cancelTransaction();
+                        break;
+                    case VendingBatch.REFILL:
+                        currentState.refillProducts();
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown opcode " + ops[index] + " at operation " + i);
+                }
+                if (sink.outcome == null) {
+                    throw new IllegalStateException("No outcome for opcode " + ops[index] + " at operation " + i);
+                }
+                if (sink.outcome == VendOutcome.DISPENSED) {
+                    dispensed++;
+                }
+                outcomes[i] = (byte) sink.outcome.ordinal();
+            }
+        } finally {
+            eventSink = reportingSink;
+        }
+        return dispensed;
+    }
+    
+    /**
+     * Captures the outcome of one batch operation from the events the states report.
+     * Events without an outcome (e.g. TOTAL_MONEY, COLLECT_PRODUCT) leave it unchanged.
+     */
+    private static final class OutcomeSink implements VendingEventSink {
+        private static final VendOutcome[] OUTCOMES = new VendOutcome[VendingEvent.values().length];
+        
+        static {
+            map(VendOutcome.ACCEPTED, VendingEvent.MONEY_INSERTED, VendingEvent.ADDITIONAL_MONEY_INSERTED);
+            map(VendOutcome.INVALID_AMOUNT, VendingEvent.INVALID_AMOUNT);
+            map(VendOutcome.NO_MONEY, VendingEvent.INSERT_MONEY_FIRST);
+            map(VendOutcome.NO_SELECTION, VendingEvent.INSERT_MONEY_AND_SELECT_FIRST,
+                    VendingEvent.SELECT_PRODUCT_FIRST, VendingEvent.NO_PRODUCTS, VendingEvent.NO_PRODUCT_SELECTED);
+            map(VendOutcome.INVALID_PRODUCT, VendingEvent.INVALID_PRODUCT);
+            map(VendOutcome.OUT_OF_STOCK, VendingEvent.PRODUCT_OUT_OF_STOCK, VendingEvent.SOLD_OUT_REFUNDED);
+            map(VendOutcome.INSUFFICIENT_FUNDS, VendingEvent.INSUFFICIENT_FUNDS);
+            map(VendOutcome.DISPENSED, VendingEvent.DISPENSING);
+            map(VendOutcome.CANCELLED, VendingEvent.TRANSACTION_CANCELLED);
+            map(VendOutcome.NO_TRANSACTION, VendingEvent.NO_TRANSACTION);
+            map(VendOutcome.BUSY, VendingEvent.WAIT_FOR_DISPENSING, VendingEvent.ALREADY_DISPENSING,
+                    VendingEvent.CANCEL_REJECTED_WHILE_DISPENSING, VendingEvent.REFILL_REJECTED_WHILE_DISPENSING,
+                    VendingEvent.REFILL_REJECTED_IN_TRANSACTION);
+            map(VendOutcome.MACHINE_EMPTY, VendingEvent.MACHINE_EMPTY_MONEY_REJECTED, VendingEvent.MACHINE_EMPTY);
+            map(VendOutcome.REFILLED, VendingEvent.REFILLED);
+            map(VendOutcome.NO_CHANGE, VendingEvent.CANNOT_MAKE_CHANGE);
+        }
+        
+        private VendOutcome outcome;
+        
+        private static void map(VendOutcome outcome, VendingEvent... events) {
+            for (VendingEvent event : events) {
+                OUTCOMES[event.ordinal()] = outcome;
+            }
+        }
+        
+        @Override
+        public void emit(VendingEvent event, String subject, int amount) {
+            VendOutcome mapped = OUTCOMES[event.ordinal()];
+            if (mapped != null) {
+                outcome = mapped;
+            }
         }
     }
     
     public void displayInventory() {
-        System.out.println("\n=== Vending Machine Inventory ===");
-        for (Map.Entry<String, Product> entry : inventory.entrySet()) {
-            String code = entry.getKey();
-            Product product = entry.getValue();
-            int quantity = stock.get(code);
-            System.out.println(code + ": " + product.getName() + " - $" + product.getPrice() + " (Stock: " + quantity + ")");
-        }
-        System.out.println("================================\n");
+        eventSink.emit(VendingEvent.INVENTORY_HEADER, null, 0);
+        inventory.forEach((product, quantity) -> eventSink.emit(VendingEvent.INVENTORY_ITEM,
+                product.getCode() + ": " + product.getName() + " - $" + product.getPrice(), quantity));
+        eventSink.emit(VendingEvent.INVENTORY_FOOTER, null, 0);
     }
 }
@@ -0,0 +1,28 @@
+package org.example.pattern;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Asynchronous Strategy Interface - a payment method that answers with a future instead of
+ * blocking the caller until the provider responds
+ */
+public interface AsyncPaymentStrategy {
+    /**
+     * Starts a payment. The future completes with the provider's answer; a provider that
+     * cannot be reached should complete it with an ERROR result rather than exceptionally.
+     * @param amount packed Money (see Money)
+     */
+    CompletableFuture<PaymentResult> payAsync(long amount);
+
+    /**
+     * Runs a blocking PaymentStrategy on the executor; it is authorized unless it throws.
+     */
+    static AsyncPaymentStrategy of(PaymentStrategy strategy, Executor executor) {
+        return amount -> CompletableFuture.supplyAsync(() -> {
+            strategy.payMoney(amount);
+            return new PaymentResult(PaymentResult.Status.AUTHORIZED, null, amount, null);
+        }, executor).exceptionally(e -> new PaymentResult(PaymentResult.Status.ERROR, null, amount,
+                String.valueOf(e.getCause() != null ? e.getCause().getMessage() : e.getMessage())));
+    }
+}
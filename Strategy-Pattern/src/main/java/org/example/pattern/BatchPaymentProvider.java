@@ -0,0 +1,19 @@
+package org.example.pattern;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A provider's batch settlement API: many payments in one call
+ */
+public interface BatchPaymentProvider {
+    /**
+     * Settles {@code amounts[0..count)} (packed Money). Before completing, the provider writes
+     * the outcome of every payment into {@code statuses} as a PaymentResult.Status ordinal;
+     * the future completes with the provider's reference for the batch. The arrays are reused
+     * for later batches, so the provider must not touch them after completing.
+     */
+    CompletableFuture<String> settle(long[] amounts, int count, byte[] statuses);
+
+    /** Name for reports, e.g. "Credit Card" */
+    String getName();
+}
@@ -0,0 +1,136 @@
+package org.example.pattern;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Cart benchmark
+ * Fills a cart with 100k lines, then runs a mixed workload: 30% add (an existing or new
+ * SKU), 20% remove one, 20% set a quantity, 30% read the total (every tenth also the tax).
+ * Compares ShoppingCart with the previous design, a list of items re-summed on every total,
+ * and checks ShoppingCart's running totals against a recomputation at the end.
+ *
+ * Usage: java org.example.pattern.CartBenchmark [lines] [operations]
+ */
+public class CartBenchmark {
+    /** The previous cart: one list entry per unit, O(n) remove and total */
+    private static final class ListCart {
+        private final List<Item> items = new ArrayList<>();
+
+        void addItem(Item item) {
+            items.add(item);
+        }
+
+        void removeItem(Item item) {
+            items.remove(item);
+        }
+
+        long calculateTotal() {
+            long total = 0;
+            for (Item item : items) {
+                total += Money.minorUnits(item.getPriceMoney());
+            }
+            return total;
+        }
+    }
+
+    private static long sink;
+
+    public static void main(String[] args) {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 10_000_000;
+
+        Item[] catalog = catalog(lines * 2);
+        indexed(catalog, lines, operations / 10); // warm-up
+        indexed(catalog, lines, operations);
+        list(catalog, lines, Math.max(1, operations / 1_000));
+    }
+
+    private static Item[] catalog(int size) {
+        Random random = new Random(1);
+        TaxClass[] classes = TaxClass.values();
+        Item[] catalog = new Item[size];
+        for (int i = 0; i < size; i++) {
+            catalog[i] = new Item("SKU-" + i, "Product " + i, 100 + random.nextInt(100_000), "USD",
+                    classes[random.nextInt(classes.length)]);
+        }
+        return catalog;
+    }
+
+    private static void indexed(Item[] catalog, int lines, int operations) {
+        ShoppingCart cart = new ShoppingCart();
+        for (int i = 0; i < lines; i++) {
+            cart.addItem(catalog[i]);
+        }
+        Random random = new Random(2);
+        long start = System.nanoTime();
+        for (int op = 0; op < operations; op++) {
+            int choice = random.nextInt(10);
+            Item item = catalog[random.nextInt(catalog.length)];
+            if (choice < 3) {
+                cart.addItem(item);
+            } else if (choice < 5) {
+                cart.removeItem(item);
+            } else if (choice < 7) {
+                cart.setQuantity(item.getSku(), random.nextInt(5));
+            } else {
+                sink += cart.calculateTotalMoney();
+                if (choice == 9 && (op & 7) == 0) {
+                    sink += cart.calculateTaxMoney();
+                }
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        verify(cart, catalog);
+        System.out.printf("ShoppingCart: %,d ops in %,.0f ms, %,.0f ns/op (%,d lines, %,d items at the end)%n",
+                operations, nanos / 1e6, (double) nanos / operations, cart.getLineCount(), cart.getItemCount());
+    }
+
+    private static void list(Item[] catalog, int lines, int operations) {
+        ListCart cart = new ListCart();
+        for (int i = 0; i < lines; i++) {
+            cart.addItem(catalog[i]);
+        }
+        Random random = new Random(2);
+        long start = System.nanoTime();
+        for (int op = 0; op < operations; op++) {
+            int choice = random.nextInt(10);
+            Item item = catalog[random.nextInt(catalog.length)];
+            if (choice < 3) {
+                cart.addItem(item);
+            } else if (choice < 7) {
+                // A quantity change is a remove in a list of units
+                cart.removeItem(item);
+            } else {
+                sink += cart.calculateTotal();
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        System.out.printf("List of items (previous cart): %,d ops in %,.0f ms, %,.0f ns/op%n",
+                operations, nanos / 1e6, (double) nanos / operations);
+    }
+
+    /** Recomputes every total from the quantities and compares with the running ones */
+    private static void verify(ShoppingCart cart, Item[] catalog) {
+        long total = 0;
+        long items = 0;
+        Map<TaxClass, Long> byClass = new HashMap<>();
+        for (Item item : catalog) {
+            int quantity = cart.getQuantity(item.getSku());
+            long amount = Money.minorUnits(item.getPriceMoney()) * quantity;
+            total += amount;
+            items += quantity;
+            byClass.merge(item.getTaxClass(), amount, Long::sum);
+        }
+        boolean ok = total == Money.minorUnits(cart.calculateTotalMoney()) && items == cart.getItemCount();
+        for (TaxClass taxClass : TaxClass.values()) {
+            ok &= byClass.getOrDefault(taxClass, 0L) == Money.minorUnits(cart.getSubtotal(taxClass));
+        }
+        if (!ok) {
+            throw new IllegalStateException("Running totals differ from a recomputation");
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.example.pattern;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checkout load test
+ * Runs checkouts against the four stub providers (round robin, each answering after the
+ * given latency plus jitter) through the CheckoutPipeline with a cap on checkouts in flight,
+ * and reports throughput, latency percentiles and outcomes. For comparison, runs the same
+ * providers the blocking way: a pool of threads each waiting for its payment, which is
+ * what ShoppingCart.checkout does to its caller.
+ *
+ * Usage: java org.example.pattern.CheckoutLoadTest [checkouts] [latencyMillis] [inFlight] [blockingThreads]
+ */
+public class CheckoutLoadTest {
+    public static void main(String[] args) throws InterruptedException {
+        int checkouts = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        long latencyMillis = args.length > 1 ? Long.parseLong(args[1]) : 50;
+        int inFlight = args.length > 2 ? Integer.parseInt(args[2]) : 5_000;
+        int blockingThreads = args.length > 3 ? Integer.parseInt(args[3]) : 200;
+
+        ScheduledExecutorService timer = Executors.newScheduledThreadPool(1);
+        StubPaymentProvider[] providers = {
+                StubPaymentProvider.creditCard(latencyMillis * 1_000, timer),
+                StubPaymentProvider.payPal(latencyMillis * 1_000, timer),
+                StubPaymentProvider.googlePay(latencyMillis * 1_000, timer),
+                StubPaymentProvider.cryptocurrency(latencyMillis * 1_000, timer)
+        };
+        long[] amounts = new long[1024];
+        for (int i = 0; i < amounts.length; i++) {
+            // Mostly small baskets, a few large ones for the fraud check
+            amounts[i] = Money.of("USD", i % 100 == 0 ? 500_000 + i * 1_000L : 500 + i * 37L);
+        }
+
+        int threads = Runtime.getRuntime().availableProcessors() * 2;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CheckoutPipeline pipeline = new CheckoutPipeline(executor, CheckoutPipeline.AMOUNT_SCORER, 60,
+                latencyMillis * 20);
+        pipeline(pipeline, providers, amounts, checkouts / 10, inFlight); // warm-up
+        pipeline = new CheckoutPipeline(executor, CheckoutPipeline.AMOUNT_SCORER, 60, latencyMillis * 20);
+        long[] latencies = pipeline(pipeline, providers, amounts, checkouts, inFlight);
+        System.out.printf("  on %d pipeline threads, at most %,d in flight%n", threads, inFlight);
+        report(latencies);
+        System.out.printf("  authorized %,d, declined %,d, error %,d, unknown %,d (authorized late %,d)%n",
+                pipeline.getCount(PaymentResult.Status.AUTHORIZED), pipeline.getCount(PaymentResult.Status.DECLINED),
+                pipeline.getCount(PaymentResult.Status.ERROR), pipeline.getCount(PaymentResult.Status.UNKNOWN),
+                pipeline.getLateCount(PaymentResult.Status.AUTHORIZED));
+        executor.shutdown();
+
+        blocking(providers, amounts, Math.min(checkouts, blockingThreads * 50), blockingThreads);
+        timer.shutdown();
+    }
+
+    private static long[] pipeline(CheckoutPipeline pipeline, StubPaymentProvider[] providers, long[] amounts,
+                                   int checkouts, int inFlight) throws InterruptedException {
+        Semaphore window = new Semaphore(inFlight);
+        long[] latencies = new long[checkouts];
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[checkouts];
+        long start = System.nanoTime();
+        for (int i = 0; i < checkouts; i++) {
+            window.acquire();
+            int checkout = i;
+            long submitted = System.nanoTime();
+            futures[i] = pipeline.checkout(amounts[i % amounts.length], 1 + i % 5, 1 + i % 3,
+                    providers[i % providers.length]).whenComplete((result, failure) -> {
+                latencies[checkout] = System.nanoTime() - submitted;
+                window.release();
+            });
+        }
+        CompletableFuture.allOf(futures).join();
+        long nanos = System.nanoTime() - start;
+        System.out.printf("CheckoutPipeline: %,d checkouts in %.2f s, %,.0f checkouts/s%n",
+                checkouts, nanos / 1e9, checkouts / (nanos / 1e9));
+        return latencies;
+    }
+
+    /** Every checkout occupies a thread until its provider answers */
+    private static void blocking(StubPaymentProvider[] providers, long[] amounts, int checkouts, int threads)
+            throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long[] latencies = new long[checkouts];
+        long start = System.nanoTime();
+        for (int i = 0; i < checkouts; i++) {
+            int checkout = i;
+            pool.execute(() -> {
+                long submitted = System.nanoTime();
+                providers[checkout % providers.length].payAsync(amounts[checkout % amounts.length]).join();
+                latencies[checkout] = System.nanoTime() - submitted;
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.MINUTES);
+        long nanos = System.nanoTime() - start;
+        System.out.printf("Blocking, %d threads: %,d checkouts in %.2f s, %,.0f checkouts/s%n",
+                threads, checkouts, nanos / 1e9, checkouts / (nanos / 1e9));
+        report(latencies);
+    }
+
+    private static void report(long[] latencies) {
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        System.out.printf("  latency p50 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+                sorted[sorted.length / 2] / 1e6, sorted[(int) (sorted.length * 0.99)] / 1e6,
+                sorted[sorted.length - 1] / 1e6);
+    }
+}
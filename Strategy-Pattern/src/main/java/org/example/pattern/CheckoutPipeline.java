@@ -0,0 +1,174 @@
+package org.example.pattern;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Non-blocking checkout: validation, fraud scoring and payment as CompletableFuture stages.
+ *
+ * The caller gets a future right away. Validation and fraud scoring run on the pipeline's
+ * executor; the payment is handed to an AsyncPaymentStrategy, and no thread waits while the
+ * provider works, so thousands of checkouts can be in flight on a small pool. A payment the
+ * provider does not answer within the timeout completes as UNKNOWN, since the provider may
+ * still take it; its late answer, with the provider's reference, arrives through
+ * PaymentResult.getPendingAnswer(); so does a provider that fails instead of answering.
+ * Validation or scoring that throws, or an executor that rejects them, completes the
+ * checkout as ERROR, since no payment was sent. Once the provider has answered, its answer is
+ * recorded and returned even if the executor rejects the hand-back: the future never
+ * completes exceptionally and checkout() does not throw. Thread-safe.
+ */
+public class CheckoutPipeline {
+    /** Risk of a checkout from 0 (none) to 100 */
+    @FunctionalInterface
+    public interface FraudScorer {
+        int score(long amount, long itemCount, int lineCount);
+    }
+
+    /** Scores by amount: nothing up to $1,000, rising to 100 at $10,000 and above */
+    public static final FraudScorer AMOUNT_SCORER = (amount, itemCount, lineCount) -> {
+        long cents = Money.minorUnits(amount);
+        return (int) Math.max(0, Math.min(100, (cents - 100_000) / 9_000));
+    };
+
+    private final Executor executor;
+    private final FraudScorer fraudScorer;
+    private final int declineScore;
+    private final long paymentTimeoutMillis;
+    private final AtomicLongArray results = new AtomicLongArray(PaymentResult.Status.values().length);
+    private final AtomicLongArray lateAnswers = new AtomicLongArray(PaymentResult.Status.values().length);
+
+    /**
+     * @param executor             runs validation and scoring, and continues after payment
+     * @param declineScore         fraud score at or above which the checkout is declined
+     * @param paymentTimeoutMillis how long the provider may take
+     */
+    public CheckoutPipeline(Executor executor, FraudScorer fraudScorer, int declineScore, long paymentTimeoutMillis) {
+        this.executor = executor;
+        this.fraudScorer = fraudScorer;
+        this.declineScore = declineScore;
+        this.paymentTimeoutMillis = paymentTimeoutMillis;
+    }
+
+    /**
+     * Starts checking out the cart's current contents. The cart is read on the calling
+     * thread and not changed; clear it once the result is AUTHORIZED.
+     */
+    public CompletableFuture<PaymentResult> checkout(ShoppingCart cart, AsyncPaymentStrategy provider) {
+        return checkout(cart.calculateTotalMoney(), cart.getItemCount(), cart.getLineCount(), provider);
+    }
+
+    /**
+     * @param amount packed Money
+     */
+    public CompletableFuture<PaymentResult> checkout(long amount, long itemCount, int lineCount,
+                                                     AsyncPaymentStrategy provider) {
+        CompletableFuture<PaymentResult> answered;
+        try {
+            answered = CompletableFuture
+                    .supplyAsync(() -> validate(amount, itemCount, provider), executor)
+                    .thenApplyAsync(refusal -> refusal != null ? refusal : screen(amount, itemCount, lineCount),
+                            executor)
+                    .thenComposeAsync(refusal -> refusal != null ? CompletableFuture.completedFuture(refusal)
+                            : pay(amount, provider), executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(record(error(amount, e)));
+        }
+        // pay() never fails, so a failure here happened before the payment was sent
+        CompletableFuture<PaymentResult> checkout = new CompletableFuture<>();
+        answered.whenComplete((result, failure) -> {
+            PaymentResult recorded = record(failure == null ? result : error(amount, failure));
+            // Back onto the executor: the provider may complete on its own I/O or timer thread
+            try {
+                executor.execute(() -> checkout.complete(recorded));
+            } catch (RejectedExecutionException e) {
+                checkout.complete(recorded);
+            }
+        });
+        return checkout;
+    }
+
+    /**
+     * Only a copy of the provider's future times out: the provider's own future stays
+     * pending, so an answer that arrives late is still delivered to the UNKNOWN result.
+     * Never completes exceptionally: a provider that fails may have taken the money, so
+     * that is UNKNOWN too.
+     */
+    private CompletableFuture<PaymentResult> pay(long amount, AsyncPaymentStrategy provider) {
+        CompletableFuture<PaymentResult> answer = send(amount, provider);
+        return answer.copy().orTimeout(paymentTimeoutMillis, TimeUnit.MILLISECONDS).exceptionally(failure -> {
+            if (!(cause(failure) instanceof TimeoutException)) {
+                return PaymentResult.unknown(amount, "Provider failed: " + cause(failure),
+                        answer.minimalCompletionStage());
+            }
+            CompletableFuture<PaymentResult> late = answer.handle((result, lateFailure) ->
+                    recordLate(lateFailure == null ? result : error(amount, lateFailure)));
+            return PaymentResult.unknown(amount, "Payment timed out; the provider may still answer",
+                    late.minimalCompletionStage());
+        });
+    }
+
+    /** The provider's future, failed if payAsync threw */
+    private static CompletableFuture<PaymentResult> send(long amount, AsyncPaymentStrategy provider) {
+        try {
+            return provider.payAsync(amount);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /** @return an ERROR result, or null if the checkout may go ahead */
+    private static PaymentResult validate(long amount, long itemCount, AsyncPaymentStrategy provider) {
+        if (itemCount <= 0) {
+            return new PaymentResult(PaymentResult.Status.ERROR, null, amount, "Cart is empty");
+        }
+        if (Money.minorUnits(amount) <= 0) {
+            return new PaymentResult(PaymentResult.Status.ERROR, null, amount, "Nothing to pay");
+        }
+        if (provider == null) {
+            return new PaymentResult(PaymentResult.Status.ERROR, null, amount, "No payment method");
+        }
+        return null;
+    }
+
+    /** @return a DECLINED result, or null if the checkout passes fraud screening */
+    private PaymentResult screen(long amount, long itemCount, int lineCount) {
+        int score = fraudScorer.score(amount, itemCount, lineCount);
+        if (score >= declineScore) {
+            return new PaymentResult(PaymentResult.Status.DECLINED, null, amount, "Fraud score " + score);
+        }
+        return null;
+    }
+
+    private static PaymentResult error(long amount, Throwable failure) {
+        return new PaymentResult(PaymentResult.Status.ERROR, null, amount, "Checkout failed: " + cause(failure));
+    }
+
+    private static Throwable cause(Throwable failure) {
+        return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+    }
+
+    private PaymentResult record(PaymentResult result) {
+        results.incrementAndGet(result.getStatus().ordinal());
+        return result;
+    }
+
+    private PaymentResult recordLate(PaymentResult result) {
+        lateAnswers.incrementAndGet(result.getStatus().ordinal());
+        return result;
+    }
+
+    /** Checkouts completed with the status so far */
+    public long getCount(PaymentResult.Status status) {
+        return results.get(status.ordinal());
+    }
+
+    /** Answers with the status that providers gave to UNKNOWN checkouts so far */
+    public long getLateCount(PaymentResult.Status status) {
+        return lateAnswers.get(status.ordinal());
+    }
+}
@@ -1,5 +1,7 @@
 package org.example.pattern;
 
+import java.math.RoundingMode;
+
 /**
  * Concrete Strategy - Credit Card Payment
  */
@@ -18,10 +20,15 @@ public class CreditCardPayment implements PaymentStrategy {
 
     @Override
     public void pay(double amount) {
+        payMoney(Money.of("USD", amount, RoundingMode.HALF_EVEN));
+    }
+
+    @Override
+    public void payMoney(long amount) {
         System.out.println("Processing Credit Card Payment...");
         System.out.println("Card Number: " + maskCardNumber(cardNumber));
         System.out.println("Cardholder: " + name);
-        System.out.println("Amount paid: $" + amount);
+        System.out.println("Amount paid: " + Money.display(amount));
         System.out.println("Credit Card payment successful!");
     }
 
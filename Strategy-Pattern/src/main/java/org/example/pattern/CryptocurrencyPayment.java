@@ -1,5 +1,7 @@
 package org.example.pattern;
 
+import java.math.RoundingMode;
+
 /**
  * Concrete Strategy - Cryptocurrency Payment
  */
@@ -14,10 +16,15 @@ public class CryptocurrencyPayment implements PaymentStrategy {
 
     @Override
     public void pay(double amount) {
+        payMoney(Money.of("USD", amount, RoundingMode.HALF_EVEN));
+    }
+
+    @Override
+    public void payMoney(long amount) {
         System.out.println("Processing Cryptocurrency Payment...");
         System.out.println("Crypto Type: " + cryptoType);
         System.out.println("Wallet Address: " + walletAddress);
-        System.out.println("Amount paid: $" + amount + " (converted to " + cryptoType + ")");
+        System.out.println("Amount paid: " + Money.display(amount) + " (converted to " + cryptoType + ")");
         System.out.println("Cryptocurrency payment successful!");
     }
 }
@@ -1,5 +1,7 @@
 package org.example.pattern;
 
+import java.math.RoundingMode;
+
 /**
  * Concrete Strategy - Google Pay Payment
  */
@@ -14,10 +16,15 @@ public class GooglePayPayment implements PaymentStrategy {
 
     @Override
     public void pay(double amount) {
+        payMoney(Money.of("USD", amount, RoundingMode.HALF_EVEN));
+    }
+
+    @Override
+    public void payMoney(long amount) {
         System.out.println("Processing Google Pay Payment...");
         System.out.println("Phone Number: " + phoneNumber);
         System.out.println("UPI ID: " + upiId);
-        System.out.println("Amount paid: $" + amount);
+        System.out.println("Amount paid: " + Money.display(amount));
         System.out.println("Google Pay payment successful!");
     }
 }
@@ -1,15 +1,56 @@
 package org.example.pattern;
 
+import java.math.RoundingMode;
+
 /**
  * Item class representing products in the shopping cart
+ *
+ * Items with the same SKU are the same product; the cart aggregates them into one line.
+ * Items created without a SKU get one made of their name and price, so two such items only
+ * share a line when they are interchangeable.
  */
 public class Item {
+    private String sku;
     private String name;
-    private double price;
+    private long price;
+    private TaxClass taxClass;
 
+    /**
+     * @param price price in US dollars, converted to exact cents once here
+     */
     public Item(String name, double price) {
+        this(name, Money.of("USD", price, RoundingMode.HALF_EVEN), TaxClass.STANDARD);
+    }
+
+    /**
+     * @param minorUnits price in the currency's minor units, e.g. 1999 for EUR 19.99
+     */
+    public Item(String name, long minorUnits, String currency) {
+        this(name, Money.of(currency, minorUnits), TaxClass.STANDARD);
+    }
+
+    public Item(String sku, String name, long minorUnits, String currency, TaxClass taxClass) {
+        this(sku, name, Money.of(currency, minorUnits), taxClass);
+    }
+
+    private Item(String name, long price, TaxClass taxClass) {
+        this(defaultSku(name, price), name, price, taxClass);
+    }
+
+    private Item(String sku, String name, long price, TaxClass taxClass) {
+        this.sku = sku;
         this.name = name;
         this.price = price;
+        this.taxClass = taxClass;
+    }
+
+    /** E.g. "Cable@USD 12.99" */
+    static String defaultSku(String name, long price) {
+        return name + "@" + Money.toString(price);
+    }
+
+    public String getSku() {
+        return sku;
     }
 
     public String getName() {
@@ -17,6 +58,15 @@ public class Item {
     }
 
     public double getPrice() {
+        return Money.toDouble(price);
+    }
+
+    /** The exact price as packed Money */
+    public long getPriceMoney() {
         return price;
     }
+
+    public TaxClass getTaxClass() {
+        return taxClass;
+    }
 }
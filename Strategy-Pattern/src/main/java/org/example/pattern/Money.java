@@ -0,0 +1,273 @@
+package org.example.pattern;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+
+/**
+ * Fixed-point money packed into a single long, so amounts can be stored, summed and passed
+ * around without objects, boxing or floating-point rounding.
+ *
+ * The top 15 bits hold the ISO 4217 currency code (three letters, 5 bits each) and the low
+ * 49 bits the amount in minor units (cents for USD) as a signed number, enough for about
+ * +/-2.8 trillion dollars. All arithmetic is exact; operations that must round take a
+ * RoundingMode, and every operation throws ArithmeticException instead of overflowing.
+ * Adding amounts of different currencies throws IllegalArgumentException.
+ *
+ * A packed value is not a number: use the methods here rather than long arithmetic on it.
+ */
+public final class Money {
+    private static final int AMOUNT_BITS = 49;
+    private static final long AMOUNT_MASK = (1L << AMOUNT_BITS) - 1;
+    public static final long MAX_MINOR_UNITS = (1L << (AMOUNT_BITS - 1)) - 1;
+    public static final long MIN_MINOR_UNITS = -(1L << (AMOUNT_BITS - 1));
+
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000};
+    /** Fraction digits + 1 per packed currency code, 0 until first looked up */
+    private static final byte[] FRACTION_DIGITS = new byte[1 << 15];
+
+    private Money() {
+    }
+
+    /** Packs {@code minorUnits} of the currency, e.g. of("USD", 99_999) is $999.99 */
+    public static long of(String currency, long minorUnits) {
+        int bits = currencyBits(currency);
+        fractionDigits(bits); // rejects unknown currencies
+        return (long) bits << AMOUNT_BITS | checkRange(minorUnits) & AMOUNT_MASK;
+    }
+
+    /** Parses a decimal amount such as "999.99"; more decimals than the currency has are rounded */
+    public static long parse(String currency, String amount, RoundingMode rounding) {
+        return of(currency, new BigDecimal(amount), rounding);
+    }
+
+    /**
+     * Converts a floating-point amount at the boundary, from its shortest decimal form
+     * (999.99, not 999.9900000000000090949...).
+     */
+    public static long of(String currency, double amount, RoundingMode rounding) {
+        return of(currency, BigDecimal.valueOf(amount), rounding);
+    }
+
+    public static long of(String currency, BigDecimal amount, RoundingMode rounding) {
+        int scale = fractionDigits(currencyBits(currency));
+        try {
+            return of(currency, amount.setScale(scale, rounding).unscaledValue().longValueExact());
+        } catch (ArithmeticException e) {
+            throw new ArithmeticException("Cannot represent " + amount + " " + currency + ": " + e.getMessage());
+        }
+    }
+
+    public static long zero(String currency) {
+        return of(currency, 0);
+    }
+
+    /** Same currency, different amount */
+    public static long withMinorUnits(long money, long minorUnits) {
+        return money & ~AMOUNT_MASK | checkRange(minorUnits) & AMOUNT_MASK;
+    }
+
+    public static long minorUnits(long money) {
+        // Sign-extend the 49-bit amount
+        return money << (64 - AMOUNT_BITS) >> (64 - AMOUNT_BITS);
+    }
+
+    public static String currency(long money) {
+        int bits = (int) (money >>> AMOUNT_BITS);
+        char[] code = new char[3];
+        for (int i = 2; i >= 0; i--) {
+            code[i] = (char) ('A' + (bits & 31) - 1);
+            bits >>>= 5;
+        }
+        return new String(code);
+    }
+
+    public static boolean sameCurrency(long a, long b) {
+        return (a ^ b) >>> AMOUNT_BITS == 0;
+    }
+
+    public static long add(long a, long b) {
+        requireSameCurrency(a, b);
+        return withMinorUnits(a, Math.addExact(minorUnits(a), minorUnits(b)));
+    }
+
+    public static long subtract(long a, long b) {
+        requireSameCurrency(a, b);
+        return withMinorUnits(a, Math.subtractExact(minorUnits(a), minorUnits(b)));
+    }
+
+    public static long multiply(long money, long quantity) {
+        return withMinorUnits(money, Math.multiplyExact(minorUnits(money), quantity));
+    }
+
+    /**
+     * Multiplies by numerator / denominator, rounding once at the end; e.g. a tax of 8.25%
+     * is multiply(price, 825, 10_000, RoundingMode.HALF_EVEN).
+     */
+    public static long multiply(long money, long numerator, long denominator, RoundingMode rounding) {
+        long product = Math.multiplyExact(minorUnits(money), numerator);
+        return withMinorUnits(money, divide(product, denominator, rounding));
+    }
+
+    /**
+     * Exact minor units as a sum of a primitive array: a plain counted loop the JIT can unroll
+     * and vectorize, with the overflow check once at the end (amounts are at most 49 bits, so
+     * more than 2^14 of them are needed to overflow a long in between).
+     */
+    public static long sumMinorUnits(long[] minorUnits, int from, int to) {
+        long total = 0;
+        int length = to - from;
+        if (length > 1 << 14) {
+            for (int i = from; i < to; i++) {
+                total = Math.addExact(total, minorUnits[i]);
+            }
+            return checkRange(total);
+        }
+        for (int i = from; i < to; i++) {
+            total += minorUnits[i];
+        }
+        return checkRange(total);
+    }
+
+    /** Rounds dividend / divisor to a long exactly as BigDecimal would */
+    static long divide(long dividend, long divisor, RoundingMode rounding) {
+        if (divisor == 0) {
+            throw new ArithmeticException("Division by zero");
+        }
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (remainder == 0) {
+            return quotient;
+        }
+        int sign = (dividend < 0) == (divisor < 0) ? 1 : -1;
+        // Compare twice the remainder with the divisor without overflowing
+        long absRemainder = Math.abs(remainder);
+        long absDivisor = Math.abs(divisor);
+        int half = Long.compare(absRemainder, absDivisor - absRemainder);
+        boolean awayFromZero;
+        switch (rounding) {
+            case UP:
+                awayFromZero = true;
+                break;
+            case DOWN:
+                awayFromZero = false;
+                break;
+            case CEILING:
+                awayFromZero = sign > 0;
+                break;
+            case FLOOR:
+                awayFromZero = sign < 0;
+                break;
+            case HALF_UP:
+                awayFromZero = half >= 0;
+                break;
+            case HALF_DOWN:
+                awayFromZero = half > 0;
+                break;
+            case HALF_EVEN:
+                awayFromZero = half > 0 || (half == 0 && (quotient & 1) != 0);
+                break;
+            case UNNECESSARY:
+            default:
+                throw new ArithmeticException("Rounding necessary: " + dividend + " / " + divisor);
+        }
+        return awayFromZero ? quotient + sign : quotient;
+    }
+
+    public static BigDecimal toBigDecimal(long money) {
+        return BigDecimal.valueOf(minorUnits(money), fractionDigits((int) (money >>> AMOUNT_BITS)));
+    }
+
+    /** Nearest double, for display or legacy APIs only */
+    public static double toDouble(long money) {
+        return (double) minorUnits(money) / POWERS_OF_TEN[fractionDigits((int) (money >>> AMOUNT_BITS))];
+    }
+
+    /** The amount without currency, with the currency's decimals, e.g. "999.99" or "-0.50" */
+    public static String format(long money) {
+        long units = minorUnits(money);
+        int digits = fractionDigits((int) (money >>> AMOUNT_BITS));
+        StringBuilder out = new StringBuilder(24);
+        if (units < 0) {
+            out.append('-');
+        }
+        long abs = Math.abs(units);
+        long scale = POWERS_OF_TEN[digits];
+        out.append(abs / scale);
+        if (digits > 0) {
+            out.append('.');
+            String fraction = Long.toString(abs % scale);
+            for (int i = fraction.length(); i < digits; i++) {
+                out.append('0');
+            }
+            out.append(fraction);
+        }
+        return out.toString();
+    }
+
+    /** For messages: "$999.99" or "-$0.05" for US dollars, otherwise like toString, e.g. "EUR 19.99" */
+    public static String display(long money) {
+        if (!currency(money).equals("USD")) {
+            return toString(money);
+        }
+        String amount = format(money);
+        return amount.charAt(0) == '-' ? "-$" + amount.substring(1) : "$" + amount;
+    }
+
+    /** E.g. "USD 999.99" */
+    public static String toString(long money) {
+        return currency(money) + " " + format(money);
+    }
+
+    private static void requireSameCurrency(long a, long b) {
+        if (!sameCurrency(a, b)) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency(a) + " vs " + currency(b));
+        }
+    }
+
+    private static long checkRange(long minorUnits) {
+        if (minorUnits > MAX_MINOR_UNITS || minorUnits < MIN_MINOR_UNITS) {
+            throw new ArithmeticException("Money amount out of range: " + minorUnits);
+        }
+        return minorUnits;
+    }
+
+    private static int currencyBits(String currency) {
+        if (currency.length() != 3) {
+            throw new IllegalArgumentException("Not an ISO 4217 currency code: " + currency);
+        }
+        int bits = 0;
+        for (int i = 0; i < 3; i++) {
+            char c = currency.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                throw new IllegalArgumentException("Not an ISO 4217 currency code: " + currency);
+            }
+            bits = bits << 5 | (c - 'A' + 1);
+        }
+        return bits;
+    }
+
+    private static int fractionDigits(int currencyBits) {
+        int digits = FRACTION_DIGITS[currencyBits] - 1;
+        if (digits < 0) {
+            if (currencyBits == 0) {
+                throw new IllegalArgumentException("Not a Money value (no currency)");
+            }
+            String code = currencyCode(currencyBits);
+            int defaultDigits;
+            try {
+                defaultDigits = Currency.getInstance(code).getDefaultFractionDigits();
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown currency: " + code);
+            }
+            // Pseudo-currencies such as XAU have no fraction digits defined (-1)
+            digits = Math.max(0, Math.min(defaultDigits, POWERS_OF_TEN.length - 1));
+            FRACTION_DIGITS[currencyBits] = (byte) (digits + 1);
+        }
+        return digits;
+    }
+
+    private static String currencyCode(int bits) {
+        return currency((long) bits << AMOUNT_BITS);
+    }
+}
@@ -0,0 +1,106 @@
+package org.example.pattern;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Money benchmark
+ * Totals carts of 10, 1k and 100k lines three ways: the old loop over double prices,
+ * BigDecimal, and Money's exact sum over long cents. Reports the time per line and
+ * how far the double total is from the exact one.
+ *
+ * Usage: java org.example.pattern.MoneyBenchmark [lines...]
+ */
+public class MoneyBenchmark {
+    /** What Item was before: a double price per object */
+    private static final class DoubleItem {
+        final double price;
+
+        DoubleItem(double price) {
+            this.price = price;
+        }
+    }
+
+    private static long sink;
+
+    public static void main(String[] args) {
+        int[] sizes = {10, 1_000, 100_000};
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+        for (int lines : sizes) {
+            run(lines);
+        }
+    }
+
+    private static void run(int lines) {
+        Random random = new Random(42);
+        List<DoubleItem> doubles = new ArrayList<>(lines);
+        List<BigDecimal> decimals = new ArrayList<>(lines);
+        long[] cents = new long[lines];
+        for (int i = 0; i < lines; i++) {
+            cents[i] = 1 + random.nextInt(100_000);
+            doubles.add(new DoubleItem(cents[i] / 100.0));
+            decimals.add(BigDecimal.valueOf(cents[i], 2));
+        }
+
+        double doubleTotal = 0;
+        BigDecimal decimalTotal = BigDecimal.ZERO;
+        long moneyTotal = 0;
+        double doubleNanos = Double.MAX_VALUE;
+        double decimalNanos = Double.MAX_VALUE;
+        double moneyNanos = Double.MAX_VALUE;
+        int repeats = Math.max(1, 20_000_000 / lines);
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            for (int r = 0; r < repeats; r++) {
+                doubleTotal = sumDoubles(doubles);
+                sink += (long) doubleTotal;
+            }
+            doubleNanos = Math.min(doubleNanos, (double) (System.nanoTime() - start) / repeats / lines);
+
+            start = System.nanoTime();
+            for (int r = 0; r < repeats; r++) {
+                decimalTotal = sumDecimals(decimals);
+                sink += decimalTotal.signum();
+            }
+            decimalNanos = Math.min(decimalNanos, (double) (System.nanoTime() - start) / repeats / lines);
+
+            start = System.nanoTime();
+            for (int r = 0; r < repeats; r++) {
+                moneyTotal = Money.of("USD", Money.sumMinorUnits(cents, 0, lines));
+                sink += moneyTotal;
+            }
+            moneyNanos = Math.min(moneyNanos, (double) (System.nanoTime() - start) / repeats / lines);
+        }
+
+        if (Money.toBigDecimal(moneyTotal).compareTo(decimalTotal) != 0) {
+            throw new IllegalStateException("Money total " + Money.toString(moneyTotal) + " != " + decimalTotal);
+        }
+        BigDecimal doubleError = new BigDecimal(doubleTotal).subtract(decimalTotal).abs();
+        System.out.printf("%,7d lines: double %5.2f ns/line, BigDecimal %5.2f ns/line, Money %5.2f ns/line"
+                        + "  (total %s, double off by %.2e)%n",
+                lines, doubleNanos, decimalNanos, moneyNanos, Money.display(moneyTotal), doubleError.doubleValue());
+    }
+
+    private static double sumDoubles(List<DoubleItem> items) {
+        double total = 0;
+        for (DoubleItem item : items) {
+            total += item.price;
+        }
+        return total;
+    }
+
+    private static BigDecimal sumDecimals(List<BigDecimal> prices) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (BigDecimal price : prices) {
+            total = total.add(price);
+        }
+        return total;
+    }
+}
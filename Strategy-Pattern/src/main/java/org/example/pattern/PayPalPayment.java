@@ -1,5 +1,7 @@
 package org.example.pattern;
 
+import java.math.RoundingMode;
+
 /**
  * Concrete Strategy - PayPal Payment
  */
@@ -14,9 +16,14 @@ public class PayPalPayment implements PaymentStrategy {
 
     @Override
     public void pay(double amount) {
+        payMoney(Money.of("USD", amount, RoundingMode.HALF_EVEN));
+    }
+
+    @Override
+    public void payMoney(long amount) {
         System.out.println("Processing PayPal Payment...");
         System.out.println("Logging in with email: " + email);
-        System.out.println("Amount paid: $" + amount);
+        System.out.println("Amount paid: " + Money.display(amount));
         System.out.println("PayPal payment successful!");
     }
 }
@@ -0,0 +1,89 @@
+package org.example.pattern;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Outcome of an asynchronous payment
+ */
+public class PaymentResult {
+    public enum Status {
+        /** The provider took the payment */
+        AUTHORIZED,
+        /** The provider, or fraud screening, refused the payment */
+        DECLINED,
+        /** The payment could not be completed (provider failure, invalid checkout) */
+        ERROR,
+        /**
+         * The provider did not answer in time, or failed, and may have taken the payment;
+         * its answer, with its reference, arrives through getPendingAnswer()
+         */
+        UNKNOWN
+    }
+
+    private final Status status;
+    private final String reference;
+    private final long amount;
+    private final String message;
+    private final CompletionStage<PaymentResult> pendingAnswer;
+
+    /**
+     * @param reference the provider's reference for the payment, or null if it never got one
+     * @param amount    packed Money
+     */
+    public PaymentResult(Status status, String reference, long amount, String message) {
+        this(status, reference, amount, message, null);
+    }
+
+    /**
+     * An UNKNOWN result, still waiting for the provider's answer.
+     */
+    public static PaymentResult unknown(long amount, String message, CompletionStage<PaymentResult> pendingAnswer) {
+        return new PaymentResult(Status.UNKNOWN, null, amount, message, pendingAnswer);
+    }
+
+    private PaymentResult(Status status, String reference, long amount, String message,
+                          CompletionStage<PaymentResult> pendingAnswer) {
+        this.status = status;
+        this.reference = reference;
+        this.amount = amount;
+        this.message = message;
+        this.pendingAnswer = pendingAnswer;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isAuthorized() {
+        return status == Status.AUTHORIZED;
+    }
+
+    public String getReference() {
+        return reference;
+    }
+
+    /** The amount as packed Money */
+    public long getAmount() {
+        return amount;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * The provider's answer to an UNKNOWN result, once it arrives: if it is AUTHORIZED the
+     * money was taken after all, and its reference is the one to void or settle. Completes
+     * exceptionally if the provider failed without answering.
+     * @return null unless the status is UNKNOWN
+     */
+    public CompletionStage<PaymentResult> getPendingAnswer() {
+        return pendingAnswer;
+    }
+
+    @Override
+    public String toString() {
+        return status + " " + Money.display(amount) + (reference == null ? "" : " [" + reference + "]")
+                + (message == null ? "" : ": " + message);
+    }
+}
@@ -5,4 +5,12 @@ package org.example.pattern;
  */
 public interface PaymentStrategy {
     void pay(double amount);
+
+    /**
+     * Pays an exact amount. Named apart from pay(double), so that pay(50) still means 50 dollars.
+     * @param amount packed Money (see Money), not a number of dollars
+     */
+    default void payMoney(long amount) {
+        pay(Money.toDouble(amount));
+    }
 }
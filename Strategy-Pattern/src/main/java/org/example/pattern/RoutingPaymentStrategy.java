@@ -0,0 +1,550 @@
+package org.example.pattern;
+
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Composite Strategy - routes every payment to one of several providers, chosen at runtime.
+ *
+ * For each route the strategy keeps live statistics of the answers: an EWMA of the latency,
+ * a decaying latency histogram for percentiles, an EWMA of the error rate and the payments in
+ * flight. A payment goes to the better of two routes picked at random (power of two choices),
+ * scored by expected latency (EWMA, inflated by load and by expected retries) plus the route's
+ * fee converted to time. Routes scoring several times worse than the best are left out.
+ * Random pairs keep traffic from herding onto one route, and a small share of payments probes
+ * a random route so a recovered provider is noticed again.
+ *
+ * Failover: a payment that ends in ERROR (or does not answer within the attempt timeout) is
+ * retried on another route, up to maxAttempts routes. DECLINED is final. A route that times
+ * out is still listened to: if it authorizes late, that authorization completes the payment
+ * if it is still open, and otherwise goes to the duplicate listener.
+ *
+ * Hedging: if the first route has not answered by its own recent (1 - hedgeRate) latency
+ * percentile, the payment is also sent to a second route and the first answer wins. At most
+ * hedgeRate of the payments are hedged. A hedged payment can be authorized by both routes;
+ * every authorization after the one that completed the payment is handed to the duplicate
+ * listener to be voided, so only enable hedging for providers that accept idempotency keys
+ * or voids.
+ *
+ * Thread-safe; add all routes before the first payment.
+ */
+public class RoutingPaymentStrategy implements PaymentStrategy, AsyncPaymentStrategy {
+    private static final double LATENCY_ALPHA = 0.05;
+    private static final double ERROR_ALPHA = 0.05;
+    /** Routes failing more often than this only get probes and last resorts */
+    private static final double DOWN_ERROR_RATE = 0.5;
+    private static final double PROBE_RATE = 0.01;
+    /** Routes scoring worse than this many times the best one are left out until they recover */
+    private static final double OUTLIER_SCORE = 3;
+    /** Most hedges saved up while no payment is slow */
+    private static final long MAX_HEDGE_TOKENS = 10_000_000;
+    private static final long HEDGE_TOKEN = 1_000_000;
+    /** Hedge a slow route's payments once they take this many times the fastest route's tail */
+    private static final long SLOW_ROUTE_TAIL = 3;
+
+    private final ScheduledExecutorService timer;
+    private final double microsPerMinorUnit;
+    private final int maxAttempts;
+    private final long attemptTimeoutMillis;
+    private final double hedgeRate;
+    private final List<Route> routes = new ArrayList<>();
+    private volatile Route[] routeArray = new Route[0];
+    private final AtomicLong hedgeTokens = new AtomicLong(HEDGE_TOKEN);
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong failovers = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private volatile Consumer<PaymentResult> duplicateListener = result -> { };
+
+    /**
+     * @param timer                delivers attempt timeouts and hedges
+     * @param microsPerMinorUnit   latency worth one minor unit of fee, e.g. 1,000 to trade a cent for a millisecond
+     * @param maxAttempts          most routes tried for one payment, failovers and hedges included
+     * @param attemptTimeoutMillis how long one route may take before the payment fails over
+     * @param hedgeRate            share of payments that may be hedged, 0 to disable hedging
+     */
+    public RoutingPaymentStrategy(ScheduledExecutorService timer, double microsPerMinorUnit, int maxAttempts,
+                                  long attemptTimeoutMillis, double hedgeRate) {
+        if (maxAttempts <= 0 || attemptTimeoutMillis <= 0 || hedgeRate < 0 || hedgeRate >= 1) {
+            throw new IllegalArgumentException("Invalid routing settings");
+        }
+        this.timer = timer;
+        this.microsPerMinorUnit = microsPerMinorUnit;
+        this.maxAttempts = maxAttempts;
+        this.attemptTimeoutMillis = attemptTimeoutMillis;
+        this.hedgeRate = hedgeRate;
+    }
+
+    /**
+     * Adds a provider. Wrap a blocking PaymentStrategy with AsyncPaymentStrategy.of.
+     *
+     * @param feeBasisPoints     the provider's fee in hundredths of a percent of the amount
+     * @param fixedFeeMinorUnits the provider's fee per payment, in minor units of the payment's currency
+     * @param capacity           payments in flight at which the route counts as twice as slow
+     * @return this, for chaining
+     */
+    public synchronized RoutingPaymentStrategy addRoute(String name, AsyncPaymentStrategy provider, int feeBasisPoints,
+                                                        long fixedFeeMinorUnits, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        Route route = new Route(routes.size(), name, provider, feeBasisPoints, fixedFeeMinorUnits, capacity);
+        routes.add(route);
+        routeArray = routes.toArray(new Route[0]);
+        return this;
+    }
+
+    /** Receives authorizations that lost a hedge race, or came after a timeout, and must be voided */
+    public void setDuplicateListener(Consumer<PaymentResult> duplicateListener) {
+        this.duplicateListener = duplicateListener;
+    }
+
+    @Override
+    public void pay(double amount) {
+        payMoney(Money.of("USD", amount, RoundingMode.HALF_EVEN));
+    }
+
+    @Override
+    public void payMoney(long amount) {
+        Payment payment = new Payment(amount);
+        payment.start();
+        PaymentResult result = payment.result.join();
+        System.out.println("Processing Routed Payment...");
+        System.out.println("Provider: " + (payment.winner != null ? payment.winner.name : "none"));
+        System.out.println("Amount paid: " + Money.display(amount));
+        System.out.println(result.isAuthorized() ? "Routed payment successful!" : "Routed payment failed: " + result);
+    }
+
+    @Override
+    public CompletableFuture<PaymentResult> payAsync(long amount) {
+        Payment payment = new Payment(amount);
+        payment.start();
+        return payment.result;
+    }
+
+    /** One payment's attempts; the routes it was sent to and the answers still expected */
+    private final class Payment {
+        final long amount;
+        final CompletableFuture<PaymentResult> result = new CompletableFuture<>();
+        final Route[] routes = routeArray;
+        final boolean[] tried = new boolean[routes.length];
+        int attempts;
+        int outstanding;
+        /** Set, under the lock, by the answer that completes the result */
+        boolean done;
+        Route winner;
+        ScheduledFuture<?> hedge;
+
+        Payment(long amount) {
+            this.amount = amount;
+        }
+
+        void start() {
+            if (hedgeRate > 0) {
+                long earned = (long) (hedgeRate * HEDGE_TOKEN);
+                hedgeTokens.getAndUpdate(tokens -> Math.min(MAX_HEDGE_TOKENS, tokens + earned));
+            }
+            Route route = choose(amount, routes, tried);
+            if (route == null) {
+                result.complete(new PaymentResult(PaymentResult.Status.ERROR, null, amount, "No payment route"));
+                return;
+            }
+            synchronized (this) {
+                tried[route.index] = true;
+                attempts++;
+                outstanding++;
+            }
+            send(route);
+            long delayMicros = hedgeRate > 0 && maxAttempts > 1 ? hedgeDelayMicros(route, routes) : 0;
+            if (delayMicros > 0) {
+                try {
+                    ScheduledFuture<?> scheduled = timer.schedule(this::hedge, delayMicros, TimeUnit.MICROSECONDS);
+                    synchronized (this) {
+                        hedge = scheduled;
+                    }
+                } catch (RejectedExecutionException e) {
+                    // No hedging once the timer is shut down
+                }
+            }
+        }
+
+        /** The caller has counted the attempt */
+        void send(Route route) {
+            route.inFlight.incrementAndGet();
+            long sent = System.nanoTime();
+            CompletableFuture<PaymentResult> answer;
+            try {
+                answer = route.provider.payAsync(amount);
+            } catch (RuntimeException e) {
+                answer = CompletableFuture.failedFuture(e);
+            }
+            // Only a copy times out, so a late answer from the provider is still heard
+            CompletableFuture<PaymentResult> provider = answer;
+            answer.copy().orTimeout(attemptTimeoutMillis, TimeUnit.MILLISECONDS).whenComplete((answered, failure) -> {
+                if (failure != null && cause(failure) instanceof TimeoutException) {
+                    provider.whenComplete((late, lateFailure) -> {
+                        if (late != null) {
+                            answeredLate(route, late);
+                        }
+                    });
+                }
+                answered(route, sent, answered, failure);
+            });
+        }
+
+        void answered(Route route, long sent, PaymentResult answer, Throwable failure) {
+            route.inFlight.decrementAndGet();
+            if (failure != null) {
+                answer = new PaymentResult(PaymentResult.Status.ERROR, null, amount, route.name + " failed: "
+                        + (failure.getCause() != null ? failure.getCause() : failure));
+            }
+            boolean error = answer.getStatus() == PaymentResult.Status.ERROR;
+            route.record((System.nanoTime() - sent) / 1_000, error);
+
+            Route next = null;
+            boolean complete = false;
+            boolean duplicate = false;
+            synchronized (this) {
+                outstanding--;
+                if (done) {
+                    duplicate = answer.isAuthorized();
+                } else if (!error) {
+                    winner = route;
+                    done = complete = true;
+                } else if (outstanding > 0) {
+                    return; // the hedge may still succeed
+                } else {
+                    next = attempts < maxAttempts ? choose(amount, routes, tried) : null;
+                    if (next != null) {
+                        tried[next.index] = true;
+                        attempts++;
+                        outstanding++;
+                    } else {
+                        done = complete = true;
+                    }
+                }
+            }
+            if (duplicate) {
+                duplicate(answer);
+            } else if (next != null) {
+                failovers.incrementAndGet();
+                send(next);
+            } else if (complete) {
+                complete(answer);
+            }
+        }
+
+        /**
+         * The answer of an attempt that already timed out. Its timeout counted as an ERROR, so
+         * only an authorization matters: it completes the payment if nothing has, and is a
+         * duplicate otherwise.
+         */
+        void answeredLate(Route route, PaymentResult answer) {
+            if (!answer.isAuthorized()) {
+                return;
+            }
+            boolean complete = false;
+            synchronized (this) {
+                if (!done) {
+                    winner = route;
+                    done = complete = true;
+                }
+            }
+            if (complete) {
+                complete(answer);
+            } else {
+                duplicate(answer);
+            }
+        }
+
+        private void complete(PaymentResult answer) {
+            ScheduledFuture<?> pending;
+            synchronized (this) {
+                pending = hedge;
+            }
+            if (pending != null) {
+                pending.cancel(false);
+            }
+            result.complete(answer);
+        }
+
+        private void duplicate(PaymentResult answer) {
+            duplicates.incrementAndGet();
+            duplicateListener.accept(answer);
+        }
+
+        void hedge() {
+            Route second;
+            synchronized (this) {
+                if (done || outstanding == 0 || attempts >= maxAttempts || !takeHedgeToken()) {
+                    return;
+                }
+                second = choose(amount, routes, tried);
+                if (second == null) {
+                    return;
+                }
+                tried[second.index] = true;
+                attempts++;
+                outstanding++;
+            }
+            hedges.incrementAndGet();
+            send(second);
+        }
+    }
+
+    private static Throwable cause(Throwable failure) {
+        return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+    }
+
+    /**
+     * How long the payment may take before it counts as slow: the tail latency of its route,
+     * but no more than a few times the tail of the fastest healthy route, so a payment sent to
+     * a slow route is still hedged to a fast one.
+     */
+    private static long hedgeDelayMicros(Route route, Route[] routes) {
+        long fastest = 0;
+        for (Route other : routes) {
+            long tail = other.tailMicros;
+            if (tail > 0 && !other.isDown() && (fastest == 0 || tail < fastest)) {
+                fastest = tail;
+            }
+        }
+        long delay = route.tailMicros;
+        return fastest > 0 && (delay == 0 || delay > SLOW_ROUTE_TAIL * fastest) ? SLOW_ROUTE_TAIL * fastest : delay;
+    }
+
+    private boolean takeHedgeToken() {
+        while (true) {
+            long tokens = hedgeTokens.get();
+            if (tokens < HEDGE_TOKEN) {
+                return false;
+            }
+            if (hedgeTokens.compareAndSet(tokens, tokens - HEDGE_TOKEN)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Power of two choices among the routes not tried yet, leaving out routes that are down or
+     * score worse than OUTLIER_SCORE times the best.
+     * @return null if every route was tried
+     */
+    private Route choose(long amount, Route[] all, boolean[] tried) {
+        Route[] candidates = new Route[all.length];
+        double[] scores = new double[all.length];
+        int healthy = 0;
+        int untried = 0;
+        double best = Double.MAX_VALUE;
+        for (Route route : all) {
+            if (!tried[route.index]) {
+                untried++;
+                if (!route.isDown()) {
+                    scores[healthy] = route.score(amount);
+                    best = Math.min(best, scores[healthy]);
+                    candidates[healthy++] = route;
+                }
+            }
+        }
+        if (untried == 0) {
+            return null;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (healthy == 0 || random.nextDouble() < PROBE_RATE) {
+            // Probe, or last resort when every remaining route is down
+            Route[] remaining = new Route[untried];
+            int count = 0;
+            for (Route route : all) {
+                if (!tried[route.index]) {
+                    remaining[count++] = route;
+                }
+            }
+            return remaining[random.nextInt(count)];
+        }
+        int eligible = 0;
+        for (int i = 0; i < healthy; i++) {
+            if (scores[i] <= best * OUTLIER_SCORE) {
+                scores[eligible] = scores[i];
+                candidates[eligible++] = candidates[i];
+            }
+        }
+        if (eligible == 1) {
+            return candidates[0];
+        }
+        int first = random.nextInt(eligible);
+        int second = random.nextInt(eligible - 1);
+        if (second >= first) {
+            second++;
+        }
+        return scores[first] <= scores[second] ? candidates[first] : candidates[second];
+    }
+
+    /** A provider and what has been seen of it */
+    public final class Route {
+        /** Histogram buckets: exact below 8 us, then four per power of two */
+        private static final int BUCKETS = 128;
+        /** The histogram halves its counts after this many answers, forgetting old ones */
+        private static final int WINDOW = 1_000;
+        /** Answers between updates of the tail latency */
+        private static final int TAIL_REFRESH = 64;
+
+        private final int index;
+        private final String name;
+        private final AsyncPaymentStrategy provider;
+        private final int feeBasisPoints;
+        private final long fixedFeeMinorUnits;
+        private final int capacity;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final long[] histogram = new long[BUCKETS];
+        private long histogramCount;
+        private long sinceDecay;
+        private long payments;
+        private long errors;
+        private volatile double latencyMicros;
+        private volatile double errorRate;
+        /** The (1 - hedgeRate / 2) latency percentile, 0 until known; leaves half the budget for bursts */
+        private volatile long tailMicros;
+
+        private Route(int index, String name, AsyncPaymentStrategy provider, int feeBasisPoints,
+                      long fixedFeeMinorUnits, int capacity) {
+            this.index = index;
+            this.name = name;
+            this.provider = provider;
+            this.feeBasisPoints = feeBasisPoints;
+            this.fixedFeeMinorUnits = fixedFeeMinorUnits;
+            this.capacity = capacity;
+        }
+
+        private synchronized void record(long micros, boolean error) {
+            payments++;
+            latencyMicros = payments == 1 ? micros : latencyMicros + LATENCY_ALPHA * (micros - latencyMicros);
+            if (error) {
+                errors++;
+            }
+            errorRate += ERROR_ALPHA * ((error ? 1 : 0) - errorRate);
+            histogram[bucket(micros)]++;
+            histogramCount++;
+            if (++sinceDecay == WINDOW) {
+                sinceDecay = 0;
+                histogramCount = 0;
+                for (int i = 0; i < BUCKETS; i++) {
+                    histogram[i] >>= 1;
+                    histogramCount += histogram[i];
+                }
+            }
+            if (hedgeRate > 0 && (payments < TAIL_REFRESH || sinceDecay % TAIL_REFRESH == 0)) {
+                tailMicros = percentileMicros(1 - hedgeRate / 2);
+            }
+        }
+
+        /** Expected cost of a payment in microseconds: latency, load, retries and fee */
+        private double score(long amount) {
+            double expected = latencyMicros * (1 + (double) inFlight.get() / capacity)
+                    / (1 - Math.min(errorRate, 0.9));
+            return expected + fee(amount) * microsPerMinorUnit;
+        }
+
+        private boolean isDown() {
+            return errorRate > DOWN_ERROR_RATE;
+        }
+
+        /** The provider's fee for the amount, in minor units */
+        public long fee(long amount) {
+            return fixedFeeMinorUnits + Math.abs(Money.minorUnits(amount)) * feeBasisPoints / 10_000;
+        }
+
+        /**
+         * Recent latency below which the share {@code quantile} of answers came.
+         * @return 0 until the route has answered
+         */
+        public synchronized long percentileMicros(double quantile) {
+            if (histogramCount == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * histogramCount);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += histogram[i];
+                if (seen >= rank && histogram[i] > 0) {
+                    return upperBound(i);
+                }
+            }
+            return upperBound(BUCKETS - 1);
+        }
+
+        private int bucket(long micros) {
+            if (micros < 8) {
+                return (int) Math.max(0, micros);
+            }
+            int log = 63 - Long.numberOfLeadingZeros(micros);
+            return Math.min(BUCKETS - 1, log * 4 + (int) ((micros >>> (log - 2)) & 3));
+        }
+
+        private long upperBound(int bucket) {
+            if (bucket < 8) {
+                return bucket + 1;
+            }
+            int log = bucket / 4;
+            return (long) (4 + bucket % 4 + 1) << (log - 2);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /** EWMA of the answer latency */
+        public double getLatencyMicros() {
+            return latencyMicros;
+        }
+
+        /** EWMA of the share of attempts ending in ERROR */
+        public double getErrorRate() {
+            return errorRate;
+        }
+
+        public int getInFlight() {
+            return inFlight.get();
+        }
+
+        /** Attempts answered so far, hedges and failovers included */
+        public synchronized long getPayments() {
+            return payments;
+        }
+
+        public synchronized long getErrors() {
+            return errors;
+        }
+    }
+
+    public synchronized List<Route> getRoutes() {
+        return Collections.unmodifiableList(Arrays.asList(routeArray));
+    }
+
+    /** Payments sent to a second route because the first was slow */
+    public long getHedgeCount() {
+        return hedges.get();
+    }
+
+    /** Attempts sent to another route after an ERROR or timeout */
+    public long getFailoverCount() {
+        return failovers.get();
+    }
+
+    /** Authorizations that lost a hedge race or came after the payment was completed */
+    public long getDuplicateCount() {
+        return duplicates.get();
+    }
+}
@@ -0,0 +1,205 @@
+package org.example.pattern;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Routing simulation
+ * Sends an open-loop stream of payments (at a fixed rate, latency measured from the time each
+ * payment was due) to four stub providers whose latency and errors follow a script over the
+ * run, split into three phases:
+ *   Credit Card     ~40 ms, 3% of answers 400 ms slower throughout
+ *   PayPal          ~60 ms, degrading to ~300 ms in the second phase
+ *   Google Pay      ~35 ms, failing 30% of payments in the third phase
+ *   Cryptocurrency  ~200 ms with a long tail, but the cheapest
+ * and compares a hard-picked provider, random choice, and RoutingPaymentStrategy without and
+ * with hedging: end-to-end p50/p99, errors, average fee and where the payments went.
+ *
+ * Usage: java org.example.pattern.RoutingSimulation [paymentsPerSecond] [seconds]
+ */
+public class RoutingSimulation {
+    /** Latency of a payment sent {@code elapsed} seconds into the run */
+    @FunctionalInterface
+    private interface LatencyScript {
+        long latencyMicros(double elapsed, ThreadLocalRandom random);
+    }
+
+    /** Share of payments failing {@code elapsed} seconds into the run */
+    @FunctionalInterface
+    private interface ErrorScript {
+        double errorRate(double elapsed);
+    }
+
+    /** Stub provider following its scripts; answers are delivered by the timer */
+    private static final class ScriptedProvider implements AsyncPaymentStrategy {
+        final String name;
+        final int feeBasisPoints;
+        final long fixedFee;
+        final LatencyScript latency;
+        final ErrorScript errors;
+        final ScheduledExecutorService timer;
+        final AtomicLong sequence = new AtomicLong();
+        volatile long startNanos;
+
+        ScriptedProvider(String name, int feeBasisPoints, long fixedFee, LatencyScript latency, ErrorScript errors,
+                         ScheduledExecutorService timer) {
+            this.name = name;
+            this.feeBasisPoints = feeBasisPoints;
+            this.fixedFee = fixedFee;
+            this.latency = latency;
+            this.errors = errors;
+            this.timer = timer;
+        }
+
+        @Override
+        public CompletableFuture<PaymentResult> payAsync(long amount) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            double elapsed = (System.nanoTime() - startNanos) / 1e9;
+            boolean error = random.nextDouble() < errors.errorRate(elapsed);
+            // Failures come back fast: the provider refuses at the door
+            long delay = error ? 5_000 : latency.latencyMicros(elapsed, random);
+            PaymentResult result = error
+                    ? new PaymentResult(PaymentResult.Status.ERROR, null, amount, name + " unavailable")
+                    : new PaymentResult(PaymentResult.Status.AUTHORIZED, name + "-" + sequence.incrementAndGet(),
+                    amount, null);
+            CompletableFuture<PaymentResult> future = new CompletableFuture<>();
+            try {
+                timer.schedule(() -> future.complete(result), delay, TimeUnit.MICROSECONDS);
+            } catch (RejectedExecutionException e) {
+                future.complete(new PaymentResult(PaymentResult.Status.ERROR, null, amount, name + " is shut down"));
+            }
+            return future;
+        }
+
+        long fee(long amount) {
+            return fixedFee + Money.minorUnits(amount) * feeBasisPoints / 10_000;
+        }
+    }
+
+    /** Log-normal around the median */
+    private static long logNormal(double medianMillis, double sigma, ThreadLocalRandom random) {
+        return (long) (medianMillis * 1_000 * Math.exp(sigma * random.nextGaussian()));
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int rate = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 9;
+        double phase = seconds / 3;
+
+        ScheduledExecutorService timer = Executors.newScheduledThreadPool(1);
+        ScriptedProvider[] providers = {
+                new ScriptedProvider("Credit Card", 290, 30, (t, random) -> logNormal(40, 0.3, random)
+                        + (random.nextDouble() < 0.03 ? 400_000 : 0), t -> 0.001, timer),
+                new ScriptedProvider("PayPal", 349, 49, (t, random) -> logNormal(t >= phase && t < 2 * phase
+                        ? 300 : 60, 0.3, random), t -> 0.002, timer),
+                new ScriptedProvider("Google Pay", 250, 30, (t, random) -> logNormal(35, 0.3, random),
+                        t -> t >= 2 * phase ? 0.3 : 0.001, timer),
+                new ScriptedProvider("Cryptocurrency", 100, 0, (t, random) -> logNormal(200, 0.8, random),
+                        t -> 0.01, timer)
+        };
+        long[] amounts = new long[1024];
+        for (int i = 0; i < amounts.length; i++) {
+            amounts[i] = Money.of("USD", 2_000 + ThreadLocalRandom.current().nextLong(18_000));
+        }
+        System.out.printf("%,d payments/s for %.0f s, phases of %.0f s%n", rate, seconds, phase);
+
+        int[] chosen = new int[providers.length];
+        run("Fixed (Credit Card)", amount -> {
+            chosen[0]++;
+            return providers[0].payAsync(amount);
+        }, providers, amounts, rate, seconds, chosen, null);
+
+        Arrays.fill(chosen, 0);
+        run("Random", amount -> {
+            int index = ThreadLocalRandom.current().nextInt(providers.length);
+            chosen[index]++;
+            return providers[index].payAsync(amount);
+        }, providers, amounts, rate, seconds, chosen, null);
+
+        run("Routing (EWMA + P2C, failover)", null, providers, amounts, rate, seconds, null,
+                router(providers, timer, 0));
+        run("Routing + hedging (5%)", null, providers, amounts, rate, seconds, null,
+                router(providers, timer, 0.05));
+        timer.shutdown();
+    }
+
+    private static RoutingPaymentStrategy router(ScriptedProvider[] providers, ScheduledExecutorService timer,
+                                                 double hedgeRate) {
+        // A cent of fee is worth a tenth of a millisecond
+        RoutingPaymentStrategy router = new RoutingPaymentStrategy(timer, 100, 3, 1_000, hedgeRate);
+        for (ScriptedProvider provider : providers) {
+            // At 20 payments in flight a route counts as twice as slow: slow routes pile up in flight
+            router.addRoute(provider.name, provider, provider.feeBasisPoints, provider.fixedFee, 20);
+        }
+        return router;
+    }
+
+    private static void run(String label, AsyncPaymentStrategy direct, ScriptedProvider[] providers, long[] amounts,
+                            int rate, double seconds, int[] chosen, RoutingPaymentStrategy router)
+            throws InterruptedException {
+        AsyncPaymentStrategy strategy = router != null ? router : direct;
+        int payments = (int) (rate * seconds);
+        long[] latencies = new long[payments];
+        long[] fees = new long[payments];
+        PaymentResult[] results = new PaymentResult[payments];
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[payments];
+        long start = System.nanoTime();
+        for (ScriptedProvider provider : providers) {
+            provider.startNanos = start;
+        }
+        for (int i = 0; i < payments; i++) {
+            long due = start + (long) (i * 1e9 / rate);
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            int payment = i;
+            long amount = amounts[i % amounts.length];
+            futures[i] = strategy.payAsync(amount).whenComplete((result, failure) -> {
+                latencies[payment] = System.nanoTime() - due;
+                results[payment] = result;
+            });
+        }
+        CompletableFuture.allOf(futures).join();
+
+        int errors = 0;
+        long totalFee = 0;
+        for (int i = 0; i < payments; i++) {
+            PaymentResult result = results[i];
+            if (result == null || !result.isAuthorized()) {
+                errors++;
+                continue;
+            }
+            String reference = result.getReference();
+            for (ScriptedProvider provider : providers) {
+                if (reference.startsWith(provider.name + "-")) {
+                    totalFee += provider.fee(result.getAmount());
+                }
+            }
+        }
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-32s p50 %6.1f ms, p99 %6.1f ms, errors %5.2f%%, average fee %s%n", label,
+                sorted[payments / 2] / 1e6, sorted[(int) (payments * 0.99)] / 1e6, 100.0 * errors / payments,
+                Money.display(Money.of("USD", totalFee / Math.max(1, payments - errors))));
+        StringBuilder shares = new StringBuilder(router != null ? "    attempts:" : "    sent to:");
+        if (router != null) {
+            for (RoutingPaymentStrategy.Route route : router.getRoutes()) {
+                shares.append(String.format(" %s %.1f%%", route.getName(), 100.0 * route.getPayments() / payments));
+            }
+            shares.append(String.format("; failovers %,d, hedges %,d, duplicates voided %,d",
+                    router.getFailoverCount(), router.getHedgeCount(), router.getDuplicateCount()));
+        } else {
+            for (int i = 0; i < providers.length; i++) {
+                shares.append(String.format(" %s %.1f%%", providers[i].name, 100.0 * chosen[i] / payments));
+            }
+        }
+        System.out.println(shares);
+    }
+}
@@ -0,0 +1,85 @@
+package org.example.pattern;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Settlement benchmark
+ * Submits orders round robin to the four stub batch providers (each call costs a fixed round
+ * trip plus a little per payment) through a SettlementEngine, once per batch size, and reports
+ * orders per second, provider calls and the latency from submit to reconciliation. Batch size
+ * 1 is the previous behaviour, one provider call per order.
+ *
+ * Usage: java org.example.pattern.SettlementBenchmark [orders] [callMillis] [maxDelayMillis] [batchesInFlight]
+ */
+public class SettlementBenchmark {
+    private static final int[] BATCH_SIZES = {1, 10, 100, 1_000, 10_000};
+
+    public static void main(String[] args) throws InterruptedException {
+        int orders = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        long callMillis = args.length > 1 ? Long.parseLong(args[1]) : 20;
+        long maxDelayMillis = args.length > 2 ? Long.parseLong(args[2]) : 10;
+        int inFlight = args.length > 3 ? Integer.parseInt(args[3]) : 16;
+
+        ScheduledExecutorService timer = Executors.newScheduledThreadPool(1);
+        long[] amounts = new long[1024];
+        for (int i = 0; i < amounts.length; i++) {
+            amounts[i] = Money.of("USD", 500 + i * 37L);
+        }
+        run(timer, amounts, 1_000, orders / 10, maxDelayMillis, callMillis, inFlight, false); // warm-up
+        System.out.printf("%,d ms per call + 2 us per payment, batches sent when full or after %d ms, "
+                + "%d batches in flight per provider%n", callMillis, maxDelayMillis, inFlight);
+        for (int batchSize : BATCH_SIZES) {
+            // Small batches are slow by design: cap their run at a few seconds
+            int count = (int) Math.min(orders, 4L * inFlight * batchSize * 1_000 / callMillis * 3);
+            run(timer, amounts, batchSize, count, maxDelayMillis, callMillis, inFlight, true);
+        }
+        timer.shutdown();
+    }
+
+    private static void run(ScheduledExecutorService timer, long[] amounts, int batchSize, int orders,
+                            long maxDelayMillis, long callMillis, int inFlight, boolean print)
+            throws InterruptedException {
+        StubBatchProvider[] providers = {
+                new StubBatchProvider("Credit Card", "CC", callMillis * 1_000, 2_000, 0.02, timer),
+                new StubBatchProvider("PayPal", "PP", callMillis * 1_000, 2_000, 0.01, timer),
+                new StubBatchProvider("Google Pay", "GP", callMillis * 1_000, 2_000, 0.01, timer),
+                new StubBatchProvider("Cryptocurrency", "BTC", callMillis * 1_000, 2_000, 0.05, timer)
+        };
+        long[] submitted = new long[orders];
+        long[] latencies = new long[orders];
+        SettlementEngine engine = new SettlementEngine(batchSize, maxDelayMillis, inFlight,
+                (orderId, amount, status, reference) ->
+                        latencies[(int) orderId] = System.nanoTime() - submitted[(int) orderId], timer);
+        SettlementEngine.Channel[] channels = new SettlementEngine.Channel[providers.length];
+        for (int i = 0; i < providers.length; i++) {
+            channels[i] = engine.channel(providers[i]);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < orders; i++) {
+            submitted[i] = System.nanoTime();
+            channels[i % channels.length].submit(i, amounts[i % amounts.length]);
+        }
+        engine.close();
+        long nanos = System.nanoTime() - start;
+        if (!print) {
+            return;
+        }
+        long calls = 0;
+        for (StubBatchProvider provider : providers) {
+            calls += provider.getBatchCount();
+        }
+        long reconciled = engine.getSettledCount(PaymentResult.Status.AUTHORIZED)
+                + engine.getSettledCount(PaymentResult.Status.DECLINED)
+                + engine.getSettledCount(PaymentResult.Status.ERROR);
+        if (reconciled != orders) {
+            throw new IllegalStateException(reconciled + " of " + orders + " orders reconciled");
+        }
+        Arrays.sort(latencies);
+        System.out.printf("batch %,6d: %,10d orders in %5.2f s, %,11.0f orders/s, %,7d calls, "
+                        + "latency p50 %6.1f ms, p99 %6.1f ms%n",
+                batchSize, orders, nanos / 1e9, orders / (nanos / 1e9), calls,
+                latencies[orders / 2] / 1e6, latencies[(int) (orders * 0.99)] / 1e6);
+    }
+}
@@ -0,0 +1,299 @@
+package org.example.pattern;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Settles authorized payments in batches, one batch stream per payment provider.
+ *
+ * Orders submitted to a provider's Channel are collected into the channel's open batch,
+ * which is sent to the BatchPaymentProvider once it holds {@code batchSize} orders or has
+ * been open for {@code maxDelayMillis}, whichever comes first. When the provider answers,
+ * every order of the batch is reported to the SettlementListener with its own status and
+ * the batch reference (reconciliation). A provider failure reports the whole batch as ERROR.
+ *
+ * Memory is bounded: each channel owns a fixed pool of {@code maxBatchesInFlight + 1}
+ * preallocated batches (primitive arrays of order ids, amounts and statuses) that are
+ * reused. When all of them are waiting for the provider, submit blocks until one comes back.
+ * Thread-safe; listeners are called on the provider's completing thread. A listener that
+ * throws does not stop the other orders of the batch from being reported; the failure is
+ * counted by getFailureCount().
+ */
+public class SettlementEngine implements AutoCloseable {
+    /** Receives the outcome of every settled order */
+    @FunctionalInterface
+    public interface SettlementListener {
+        /**
+         * @param amount         packed Money
+         * @param batchReference the provider's reference for the batch, or null on ERROR
+         */
+        void settled(long orderId, long amount, PaymentResult.Status status, String batchReference);
+    }
+
+    private static final PaymentResult.Status[] STATUSES = PaymentResult.Status.values();
+    /** How long close() waits for the providers to answer the outstanding batches */
+    public static final long CLOSE_TIMEOUT_MILLIS = 30_000;
+
+    private final int batchSize;
+    private final int maxBatchesInFlight;
+    private final long maxDelayNanos;
+    private final SettlementListener listener;
+    private final ScheduledFuture<?> flusher;
+    private final List<Channel> channels = new ArrayList<>();
+    private final AtomicLongArray settled = new AtomicLongArray(STATUSES.length);
+    private final AtomicLong failures = new AtomicLong();
+    private volatile boolean closed;
+
+    /**
+     * @param batchSize          most orders per provider call
+     * @param maxDelayMillis     longest an order waits before its batch is sent anyway
+     * @param maxBatchesInFlight batches per provider sent and not yet answered
+     * @param timer              runs the time-based flush
+     */
+    public SettlementEngine(int batchSize, long maxDelayMillis, int maxBatchesInFlight,
+                            SettlementListener listener, ScheduledExecutorService timer) {
+        if (batchSize <= 0 || maxBatchesInFlight <= 0 || maxDelayMillis <= 0) {
+            throw new IllegalArgumentException("Batch size, delay and batches in flight must be positive");
+        }
+        this.batchSize = batchSize;
+        this.maxBatchesInFlight = maxBatchesInFlight;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.listener = listener;
+        long period = Math.max(1, maxDelayNanos / 4);
+        this.flusher = timer.scheduleAtFixedRate(this::flushExpired, period, period, TimeUnit.NANOSECONDS);
+    }
+
+    /** Starts a batch stream to the provider */
+    public synchronized Channel channel(BatchPaymentProvider provider) {
+        Channel channel = new Channel(provider);
+        channels.add(channel);
+        return channel;
+    }
+
+    /** The orders of one provider. Submit from any number of threads. */
+    public final class Channel {
+        private final BatchPaymentProvider provider;
+        private final BlockingQueue<Batch> free;
+        private Batch open;
+        private long submitted;
+        private long batchesSent;
+
+        private Channel(BatchPaymentProvider provider) {
+            this.provider = provider;
+            this.free = new ArrayBlockingQueue<>(maxBatchesInFlight + 1);
+            for (int i = 0; i <= maxBatchesInFlight; i++) {
+                free.add(new Batch(batchSize));
+            }
+        }
+
+        /**
+         * Adds an authorized order to the open batch, sending the batch if it is full.
+         * Blocks while every batch of the channel is waiting for the provider.
+         *
+         * @param amount packed Money
+         * @throws IllegalStateException if the engine is closed
+         */
+        public void submit(long orderId, long amount) throws InterruptedException {
+            while (true) {
+                Batch full = null;
+                boolean added = false;
+                synchronized (this) {
+                    if (closed) {
+                        throw new IllegalStateException("Settlement engine is closed");
+                    }
+                    if (open == null) {
+                        open = free.poll();
+                    }
+                    if (open != null) {
+                        if (open.count == 0) {
+                            open.openedAt = System.nanoTime();
+                        }
+                        open.add(orderId, amount);
+                        submitted++;
+                        added = true;
+                        if (open.count == batchSize) {
+                            full = open;
+                            open = null;
+                        }
+                    }
+                }
+                if (full != null) {
+                    send(full);
+                }
+                if (added) {
+                    return;
+                }
+                // Every batch is in flight: wait for one to come back
+                Batch returned = free.take();
+                synchronized (this) {
+                    if (open == null) {
+                        open = returned;
+                        continue;
+                    }
+                }
+                free.add(returned);
+            }
+        }
+
+        /** Sends the open batch if it has orders and {@code force} or it is older than the delay */
+        private void flush(boolean force, long now) {
+            Batch batch;
+            synchronized (this) {
+                batch = open;
+                if (batch == null || batch.count == 0 || (!force && now - batch.openedAt < maxDelayNanos)) {
+                    return;
+                }
+                open = null;
+            }
+            send(batch);
+        }
+
+        private void send(Batch batch) {
+            synchronized (this) {
+                batchesSent++;
+            }
+            try {
+                provider.settle(batch.amounts, batch.count, batch.statuses)
+                        .whenComplete((reference, failure) -> reconcile(batch, reference, failure));
+            } catch (RuntimeException e) {
+                reconcile(batch, null, e);
+            }
+        }
+
+        private void reconcile(Batch batch, String reference, Throwable failure) {
+            try {
+                for (int i = 0; i < batch.count; i++) {
+                    PaymentResult.Status status = failure == null ? status(batch.statuses[i]) : PaymentResult.Status.ERROR;
+                    settled.incrementAndGet(status.ordinal());
+                    try {
+                        listener.settled(batch.orderIds[i], batch.amounts[i], status, failure == null ? reference : null);
+                    } catch (RuntimeException e) {
+                        failures.incrementAndGet();
+                    }
+                }
+            } finally {
+                batch.count = 0;
+                free.add(batch);
+            }
+        }
+
+        /** True once every batch is back in the pool and none is open with orders */
+        private synchronized boolean isIdle() {
+            return free.size() + (open != null ? 1 : 0) == maxBatchesInFlight + 1 && (open == null || open.count == 0);
+        }
+
+        public BatchPaymentProvider getProvider() {
+            return provider;
+        }
+
+        public synchronized long getSubmittedCount() {
+            return submitted;
+        }
+
+        public synchronized long getBatchCount() {
+            return batchesSent;
+        }
+    }
+
+    /** Orders of one provider call, in primitive arrays reused from batch to batch */
+    private static final class Batch {
+        final long[] orderIds;
+        final long[] amounts;
+        final byte[] statuses;
+        int count;
+        long openedAt;
+
+        Batch(int size) {
+            orderIds = new long[size];
+            amounts = new long[size];
+            statuses = new byte[size];
+        }
+
+        void add(long orderId, long amount) {
+            orderIds[count] = orderId;
+            amounts[count] = amount;
+            count++;
+        }
+    }
+
+    /** A status the provider wrote, or ERROR if it is not a valid one */
+    private static PaymentResult.Status status(byte ordinal) {
+        return ordinal >= 0 && ordinal < STATUSES.length ? STATUSES[ordinal] : PaymentResult.Status.ERROR;
+    }
+
+    /** Never throws: an exception would cancel the scheduled flush for good */
+    private void flushExpired() {
+        long now = System.nanoTime();
+        for (Channel channel : snapshotChannels()) {
+            try {
+                channel.flush(false, now);
+            } catch (RuntimeException e) {
+                failures.incrementAndGet();
+            }
+        }
+    }
+
+    private synchronized List<Channel> snapshotChannels() {
+        return new ArrayList<>(channels);
+    }
+
+    /** Sends every open batch now */
+    public void flush() {
+        long now = System.nanoTime();
+        for (Channel channel : snapshotChannels()) {
+            channel.flush(true, now);
+        }
+    }
+
+    /** Orders reported to the listener with the status so far */
+    public long getSettledCount(PaymentResult.Status status) {
+        return settled.get(status.ordinal());
+    }
+
+    /** Listener calls and timed flushes that threw so far */
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    /**
+     * Refuses new orders, sends the open batches and waits up to CLOSE_TIMEOUT_MILLIS until
+     * the providers answered all of them. If interrupted, returns early with the flag set.
+     */
+    @Override
+    public void close() {
+        close(CLOSE_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Refuses new orders, sends the open batches and waits up to {@code timeoutMillis} until
+     * the providers answered all of them.
+     * @return false if batches were still unanswered at the deadline, or the wait was interrupted
+     */
+    public boolean close(long timeoutMillis) {
+        closed = true;
+        flusher.cancel(false);
+        flush();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        for (Channel channel : snapshotChannels()) {
+            while (!channel.isIdle()) {
+                if (System.nanoTime() - deadline >= 0) {
+                    return false;
+                }
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -1,33 +1,301 @@
 package org.example.pattern;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Context Class - Uses a PaymentStrategy to process payments
+ *
+ * Items with the same SKU are aggregated into one line with a quantity. Lines live in
+ * parallel arrays in the order they were first added, found through an open-addressing
+ * hash index on the SKU, so adding, removing and changing the quantity of a line are O(1).
+ * The subtotal and the subtotal of every tax class are updated on each change, so totals
+ * are O(1) as well. Removed lines leave a hole that is compacted away once holes outnumber
+ * the live lines.
+ *
+ * All items are priced in the cart's currency.
  */
 public class ShoppingCart {
-    private List<Item> items;
+    private static final int EMPTY = -1;
+
     private PaymentStrategy paymentStrategy;
+    private final String currency;
+    private final long zero;
+
+    // Lines, in insertion order; a removed line has a null item until compaction
+    private Item[] lineItems = new Item[8];
+    private long[] linePrices = new long[8];
+    private int[] quantities = new int[8];
+    private int[] lineHashes = new int[8];
+    private int lineEnd;
+    private int liveLines;
+
+    /** SKU hash index: line number per bucket, or EMPTY; linear probing */
+    private int[] buckets = newBuckets(16);
+
+    private long subtotal;
+    private final long[] taxClassSubtotals = new long[TaxClass.values().length];
+    private long itemCount;
 
     public ShoppingCart() {
-        this.items = new ArrayList<>();
+        this("USD");
+    }
+
+    public ShoppingCart(String currency) {
+        this.zero = Money.zero(currency);
+        this.currency = Money.currency(zero);
     }
 
+    /** Adds one of the item */
     public void addItem(Item item) {
-        items.add(item);
+        addItem(item, 1);
     }
 
+    /**
+     * Adds {@code quantity} of the item, to its SKU's line if the cart has one.
+     *
+     * @throws IllegalArgumentException if the item is priced in another currency, or its
+     *                                  SKU is already in the cart at a different price
+     * @throws ArithmeticException      if the line's quantity or the cart's total would overflow
+     */
+    public void addItem(Item item, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive: " + quantity);
+        }
+        long price = item.getPriceMoney();
+        if (!Money.sameCurrency(price, zero)) {
+            throw new IllegalArgumentException("Cart is in " + currency + ", item " + item.getName()
+                    + " in " + Money.currency(price));
+        }
+        int hash = spread(item.getSku().hashCode());
+        int line = find(item.getSku(), hash);
+        if (line == EMPTY) {
+            line = appendLine(item, hash);
+            try {
+                changeQuantity(line, quantity);
+            } catch (ArithmeticException e) {
+                removeLine(line);
+                throw e;
+            }
+            return;
+        }
+        if (Money.minorUnits(price) != linePrices[line] || item.getTaxClass() != lineItems[line].getTaxClass()) {
+            throw new IllegalArgumentException("SKU " + item.getSku() + " is already in the cart at "
+                    + Money.display(lineItems[line].getPriceMoney()) + " " + lineItems[line].getTaxClass());
+        }
+        changeQuantity(line, Math.addExact(quantities[line], quantity));
+    }
+
+    /** Removes one of the item, and its line when none are left */
     public void removeItem(Item item) {
-        items.remove(item);
+        int line = find(item.getSku(), spread(item.getSku().hashCode()));
+        if (line != EMPTY) {
+            changeQuantity(line, quantities[line] - 1);
+        }
+    }
+
+    /**
+     * Sets the quantity of the SKU's line; 0 removes the line.
+     *
+     * @return false if the SKU is not in the cart
+     */
+    public boolean setQuantity(String sku, int quantity) {
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Quantity must not be negative: " + quantity);
+        }
+        int line = find(sku, spread(sku.hashCode()));
+        if (line == EMPTY) {
+            return false;
+        }
+        changeQuantity(line, quantity);
+        return true;
+    }
+
+    /** Quantity of the SKU in the cart, 0 if none */
+    public int getQuantity(String sku) {
+        int line = find(sku, spread(sku.hashCode()));
+        return line == EMPTY ? 0 : quantities[line];
+    }
+
+    public void clear() {
+        Arrays.fill(lineItems, 0, lineEnd, null);
+        Arrays.fill(buckets, EMPTY);
+        lineEnd = 0;
+        liveLines = 0;
+        subtotal = 0;
+        Arrays.fill(taxClassSubtotals, 0);
+        itemCount = 0;
+    }
+
+    public boolean isEmpty() {
+        return liveLines == 0;
+    }
+
+    /** Number of distinct SKUs */
+    public int getLineCount() {
+        return liveLines;
+    }
+
+    /** Number of items, counting quantities */
+    public long getItemCount() {
+        return itemCount;
     }
 
     public double calculateTotal() {
-        double total = 0;
-        for (Item item : items) {
-            total += item.getPrice();
+        return Money.toDouble(calculateTotalMoney());
+    }
+
+    /** The exact total, before tax, as packed Money */
+    public long calculateTotalMoney() {
+        return Money.withMinorUnits(zero, subtotal);
+    }
+
+    /** Total of the lines in the tax class, before tax, as packed Money */
+    public long getSubtotal(TaxClass taxClass) {
+        return Money.withMinorUnits(zero, taxClassSubtotals[taxClass.ordinal()]);
+    }
+
+    /** Tax on the cart, rounded once per tax class */
+    public long calculateTaxMoney() {
+        long tax = zero;
+        for (TaxClass taxClass : TaxClass.values()) {
+            tax = Money.add(tax, taxClass.taxOn(getSubtotal(taxClass)));
+        }
+        return tax;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    private void changeQuantity(int line, int quantity) {
+        long delta = Math.multiplyExact(linePrices[line], (long) quantity - quantities[line]);
+        // Money.withMinorUnits checks the range
+        subtotal = Money.minorUnits(Money.withMinorUnits(zero, Math.addExact(subtotal, delta)));
+        taxClassSubtotals[lineItems[line].getTaxClass().ordinal()] += delta;
+        itemCount += (long) quantity - quantities[line];
+        quantities[line] = quantity;
+        if (quantity == 0) {
+            removeLine(line);
+        }
+    }
+
+    private int appendLine(Item item, int hash) {
+        if (lineEnd == lineItems.length) {
+            int capacity = lineEnd * 2;
+            lineItems = Arrays.copyOf(lineItems, capacity);
+            linePrices = Arrays.copyOf(linePrices, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+            lineHashes = Arrays.copyOf(lineHashes, capacity);
+        }
+        int line = lineEnd++;
+        lineItems[line] = item;
+        linePrices[line] = Money.minorUnits(item.getPriceMoney());
+        quantities[line] = 0;
+        lineHashes[line] = hash;
+        liveLines++;
+        // Keep the index at most half full
+        if (liveLines * 2 > buckets.length) {
+            rebuildIndex(buckets.length * 2);
+        } else {
+            insert(line, hash);
+        }
+        return line;
+    }
+
+    private void removeLine(int line) {
+        // Backward-shift deletion keeps every probe sequence unbroken without tombstones
+        int mask = buckets.length - 1;
+        int hole = bucketOf(line);
+        int bucket = hole;
+        while (true) {
+            bucket = (bucket + 1) & mask;
+            int moved = buckets[bucket];
+            if (moved == EMPTY) {
+                break;
+            }
+            int home = lineHashes[moved] & mask;
+            // Move it into the hole unless its home lies cyclically in (hole, bucket]
+            if (((bucket - home) & mask) >= ((bucket - hole) & mask)) {
+                buckets[hole] = moved;
+                hole = bucket;
+            }
+        }
+        buckets[hole] = EMPTY;
+        lineItems[line] = null;
+        liveLines--;
+        if (liveLines == 0) {
+            lineEnd = 0;
+        } else if (lineEnd - liveLines > liveLines && lineEnd >= 16) {
+            compact();
+        }
+    }
+
+    /** Closes the holes left by removed lines, keeping the order */
+    private void compact() {
+        int to = 0;
+        for (int from = 0; from < lineEnd; from++) {
+            if (lineItems[from] != null) {
+                lineItems[to] = lineItems[from];
+                linePrices[to] = linePrices[from];
+                quantities[to] = quantities[from];
+                lineHashes[to] = lineHashes[from];
+                to++;
+            }
+        }
+        Arrays.fill(lineItems, to, lineEnd, null);
+        lineEnd = to;
+        rebuildIndex(buckets.length);
+    }
+
+    private void rebuildIndex(int bucketCount) {
+        buckets = newBuckets(bucketCount);
+        for (int line = 0; line < lineEnd; line++) {
+            if (lineItems[line] != null) {
+                insert(line, lineHashes[line]);
+            }
+        }
+    }
+
+    private void insert(int line, int hash) {
+        int mask = buckets.length - 1;
+        int bucket = hash & mask;
+        while (buckets[bucket] != EMPTY) {
+            bucket = (bucket + 1) & mask;
+        }
+        buckets[bucket] = line;
+    }
+
+    private int find(String sku, int hash) {
+        int mask = buckets.length - 1;
+        for (int bucket = hash & mask; ; bucket = (bucket + 1) & mask) {
+            int line = buckets[bucket];
+            if (line == EMPTY || (lineHashes[line] == hash && lineItems[line].getSku().equals(sku))) {
+                return line;
+            }
+        }
+    }
+
+    private int bucketOf(int line) {
+        int mask = buckets.length - 1;
+        int bucket = lineHashes[line] & mask;
+        while (buckets[bucket] != line) {
+            bucket = (bucket + 1) & mask;
         }
-        return total;
+        return bucket;
+    }
+
+    /** Mixes all bits into the low ones; SKUs such as "SKU-1", "SKU-2" have consecutive hash codes */
+    private static int spread(int hash) {
+        hash = (hash ^ (hash >>> 16)) * 0x85ebca6b;
+        hash = (hash ^ (hash >>> 13)) * 0xc2b2ae35;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int[] newBuckets(int count) {
+        int[] buckets = new int[count];
+        Arrays.fill(buckets, EMPTY);
+        return buckets;
     }
 
     public void setPaymentStrategy(PaymentStrategy paymentStrategy) {
@@ -35,7 +303,7 @@ public class ShoppingCart {
     }
 
     public void checkout() {
-        if (items.isEmpty()) {
+        if (isEmpty()) {
             System.out.println("Cart is empty. Add items before checkout.");
             return;
         }
@@ -45,31 +313,50 @@ public class ShoppingCart {
             return;
         }
 
-        double total = calculateTotal();
+        long total = calculateTotalMoney();
         System.out.println("\n=== Checkout Summary ===");
         System.out.println("Items in cart:");
-        for (Item item : items) {
-            System.out.println("  - " + item.getName() + ": $" + item.getPrice());
-        }
-        System.out.println("Total amount: $" + total);
+        printLines();
+        System.out.println("Total amount: " + Money.display(total));
         System.out.println("========================\n");
-        
-        paymentStrategy.pay(total);
-        
+
+        paymentStrategy.payMoney(total);
+
         System.out.println("\nThank you for your purchase!\n");
-        items.clear();
+        clear();
+    }
+
+    /**
+     * Checks out through the pipeline without blocking; see CheckoutPipeline.checkout.
+     * The cart keeps its contents: clear it when the result is AUTHORIZED.
+     */
+    public CompletableFuture<PaymentResult> checkoutAsync(CheckoutPipeline pipeline, AsyncPaymentStrategy provider) {
+        return pipeline.checkout(this, provider);
     }
 
     public void displayCart() {
         System.out.println("\n=== Shopping Cart ===");
-        if (items.isEmpty()) {
+        if (isEmpty()) {
             System.out.println("Cart is empty");
         } else {
-            for (Item item : items) {
-                System.out.println("  - " + item.getName() + ": $" + item.getPrice());
-            }
-            System.out.println("Total: $" + calculateTotal());
+            printLines();
+            System.out.println("Total: " + Money.display(calculateTotalMoney()));
         }
         System.out.println("====================\n");
     }
+
+    private void printLines() {
+        for (int line = 0; line < lineEnd; line++) {
+            Item item = lineItems[line];
+            if (item == null) {
+                continue;
+            }
+            if (quantities[line] == 1) {
+                System.out.println("  - " + item.getName() + ": " + Money.display(item.getPriceMoney()));
+            } else {
+                System.out.println("  - " + item.getName() + " x" + quantities[line] + ": "
+                        + Money.display(Money.multiply(item.getPriceMoney(), quantities[line])));
+            }
+        }
+    }
 }
@@ -0,0 +1,72 @@
+package org.example.pattern;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for a provider's batch settlement API, for load tests.
+ *
+ * A call costs a fixed overhead (the round trip) plus a small time per payment, which is what
+ * makes batching pay off. Answers are delivered by a shared timer, so waiting batches hold no
+ * thread. Thread-safe.
+ */
+public class StubBatchProvider implements BatchPaymentProvider {
+    private final String name;
+    private final String referencePrefix;
+    private final long callMicros;
+    private final long perPaymentNanos;
+    private final double declineRate;
+    private final ScheduledExecutorService timer;
+    private final AtomicLong batches = new AtomicLong();
+
+    /**
+     * @param callMicros      time of a call regardless of its size
+     * @param perPaymentNanos time added per payment in the batch
+     * @param declineRate     share of payments declined, 0 to 1
+     */
+    public StubBatchProvider(String name, String referencePrefix, long callMicros, long perPaymentNanos,
+                             double declineRate, ScheduledExecutorService timer) {
+        this.name = name;
+        this.referencePrefix = referencePrefix;
+        this.callMicros = callMicros;
+        this.perPaymentNanos = perPaymentNanos;
+        this.declineRate = declineRate;
+        this.timer = timer;
+    }
+
+    @Override
+    public CompletableFuture<String> settle(long[] amounts, int count, byte[] statuses) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        String reference = referencePrefix + "-B" + batches.incrementAndGet();
+        long delayNanos = callMicros * 1_000 + perPaymentNanos * count;
+        try {
+            timer.schedule(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                byte authorized = (byte) PaymentResult.Status.AUTHORIZED.ordinal();
+                byte declined = (byte) PaymentResult.Status.DECLINED.ordinal();
+                for (int i = 0; i < count; i++) {
+                    statuses[i] = Money.minorUnits(amounts[i]) > 0 && random.nextDouble() >= declineRate
+                            ? authorized : declined;
+                }
+                future.complete(reference);
+            }, delayNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /** Calls made so far */
+    public long getBatchCount() {
+        return batches.get();
+    }
+}
@@ -0,0 +1,104 @@
+package org.example.pattern;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for a payment provider, for load tests and demos.
+ *
+ * Answers after a configurable latency (a base plus a random jitter) and declines or fails a
+ * configurable share of payments. The answer is delivered by a shared timer, so a payment
+ * waiting for its "provider" holds no thread, like a real non-blocking HTTP client.
+ * Thread-safe.
+ */
+public class StubPaymentProvider implements AsyncPaymentStrategy {
+    private final String name;
+    private final String referencePrefix;
+    private final long latencyMicros;
+    private final long jitterMicros;
+    private final double declineRate;
+    private final double errorRate;
+    private final ScheduledExecutorService timer;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong inFlight = new AtomicLong();
+
+    /**
+     * @param referencePrefix prefix of the provider references, e.g. "CC"
+     * @param latencyMicros   least time before the provider answers
+     * @param jitterMicros    up to this much is added at random
+     * @param declineRate     share of payments declined, 0 to 1
+     * @param errorRate       share of payments failing with an error, 0 to 1
+     * @param timer           delivers the answers
+     */
+    public StubPaymentProvider(String name, String referencePrefix, long latencyMicros, long jitterMicros,
+                               double declineRate, double errorRate, ScheduledExecutorService timer) {
+        this.name = name;
+        this.referencePrefix = referencePrefix;
+        this.latencyMicros = latencyMicros;
+        this.jitterMicros = jitterMicros;
+        this.declineRate = declineRate;
+        this.errorRate = errorRate;
+        this.timer = timer;
+    }
+
+    /** Stands in for CreditCardPayment */
+    public static StubPaymentProvider creditCard(long latencyMicros, ScheduledExecutorService timer) {
+        return new StubPaymentProvider("Credit Card", "CC", latencyMicros, latencyMicros / 2, 0.02, 0.001, timer);
+    }
+
+    /** Stands in for PayPalPayment */
+    public static StubPaymentProvider payPal(long latencyMicros, ScheduledExecutorService timer) {
+        return new StubPaymentProvider("PayPal", "PP", latencyMicros, latencyMicros / 2, 0.01, 0.002, timer);
+    }
+
+    /** Stands in for GooglePayPayment */
+    public static StubPaymentProvider googlePay(long latencyMicros, ScheduledExecutorService timer) {
+        return new StubPaymentProvider("Google Pay", "GP", latencyMicros, latencyMicros / 2, 0.01, 0.001, timer);
+    }
+
+    /** Stands in for CryptocurrencyPayment; confirmations make it slow and variable */
+    public static StubPaymentProvider cryptocurrency(long latencyMicros, ScheduledExecutorService timer) {
+        return new StubPaymentProvider("Cryptocurrency", "BTC", latencyMicros, latencyMicros * 4, 0.05, 0.01, timer);
+    }
+
+    @Override
+    public CompletableFuture<PaymentResult> payAsync(long amount) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long delay = latencyMicros + (jitterMicros > 0 ? random.nextLong(jitterMicros + 1) : 0);
+        double roll = random.nextDouble();
+        PaymentResult result;
+        if (roll < errorRate) {
+            result = new PaymentResult(PaymentResult.Status.ERROR, null, amount, name + " unavailable");
+        } else {
+            String reference = referencePrefix + "-" + sequence.incrementAndGet();
+            result = roll < errorRate + declineRate
+                    ? new PaymentResult(PaymentResult.Status.DECLINED, reference, amount, name + " declined")
+                    : new PaymentResult(PaymentResult.Status.AUTHORIZED, reference, amount, null);
+        }
+        CompletableFuture<PaymentResult> future = new CompletableFuture<>();
+        inFlight.incrementAndGet();
+        try {
+            timer.schedule(() -> {
+                inFlight.decrementAndGet();
+                future.complete(result);
+            }, delay, TimeUnit.MICROSECONDS);
+        } catch (RejectedExecutionException e) {
+            inFlight.decrementAndGet();
+            future.complete(new PaymentResult(PaymentResult.Status.ERROR, null, amount, name + " is shut down"));
+        }
+        return future;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /** Payments waiting for their answer */
+    public long getInFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,27 @@
+package org.example.pattern;
+
+import java.math.RoundingMode;
+
+/**
+ * Tax class of an item, with its rate in basis points (1/100 of a percent)
+ */
+public enum TaxClass {
+    STANDARD(825),
+    REDUCED(500),
+    EXEMPT(0);
+
+    private final int rateBasisPoints;
+
+    TaxClass(int rateBasisPoints) {
+        this.rateBasisPoints = rateBasisPoints;
+    }
+
+    public int getRateBasisPoints() {
+        return rateBasisPoints;
+    }
+
+    /** Tax on a subtotal, rounded half-even to the currency's minor unit */
+    public long taxOn(long subtotal) {
+        return Money.multiply(subtotal, rateBasisPoints, 10_000, RoundingMode.HALF_EVEN);
+    }
+}